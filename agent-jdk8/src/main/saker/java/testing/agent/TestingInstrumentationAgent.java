@@ -35,17 +35,10 @@ public class TestingInstrumentationAgent {
 			e.printStackTrace();
 			throw new RuntimeException(e);
 		}
-		UserClassFileTransformer usertransformer = new UserClassFileTransformer();
+		UserClassFileTransformer usertransformer = new UserClassFileTransformer(
+				TransformedClassCache.openFromSystemProperties());
 		inst.addTransformer(usertransformer, true);
-		for (Class<?> c : inst.getAllLoadedClasses()) {
-			if (inst.isModifiableClass(c)) {
-				try {
-					inst.retransformClasses(c);
-				} catch (Throwable e) {
-					e.printStackTrace();
-				}
-			}
-		}
+		UserClassFileTransformer.retransformLoadedClasses(inst);
 		loadStackOverFlowInstrumentationProtection();
 	}
 
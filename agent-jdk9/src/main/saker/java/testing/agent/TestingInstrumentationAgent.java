@@ -49,17 +49,10 @@ public class TestingInstrumentationAgent {
 		inst.redefineModule(File.class.getClass().getModule(), Collections.emptySet(), Collections.emptyMap(),
 				extraopens, Collections.emptySet(), Collections.emptyMap());
 
-		UserClassFileTransformer usertransformer = new UserClassFileTransformer();
+		UserClassFileTransformer usertransformer = new UserClassFileTransformer(
+				TransformedClassCache.openFromSystemProperties());
 		inst.addTransformer(usertransformer, true);
-		for (Class<?> c : inst.getAllLoadedClasses()) {
-			if (inst.isModifiableClass(c)) {
-				try {
-					inst.retransformClasses(c);
-				} catch (Throwable e) {
-					e.printStackTrace();
-				}
-			}
-		}
+		UserClassFileTransformer.retransformLoadedClasses(inst);
 		loadStackOverFlowInstrumentationProtection();
 	}
 
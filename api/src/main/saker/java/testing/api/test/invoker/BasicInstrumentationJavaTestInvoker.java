@@ -16,11 +16,21 @@
 package saker.java.testing.api.test.invoker;
 
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.NavigableMap;
 import java.util.NavigableSet;
+import java.util.Set;
 import java.util.TreeMap;
-import java.util.TreeSet;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
 
+import saker.build.file.path.WildcardPath;
+import saker.build.thirdparty.saker.util.classloader.ClassLoaderDataFinder;
+import saker.build.thirdparty.saker.util.function.Functionals;
 import saker.java.testing.api.test.exc.JavaTestRunnerFailureException;
 import saker.java.testing.bootstrapagent.InstrumentationData;
 import saker.java.testing.bootstrapagent.InstrumentationProcessExitRequestedException;
@@ -35,29 +45,204 @@ import saker.java.testing.bootstrapagent.TestFileRequestor;
  * The test invocation can be performed in {@link #runTest(TestInvocationParameters)}, and implementations are not
  * required to specially handle the test results.
  * <p>
+ * The classes that are tracked as dependencies of the test cases can be configured using the test invoker parameters
+ * specified with the <code>PARAMETER_*</code> constants in this class.
+ * <p>
  * Clients should extend this class.
  */
 public abstract class BasicInstrumentationJavaTestInvoker extends BasicJavaTestingInvoker {
+	/**
+	 * Parameter specifying the wildcards of the class names that should be tracked as dependencies of the test cases.
+	 * <p>
+	 * The parameter should have a format of <code>&lt;wildcard&gt;[;&lt;wildcard&gt;]*</code>, where each wildcard
+	 * is a dot (<code>.</code>) separated class name pattern. E.g. <code>com.example.**</code>.
+	 * <p>
+	 * If not specified, all classes of the user and test class paths are tracked unless excluded by
+	 * {@link #PARAMETER_DEPENDENCY_TRACKING_EXCLUDES}.
+	 */
+	public static final String PARAMETER_DEPENDENCY_TRACKING_INCLUDES = "DependencyTrackingIncludes";
+	/**
+	 * Parameter specifying the wildcards of the class names that shouldn't be tracked as dependencies of the test
+	 * cases.
+	 * <p>
+	 * The format is the same as for {@link #PARAMETER_DEPENDENCY_TRACKING_INCLUDES}.
+	 */
+	public static final String PARAMETER_DEPENDENCY_TRACKING_EXCLUDES = "DependencyTrackingExcludes";
+	/**
+	 * Parameter specifying whether the classes of the test runner class path should be tracked as dependencies.
+	 * <p>
+	 * The test runner classes are not tracked by default, as all test cases are rerun if the test runner class path
+	 * changes. Set to <code>true</code> to track them.
+	 */
+	public static final String PARAMETER_TEST_RUNNER_DEPENDENCY_TRACKING = "TestRunnerDependencyTracking";
+	/**
+	 * Parameter specifying the wildcards of the test class names for which the dependencies are tracked based on the
+	 * loaded classes.
+	 * <p>
+	 * The format is the same as for {@link #PARAMETER_DEPENDENCY_TRACKING_INCLUDES}, but the wildcards are matched
+	 * against the test class names.
+	 * <p>
+	 * The matching test cases are invoked with newly created user and test classloaders, and all classes that are
+	 * loaded by them during the test are recorded as dependencies. The method bodies of these classes are not
+	 * instrumented, so the test runs with less overhead, but the dependencies are less precise, as a loaded class is
+	 * not necessarily used by the test. This is recommended for long running integration tests.
+	 */
+	public static final String PARAMETER_CLASS_LOAD_DEPENDENCY_TRACKING = "ClassLoadDependencyTracking";
+	/**
+	 * Parameter specifying whether the executed methods of the tracked classes should be recorded.
+	 * <p>
+	 * If set to <code>true</code>, a test case is not rerun if only the methods that it didn't execute are changed in
+	 * its dependent classes. Changes to the fields, constants or the method declarations of a class still cause the
+	 * test cases that depend on it to be rerun.
+	 */
+	public static final String PARAMETER_METHOD_DEPENDENCY_TRACKING = "MethodDependencyTracking";
+	/**
+	 * Parameter specifying whether the test cases may read the unchanged files without waiting for their
+	 * synchronization.
+	 * <p>
+	 * If set to <code>true</code>, the files that the test case read in the previous run and are unchanged since then
+	 * are read without waiting for the build task. Their contents are validated at the end of the test, and the test
+	 * case is rerun if any of them was modified by the synchronization.
+	 * 
+	 * @see JavaTestingFileProvider#getOptimisticReadPaths()
+	 */
+	public static final String PARAMETER_OPTIMISTIC_FILE_SYNCHRONIZATION = "OptimisticFileSynchronization";
+
+	private Predicate<String> dependencyTrackingFilter;
+	private WildcardPath[] classLoadDependencyTrackingTestClasses;
+	private boolean methodDependencyTracking;
+	private boolean optimisticFileSynchronization;
+	private volatile DependentClassDictionary dependentClassDictionary = new DependentClassDictionary(null);
+	private ClassLoader userClassLoaderParent;
+	private ClassLoader testClassLoaderParent;
+
 	/**
 	 * Creates a new testing invoker.
 	 */
 	public BasicInstrumentationJavaTestInvoker() {
 	}
 
+	@Override
+	public void initTestRunner(ClassLoader testrunnerclassloader, TestInvokerParameters parameters)
+			throws JavaTestRunnerFailureException {
+		super.initTestRunner(testrunnerclassloader, parameters);
+		String trackrunner = null;
+		if (parameters != null) {
+			dependencyTrackingFilter = createDependencyTrackingFilter(
+					parameters.get(PARAMETER_DEPENDENCY_TRACKING_INCLUDES),
+					parameters.get(PARAMETER_DEPENDENCY_TRACKING_EXCLUDES));
+			trackrunner = parameters.get(PARAMETER_TEST_RUNNER_DEPENDENCY_TRACKING);
+			classLoadDependencyTrackingTestClasses = parseClassNameWildcards(
+					parameters.get(PARAMETER_CLASS_LOAD_DEPENDENCY_TRACKING));
+			methodDependencyTracking = Boolean.parseBoolean(parameters.get(PARAMETER_METHOD_DEPENDENCY_TRACKING));
+			optimisticFileSynchronization = Boolean
+					.parseBoolean(parameters.get(PARAMETER_OPTIMISTIC_FILE_SYNCHRONIZATION));
+		}
+		if (testrunnerclassloader != null && !Boolean.parseBoolean(trackrunner)) {
+			Predicate<String> never = Functionals.neverPredicate();
+			InstrumentationData.setDependencyTrackingFilter(testrunnerclassloader, never);
+			//the classes may be defined by the parent of the passed classloader if it only restricts access to them
+			InstrumentationData.setDependencyTrackingFilter(testrunnerclassloader.getParent(), never);
+		}
+	}
+
+	@Override
+	public void initClassLoaders(ClassLoader userclassloaderparent, ClassLoaderDataFinder[] userclasspath,
+			ClassLoader testclassloaderparent, ClassLoaderDataFinder[] testclasspath) {
+		super.initClassLoaders(userclassloaderparent, userclasspath, testclassloaderparent, testclasspath);
+		this.userClassLoaderParent = userclassloaderparent;
+		this.testClassLoaderParent = testclassloaderparent;
+		Predicate<String> filter = dependencyTrackingFilter;
+		ClassLoader usercl = getUserClassLoader();
+		if (usercl != userclassloaderparent) {
+			InstrumentationData.setDependencyTrackingFilter(usercl, filter);
+			InstrumentationData.setMethodDependencyTracking(usercl, methodDependencyTracking);
+		}
+		ClassLoader testcl = getTestClassLoader();
+		if (testcl != testclassloaderparent) {
+			InstrumentationData.setDependencyTrackingFilter(testcl, filter);
+			InstrumentationData.setMethodDependencyTracking(testcl, methodDependencyTracking);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The dependency tracking is restricted to the classes in the given packages.
+	 */
+	@Override
+	public void initClassPathPackages(String[] packagenames) {
+		Set<String> packages = packagenames == null ? null
+				: Collections.unmodifiableSet(new HashSet<>(Arrays.asList(packagenames)));
+		this.dependentClassDictionary = new DependentClassDictionary(packages);
+		ClassLoader usercl = getUserClassLoader();
+		if (usercl != userClassLoaderParent) {
+			InstrumentationData.setTrackedPackages(usercl, packages);
+		}
+		ClassLoader testcl = getTestClassLoader();
+		if (testcl != testClassLoaderParent) {
+			InstrumentationData.setTrackedPackages(testcl, packages);
+		}
+	}
+
+	@Override
+	public String[] getDependentClassNames(int fromindex) {
+		return dependentClassDictionary.getNames(fromindex);
+	}
+
+	@Override
+	protected boolean isIsolatedClassLoaderInvocation(TestInvocationParameters parameters) {
+		WildcardPath[] testclasswildcards = classLoadDependencyTrackingTestClasses;
+		if (testclasswildcards == null) {
+			return false;
+		}
+		String testclassname = parameters.getTestClassName();
+		return testclassname != null && includesAny(testclasswildcards, testclassname.replace('.', '/'));
+	}
+
 	@Override
 	protected final JavaTestInvocationResult invokeTestImpl(JavaTestingFileProvider fileprovider,
 			TestInvocationParameters parameters) throws JavaTestRunnerFailureException {
-		JavaTestInvocationResult result;
+		JavaTestInvocationResult result = new JavaTestInvocationResult();
 		Integer exitcode = null;
 		boolean successful = false;
-		NavigableSet<String> dependentclasses;
+		NavigableMap<String, NavigableSet<String>> dependentmethods;
 		NavigableMap<String, NavigableSet<String>> listeddirectories;
 
+		String[] optimisticreadpaths = null;
+		if (optimisticFileSynchronization && fileprovider != null) {
+			optimisticreadpaths = fileprovider.getOptimisticReadPaths();
+		}
+
+		ClassLoader classloadtrackinguserclassloader = null;
+		ClassLoader classloadtrackingtestclassloader = null;
+		if (isIsolatedClassLoaderInvocation(parameters)) {
+			//the classloaders are newly created for this invocation, record the classes that they define
+			Predicate<String> filter = dependencyTrackingFilter;
+			if (filter == null) {
+				filter = Functionals.alwaysPredicate();
+			}
+			ClassLoader usercl = getUserClassLoader();
+			if (usercl != userClassLoaderParent) {
+				classloadtrackinguserclassloader = usercl;
+				InstrumentationData.setClassLoadDependencyTracking(usercl, filter);
+			}
+			ClassLoader testcl = getTestClassLoader();
+			if (testcl != testClassLoaderParent) {
+				classloadtrackingtestclassloader = testcl;
+				InstrumentationData.setClassLoadDependencyTracking(testcl, filter);
+			}
+		}
+
 		synchronized (InstrumentationData.TESTING_INSTRUMENTATION_LOCK) {
 			InstrumentationData.resetClassLoggerInstrumentation();
 			if (fileprovider != null) {
-				TestFileRequestor.init(fileprovider::requestFileRead, fileprovider::requestFileWrite,
-						fileprovider::requestFileList, fileprovider::requestClassLoaderResource);
+				TestFileRequestor.init(fileprovider::requestFileReads, fileprovider::requestFileStats,
+						fileprovider::requestFileWrites, fileprovider::requestFileLists,
+						fileprovider::requestClassLoaderResource);
+				if (optimisticreadpaths != null) {
+					TestFileRequestor.setOptimisticReadPaths(new HashSet<>(Arrays.asList(optimisticreadpaths)));
+				}
 			} else {
 				TestFileRequestor.clear();
 			}
@@ -76,20 +261,142 @@ public abstract class BasicInstrumentationJavaTestInvoker extends BasicJavaTesti
 				} catch (InstrumentationProcessExitRequestedException e) {
 					exitcode = e.getResultCode();
 				}
-				dependentclasses = new TreeSet<>(InstrumentationData.getDependentClasses());
+				dependentClassDictionary.setDependentClasses(result);
+				dependentmethods = methodDependencyTracking ? InstrumentationData.getDependentMethods() : null;
 				listeddirectories = new TreeMap<>(TestFileRequestor.LISTED_DIRECTORY_CONTENTS);
+				//the file provider needs to receive all notifications before the result is returned
+				TestFileRequestor.flush();
 			} finally {
 				TestFileRequestor.clear();
+				InstrumentationData.setClassLoadDependencyTracking(classloadtrackinguserclassloader, null);
+				InstrumentationData.setClassLoadDependencyTracking(classloadtrackingtestclassloader, null);
 			}
 		}
-		result = new JavaTestInvocationResult(successful);
-		result.setDependentClasses(dependentclasses);
+		result.setDependentMethods(dependentmethods);
 		result.setExitCode(exitcode);
 		result.setSuccessful(successful);
 		result.setListedDirectories(listeddirectories);
 		return result;
 	}
 
+	private static Predicate<String> createDependencyTrackingFilter(String includes, String excludes) {
+		WildcardPath[] includewildcards = parseClassNameWildcards(includes);
+		WildcardPath[] excludewildcards = parseClassNameWildcards(excludes);
+		if (includewildcards == null && excludewildcards == null) {
+			return null;
+		}
+		//the filter is called with the internal names of the classes
+		return internalname -> (includewildcards == null || includesAny(includewildcards, internalname))
+				&& (excludewildcards == null || !includesAny(excludewildcards, internalname));
+	}
+
+	private static WildcardPath[] parseClassNameWildcards(String param) {
+		if (param == null) {
+			return null;
+		}
+		List<WildcardPath> result = new ArrayList<>();
+		for (String wc : param.split(";")) {
+			wc = wc.trim();
+			if (wc.isEmpty()) {
+				continue;
+			}
+			result.add(WildcardPath.valueOf(wc.replace('.', '/')));
+		}
+		if (result.isEmpty()) {
+			return null;
+		}
+		return result.toArray(new WildcardPath[result.size()]);
+	}
+
+	private static boolean includesAny(WildcardPath[] wildcards, String internalname) {
+		for (WildcardPath wc : wildcards) {
+			if (wc.includes(internalname)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Dictionary of the dependent class names that are reported in the test invocation results.
+	 * <p>
+	 * The JVM-wide class indices of the instrumentation are mapped to consecutive dictionary indices. Each result
+	 * only contains the names that were added since the previous result, so the caller receives every name once.
+	 * <p>
+	 * The classes that are not in the tracked packages are filtered out when they are first encountered. These are
+	 * the classes used via reflection or loaded by the isolated classloaders, as the agent doesn't put markers for
+	 * them.
+	 */
+	private static final class DependentClassDictionary implements IntConsumer {
+		private static final int NOT_TRACKED = -1;
+
+		private final Set<String> packages;
+		/**
+		 * The instrumentation class indices mapped to the dictionary index + 1, or {@link #NOT_TRACKED}.
+		 * <p>
+		 * 0 if the class index hasn't been encountered yet.
+		 */
+		private int[] dictionaryIndices = new int[256];
+		private final List<String> names = new ArrayList<>();
+		private int syncedCount;
+
+		private int[] collected;
+		private int collectedCount;
+
+		public DependentClassDictionary(Set<String> packages) {
+			this.packages = packages;
+		}
+
+		public synchronized void setDependentClasses(JavaTestInvocationResult result) {
+			collected = new int[64];
+			collectedCount = 0;
+			InstrumentationData.forEachDependentClassIndex(this);
+			int[] indices = Arrays.copyOf(collected, collectedCount);
+			collected = null;
+
+			int offset = syncedCount;
+			int size = names.size();
+			syncedCount = size;
+			result.setDependentClassIndices(indices, offset,
+					names.subList(offset, size).toArray(new String[size - offset]));
+		}
+
+		public synchronized String[] getNames(int fromindex) {
+			int size = names.size();
+			if (fromindex < 0 || fromindex > size) {
+				throw new IndexOutOfBoundsException("Invalid dictionary index: " + fromindex + " for size: " + size);
+			}
+			return names.subList(fromindex, size).toArray(new String[size - fromindex]);
+		}
+
+		@Override
+		public void accept(int classindex) {
+			int[] dictindices = dictionaryIndices;
+			if (classindex >= dictindices.length) {
+				dictindices = Arrays.copyOf(dictindices, Math.max(classindex + 1, dictindices.length * 2));
+				dictionaryIndices = dictindices;
+			}
+			int dictidx = dictindices[classindex];
+			if (dictidx == 0) {
+				String cname = InstrumentationData.getClassBinaryName(classindex);
+				if (InstrumentationData.isClassInPackages(packages, cname)) {
+					names.add(cname);
+					dictidx = names.size();
+				} else {
+					dictidx = NOT_TRACKED;
+				}
+				dictindices[classindex] = dictidx;
+			}
+			if (dictidx == NOT_TRACKED) {
+				return;
+			}
+			if (collectedCount == collected.length) {
+				collected = Arrays.copyOf(collected, collectedCount * 2);
+			}
+			collected[collectedCount++] = dictidx - 1;
+		}
+	}
+
 	private void runTestImpl(TestInvocationParameters parameters) throws JavaTestRunnerFailureException,
 			InvocationTargetException, InstrumentationProcessExitRequestedException {
 		runTest(parameters);
@@ -52,6 +52,11 @@ public abstract class BasicJavaTestingInvoker implements JavaTestingInvoker {
 	private ClassLoader testClassLoader;
 	private ClassLoader testRunnerClassLoader;
 
+	private ClassLoader userClassLoaderParent;
+	private ClassLoaderDataFinder[] userClassPath;
+	private ClassLoader testClassLoaderParent;
+	private ClassLoaderDataFinder[] testClassPath;
+
 	/**
 	 * Creates a new testing invoker.
 	 */
@@ -67,9 +72,31 @@ public abstract class BasicJavaTestingInvoker implements JavaTestingInvoker {
 	@Override
 	public void initClassLoaders(ClassLoader userclassloaderparent, ClassLoaderDataFinder[] userclasspath,
 			ClassLoader testclassloaderparent, ClassLoaderDataFinder[] testclasspath) {
+		this.userClassLoaderParent = userclassloaderparent;
+		this.userClassPath = userclasspath;
+		this.testClassLoaderParent = testclassloaderparent;
+		this.testClassPath = testclasspath;
 		userClassLoader = createUserClassLoader(userclassloaderparent, userclasspath);
-		testClassLoader = createTestsClassLoader(MultiClassLoader.create(testclassloaderparent,
-				ImmutableUtils.asUnmodifiableArrayList(userClassLoader, testRunnerClassLoader)), testclasspath);
+		testClassLoader = newTestsClassLoader(userClassLoader, testclassloaderparent, testclasspath);
+	}
+
+	/**
+	 * Checks if the test case should be invoked with newly created user and test classloaders.
+	 * <p>
+	 * If this method returns <code>true</code>, new classloaders are created using
+	 * {@link #createUserClassLoader(ClassLoader, ClassLoaderDataFinder[])} and
+	 * {@link #createTestsClassLoader(ClassLoader, ClassLoaderDataFinder[])} for the invocation of the test case. They
+	 * are returned by {@link #getUserClassLoader()} and {@link #getTestClassLoader()} during the invocation, and
+	 * discarded afterwards. The test case won't see the classes loaded by other test cases.
+	 * <p>
+	 * The default implementation returns <code>false</code>.
+	 * 
+	 * @param parameters
+	 *            The invocation parameters for the test case.
+	 * @return <code>true</code> to use new classloaders for the test case.
+	 */
+	protected boolean isIsolatedClassLoaderInvocation(TestInvocationParameters parameters) {
+		return false;
 	}
 
 	/**
@@ -151,17 +178,29 @@ public abstract class BasicJavaTestingInvoker implements JavaTestingInvoker {
 		return result;
 	}
 
+	private ClassLoader newTestsClassLoader(ClassLoader userclassloader, ClassLoader testclassloaderparent,
+			ClassLoaderDataFinder[] testclasspath) {
+		return createTestsClassLoader(MultiClassLoader.create(testclassloaderparent,
+				ImmutableUtils.asUnmodifiableArrayList(userclassloader, testRunnerClassLoader)), testclasspath);
+	}
+
 	@Override
 	public final JavaTestInvocationResult invokeTest(JavaTestingFileProvider fileprovider,
 			TestInvocationParameters parameters) throws JavaTestRunnerFailureException {
 		Thread currentthread = Thread.currentThread();
 		ClassLoader prevcontextcl = currentthread.getContextClassLoader();
-		currentthread.setContextClassLoader(testClassLoader);
 		try (UnsyncByteArrayOutputStream stdout = new UnsyncByteArrayOutputStream();
 				UnsyncByteArrayOutputStream stderr = new UnsyncByteArrayOutputStream();
 				PrintStream stdoutps = new PrintStream(stdout);
 				PrintStream stderrps = new PrintStream(stderr)) {
 			synchronized (BasicJavaTestingInvoker.class) {
+				ClassLoader shareduserclassloader = userClassLoader;
+				ClassLoader sharedtestclassloader = testClassLoader;
+				if (isIsolatedClassLoaderInvocation(parameters)) {
+					userClassLoader = createUserClassLoader(userClassLoaderParent, userClassPath);
+					testClassLoader = newTestsClassLoader(userClassLoader, testClassLoaderParent, testClassPath);
+				}
+				currentthread.setContextClassLoader(testClassLoader);
 				Properties prevprops = System.getProperties();
 				PrintStream prevstdout = System.out;
 				PrintStream prevstderr = System.err;
@@ -197,6 +236,8 @@ public abstract class BasicJavaTestingInvoker implements JavaTestingInvoker {
 					System.setErr(prevstderr);
 					System.setIn(prevstdin);
 					System.setProperties(prevprops);
+					userClassLoader = shareduserclassloader;
+					testClassLoader = sharedtestclassloader;
 				}
 			}
 		} finally {
@@ -209,6 +250,10 @@ public abstract class BasicJavaTestingInvoker implements JavaTestingInvoker {
 		this.userClassLoader = null;
 		this.testClassLoader = null;
 		this.testRunnerClassLoader = null;
+		this.userClassLoaderParent = null;
+		this.userClassPath = null;
+		this.testClassLoaderParent = null;
+		this.testClassPath = null;
 		JavaTestingInvoker.super.close();
 	}
 
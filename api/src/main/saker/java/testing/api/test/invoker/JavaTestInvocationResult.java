@@ -38,6 +38,10 @@ public final class JavaTestInvocationResult implements Externalizable {
 	private static final long serialVersionUID = 1L;
 
 	private NavigableSet<String> dependentClasses;
+	private int[] dependentClassIndices;
+	private int classNameDictionaryOffset;
+	private String[] addedClassNames;
+	private NavigableMap<String, ? extends NavigableSet<String>> dependentMethods;
 	private NavigableMap<String, ? extends NavigableSet<String>> listedDirectories;
 	private Integer exitCode = null;
 	private boolean successful;
@@ -80,6 +84,87 @@ public final class JavaTestInvocationResult implements Externalizable {
 		return dependentClasses;
 	}
 
+	/**
+	 * Sets the class dependencies of the test case as indices to the class name dictionary of the test invoker.
+	 * <p>
+	 * The test invoker assigns consecutive indices to the names of the reported dependent classes. The result only
+	 * contains the names that were added to the dictionary since the previously returned result, so the class names
+	 * are only transferred once for each test invoker.
+	 * <p>
+	 * If the receiver of the result is missing some of the names, it can retrieve them using
+	 * {@link JavaTestingInvoker#getDependentClassNames(int)}.
+	 * 
+	 * @param dependentClassIndices
+	 *            The dictionary indices of the dependent classes.
+	 * @param classNameDictionaryOffset
+	 *            The dictionary index of the first added class name.
+	 * @param addedClassNames
+	 *            The binary names of the classes that were added to the dictionary.
+	 * @see #getDependentClassIndices()
+	 */
+	public void setDependentClassIndices(int[] dependentClassIndices, int classNameDictionaryOffset,
+			String[] addedClassNames) {
+		this.dependentClassIndices = dependentClassIndices;
+		this.classNameDictionaryOffset = classNameDictionaryOffset;
+		this.addedClassNames = addedClassNames;
+	}
+
+	/**
+	 * Gets the class name dictionary indices of the classes that the test case uses.
+	 * 
+	 * @return The indices or <code>null</code> if not set.
+	 * @see #setDependentClassIndices(int[], int, String[])
+	 */
+	public int[] getDependentClassIndices() {
+		return dependentClassIndices;
+	}
+
+	/**
+	 * Gets the class name dictionary index of the first {@linkplain #getAddedClassNames() added class name}.
+	 * 
+	 * @return The index.
+	 */
+	public int getClassNameDictionaryOffset() {
+		return classNameDictionaryOffset;
+	}
+
+	/**
+	 * Gets the names of the classes that were added to the class name dictionary of the test invoker since the
+	 * previous result.
+	 * 
+	 * @return The class names or <code>null</code> if not set.
+	 */
+	public String[] getAddedClassNames() {
+		return addedClassNames;
+	}
+
+	/**
+	 * Sets the method dependencies of the test case.
+	 * <p>
+	 * If the executed methods of a dependent class are set, the test case is only rerun if any of the executed
+	 * methods, or the structure of the class changes.
+	 * 
+	 * @param dependentMethods
+	 *            The class names mapped to the names and descriptors of the executed methods. E.g.
+	 *            <code>toString()Ljava/lang/String;</code>
+	 * @see #getDependentMethods()
+	 */
+	public void setDependentMethods(NavigableMap<String, ? extends NavigableSet<String>> dependentMethods) {
+		this.dependentMethods = dependentMethods;
+	}
+
+	/**
+	 * Gets the methods that were executed by the test case.
+	 * <p>
+	 * The result contains the class names in the same format as {@link #getDependentClasses()}.
+	 * 
+	 * @return The class names mapped to the names and descriptors of the executed methods or <code>null</code> if not
+	 *             set.
+	 */
+	public NavigableMap<String, ? extends NavigableSet<String>> getDependentMethods() {
+		return dependentMethods;
+	}
+
 	/**
 	 * Sets the listed directories by the test case.
 	 * 
@@ -178,6 +263,25 @@ public final class JavaTestInvocationResult implements Externalizable {
 	@Override
 	public void writeExternal(ObjectOutput out) throws IOException {
 		SerialUtils.writeExternalCollection(out, dependentClasses);
+		if (dependentClassIndices == null) {
+			out.writeInt(-1);
+		} else {
+			out.writeInt(dependentClassIndices.length);
+			for (int idx : dependentClassIndices) {
+				out.writeInt(idx);
+			}
+			out.writeInt(classNameDictionaryOffset);
+			if (addedClassNames == null) {
+				out.writeInt(-1);
+			} else {
+				out.writeInt(addedClassNames.length);
+				for (String cname : addedClassNames) {
+					out.writeUTF(cname);
+				}
+			}
+		}
+		SerialUtils.writeExternalMap(out, dependentMethods, ObjectOutput::writeUTF,
+				SerialUtils::writeExternalCollection);
 		SerialUtils.writeExternalMap(out, listedDirectories, ObjectOutput::writeUTF,
 				SerialUtils::writeExternalCollection);
 		out.writeObject(exitCode);
@@ -188,6 +292,25 @@ public final class JavaTestInvocationResult implements Externalizable {
 	@Override
 	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
 		dependentClasses = SerialUtils.readExternalSortedTreeSet(in);
+		int indexcount = in.readInt();
+		if (indexcount >= 0) {
+			int[] indices = new int[indexcount];
+			for (int i = 0; i < indexcount; i++) {
+				indices[i] = in.readInt();
+			}
+			dependentClassIndices = indices;
+			classNameDictionaryOffset = in.readInt();
+			int namecount = in.readInt();
+			if (namecount >= 0) {
+				String[] names = new String[namecount];
+				for (int i = 0; i < namecount; i++) {
+					names[i] = in.readUTF();
+				}
+				addedClassNames = names;
+			}
+		}
+		dependentMethods = SerialUtils.readExternalSortedTreeMap(in, ObjectInput::readUTF,
+				SerialUtils::readExternalSortedTreeSet);
 		listedDirectories = SerialUtils.readExternalSortedTreeMap(in, ObjectInput::readUTF,
 				SerialUtils::readExternalSortedTreeSet);
 		exitCode = (Integer) in.readObject();
@@ -35,6 +35,53 @@ public interface JavaTestingFileProvider {
 	 */
 	public void requestFileRead(String path);
 
+	/**
+	 * File read requests are performed by the test case.
+	 * <p>
+	 * The method is used by the instrumentation to send multiple requests in a single call.
+	 * <p>
+	 * The default implementation calls {@link #requestFileRead(String)} for each path.
+	 * 
+	 * @param paths
+	 *            The file paths.
+	 */
+	public default void requestFileReads(String[] paths) {
+		for (String path : paths) {
+			requestFileRead(path);
+		}
+	}
+
+	/**
+	 * The attributes of a file are queried by the test case.
+	 * <p>
+	 * The test case only checks the existence or the type of the file, and doesn't depend on its contents. The file
+	 * should be present on the local file system after the method returns.
+	 * <p>
+	 * The default implementation calls {@link #requestFileRead(String)}.
+	 * 
+	 * @param path
+	 *            The file path.
+	 */
+	public default void requestFileStat(String path) {
+		requestFileRead(path);
+	}
+
+	/**
+	 * The attributes of files are queried by the test case.
+	 * <p>
+	 * The method is used by the instrumentation to send multiple requests in a single call.
+	 * <p>
+	 * The default implementation calls {@link #requestFileStat(String)} for each path.
+	 * 
+	 * @param paths
+	 *            The file paths.
+	 */
+	public default void requestFileStats(String[] paths) {
+		for (String path : paths) {
+			requestFileStat(path);
+		}
+	}
+
 	/**
 	 * A file write request is performed by the test case.
 	 * <p>
@@ -45,14 +92,65 @@ public interface JavaTestingFileProvider {
 	 */
 	public void requestFileWrite(String path);
 
+	/**
+	 * File write requests are performed by the test case.
+	 * <p>
+	 * The method is used by the instrumentation to send multiple requests in a single call. The requests may be sent
+	 * after the test case has started writing the files.
+	 * <p>
+	 * The default implementation calls {@link #requestFileWrite(String)} for each path.
+	 * 
+	 * @param paths
+	 *            The file paths.
+	 */
+	public default void requestFileWrites(String[] paths) {
+		for (String path : paths) {
+			requestFileWrite(path);
+		}
+	}
+
 	/**
 	 * The contents of a directory is being listed by the test case.
+	 * <p>
+	 * The test case waits for the request to complete before listing the directory, so the implementation may
+	 * synchronize the children of the directory when this method is called.
 	 * 
 	 * @param path
 	 *            The directory path.
 	 */
 	public void requestFileList(String path);
 
+	/**
+	 * The contents of directories are being listed by the test case.
+	 * <p>
+	 * The method is used by the instrumentation to send multiple requests in a single call.
+	 * <p>
+	 * The default implementation calls {@link #requestFileList(String)} for each path.
+	 * 
+	 * @param paths
+	 *            The directory paths.
+	 */
+	public default void requestFileLists(String[] paths) {
+		for (String path : paths) {
+			requestFileList(path);
+		}
+	}
+
+	/**
+	 * Gets the paths of the files that the test case may read without waiting for the read request to complete.
+	 * <p>
+	 * The file provider expects these files to be already present with the appropriate contents. The read requests
+	 * for them may be sent after the test case has accessed the files. The file provider validates the contents of
+	 * the files at the end of the test, and invokes the test case again if necessary.
+	 * <p>
+	 * The default implementation returns <code>null</code>.
+	 * 
+	 * @return The absolute, normalized paths of the files or <code>null</code> if there are none.
+	 */
+	public default String[] getOptimisticReadPaths() {
+		return null;
+	}
+
 	/**
 	 * A {@link ClassLoader} resources is being accessed by the test case.
 	 * 
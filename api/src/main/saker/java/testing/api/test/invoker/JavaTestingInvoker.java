@@ -99,6 +99,24 @@ public interface JavaTestingInvoker extends Closeable {
 	public void initClassLoaders(ClassLoader userclassloaderparent, ClassLoaderDataFinder[] userclasspath,
 			ClassLoader testclassloaderparent, ClassLoaderDataFinder[] testclasspath);
 
+	/**
+	 * Initializes the packages of the classes that are present on the user and test class paths.
+	 * <p>
+	 * This method is called after
+	 * {@link #initClassLoaders(ClassLoader, ClassLoaderDataFinder[], ClassLoader, ClassLoaderDataFinder[])}.
+	 * <p>
+	 * Only the changes of the classes in these packages cause the test cases to be rerun, so the test invoker may
+	 * restrict the dependency tracking to them. E.g. the JDK classes don't need to be tracked.
+	 * <p>
+	 * The default implementation does nothing.
+	 * 
+	 * @param packagenames
+	 *            The slash (<code>/</code>) separated names of the packages. The default package is represented by
+	 *            an empty string.
+	 */
+	public default void initClassPathPackages(String[] packagenames) {
+	}
+
 	/**
 	 * Invokes a test case.
 	 * <p>
@@ -126,6 +144,23 @@ public interface JavaTestingInvoker extends Closeable {
 	public JavaTestInvocationResult invokeTest(JavaTestingFileProvider fileprovider,
 			TestInvocationParameters parameters) throws JavaTestRunnerFailureException;
 
+	/**
+	 * Gets the names in the dependent class name dictionary of this test invoker.
+	 * <p>
+	 * This method is only called if the test invoker reports the dependent classes using
+	 * {@link JavaTestInvocationResult#setDependentClassIndices(int[], int, String[])}, and the caller is missing some
+	 * of the class names. E.g. because a previous test invocation result failed to be transferred.
+	 * <p>
+	 * The default implementation throws {@link UnsupportedOperationException}.
+	 * 
+	 * @param fromindex
+	 *            The dictionary index of the first class name to get.
+	 * @return The binary names of the classes from the given index up to the end of the dictionary.
+	 */
+	public default String[] getDependentClassNames(int fromindex) {
+		throw new UnsupportedOperationException("Dependent class name dictionary is not supported.");
+	}
+
 	/**
 	 * Closes this test invoker.
 	 * <p>
@@ -70,6 +70,14 @@ public class IoFileSystemSakerTestProxy {
 		FileAccessInfo.addRead(pathstr, TestFileRequestor.USED_PATHS);
 	}
 
+	private static void addStat(File file) {
+		addStat(file.toString());
+	}
+
+	private static void addStat(String pathstr) {
+		FileAccessInfo.addStat(pathstr, TestFileRequestor.USED_PATHS);
+	}
+
 	private static void addReadWritten(File file) {
 		addReadWritten(file.toString());
 	}
@@ -157,12 +165,12 @@ public class IoFileSystemSakerTestProxy {
 	}
 
 	public static int getBooleanAttributes(FileSystem fs, File f) {
-		addRead(f);
+		addStat(f);
 		return fs.getBooleanAttributes(f);
 	}
 
 	public static boolean checkAccess(FileSystem fs, File f, int access) {
-		addRead(f);
+		addStat(f);
 		return fs.checkAccess(f, access);
 	}
 
@@ -172,11 +180,13 @@ public class IoFileSystemSakerTestProxy {
 	}
 
 	public static long getLastModifiedTime(FileSystem fs, File f) {
-		addRead(f);
+		//the modification time of the synchronized files is not related to the build inputs
+		addStat(f);
 		return fs.getLastModifiedTime(f);
 	}
 
 	public static long getLength(FileSystem fs, File f) {
+		//the length depends on the contents
 		addRead(f);
 		return fs.getLength(f);
 	}
@@ -145,6 +145,14 @@ public class IoFileSystemSakerTestProxy {
 		FileAccessInfo.addRead(pathstr, TestFileRequestor.USED_PATHS);
 	}
 
+	private static void addStat(File file) {
+		addStat(file.toString());
+	}
+
+	private static void addStat(String pathstr) {
+		FileAccessInfo.addStat(pathstr, TestFileRequestor.USED_PATHS);
+	}
+
 	private static void addReadWritten(File file) {
 		addReadWritten(file.toString());
 	}
@@ -233,12 +241,12 @@ public class IoFileSystemSakerTestProxy {
 	}
 
 	public static int getBooleanAttributes(Object fs, File f) throws Throwable {
-		addRead(f);
+		addStat(f);
 		return (int) getBooleanAttributes.invoke(fs, f);
 	}
 
 	public static boolean checkAccess(Object fs, File f, int access) throws Throwable {
-		addRead(f);
+		addStat(f);
 		return (boolean) checkAccess.invoke(fs, f, access);
 	}
 
@@ -249,11 +257,13 @@ public class IoFileSystemSakerTestProxy {
 	}
 
 	public static long getLastModifiedTime(Object fs, File f) throws Throwable {
-		addRead(f);
+		//the modification time of the synchronized files is not related to the build inputs
+		addStat(f);
 		return (long) getLastModifiedTime.invoke(fs, f);
 	}
 
 	public static long getLength(Object fs, File f) throws Throwable {
+		//the length depends on the contents
 		addRead(f);
 		return (long) getLength.invoke(fs, f);
 	}
@@ -339,6 +349,7 @@ public class IoFileSystemSakerTestProxy {
 	}
 
 	public static boolean hasBooleanAttributes(Object fs, File f, int attributes) throws Throwable {
+		addStat(f);
 		return (boolean) hasBooleanAttributes.invoke(fs, f, attributes);
 	}
 
@@ -0,0 +1,818 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.java.testing.impl.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import saker.build.thirdparty.saker.util.io.SerialUtils;
+
+/**
+ * Hashes of the members of a class file that are used for method level dependency tracking.
+ * <p>
+ * The class consists of a layout hash and a hash for each method that has code. The layout hash contains everything
+ * that is not part of the method bodies, e.g. the fields, constant values, method declarations, supertypes and
+ * annotations. The method hashes contain the bytecode of the method with the constant pool references resolved, so
+ * they don't change if only the constant pool is reordered.
+ * <p>
+ * The debug information (line numbers, local variables, source file) is ignored.
+ */
+public final class ClassMemberHashes implements Externalizable {
+	private static final long serialVersionUID = 1L;
+
+	private static final String STATIC_INITIALIZER_METHOD = "<clinit>()V";
+
+	private byte[] layoutHash;
+	private NavigableMap<String, byte[]> methodHashes;
+
+	/**
+	 * For {@link Externalizable}.
+	 */
+	public ClassMemberHashes() {
+	}
+
+	private ClassMemberHashes(byte[] layoutHash, NavigableMap<String, byte[]> methodHashes) {
+		this.layoutHash = layoutHash;
+		this.methodHashes = methodHashes;
+	}
+
+	/**
+	 * Computes the member hashes of the given class file.
+	 * 
+	 * @param classbytes
+	 *            The class file bytes.
+	 * @return The hashes or <code>null</code> if the class file contains elements that are not supported.
+	 */
+	public static ClassMemberHashes create(byte[] classbytes) {
+		try {
+			return new ClassFileHasher(classbytes).hash();
+		} catch (UnsupportedClassFileException | IOException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Computes a hash of the whole class based on the member hashes.
+	 * <p>
+	 * The hash only changes if the layout or any of the method hashes change. It is insensitive to the changes of the
+	 * debug information.
+	 * 
+	 * @return The hash.
+	 */
+	public byte[] getContentHash() {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("MD5");
+		} catch (NoSuchAlgorithmException e) {
+			throw new AssertionError(e);
+		}
+		digest.update(layoutHash);
+		for (Entry<String, byte[]> entry : methodHashes.entrySet()) {
+			digest.update(entry.getKey().getBytes(StandardCharsets.UTF_8));
+			digest.update(entry.getValue());
+		}
+		return digest.digest();
+	}
+
+	/**
+	 * Gets the methods that have different hashes in the argument.
+	 * <p>
+	 * A change in the static initializer is considered to be a layout change. The static initializer only runs once
+	 * per class loader, so it is not recorded as executed for the tests that run after the first one in the same JVM.
+	 * 
+	 * @param current
+	 *            The current hashes of the class.
+	 * @return The names and descriptors of the changed methods or <code>null</code> if the layout or the static
+	 *             initializer of the class changed.
+	 */
+	public NavigableSet<String> getChangedMethods(ClassMemberHashes current) {
+		if (!Arrays.equals(layoutHash, current.layoutHash)) {
+			return null;
+		}
+		if (!Arrays.equals(methodHashes.get(STATIC_INITIALIZER_METHOD),
+				current.methodHashes.get(STATIC_INITIALIZER_METHOD))) {
+			return null;
+		}
+		NavigableSet<String> result = new TreeSet<>();
+		for (Entry<String, byte[]> entry : methodHashes.entrySet()) {
+			String method = entry.getKey();
+			if (!Arrays.equals(entry.getValue(), current.methodHashes.get(method))) {
+				result.add(method);
+			}
+		}
+		for (String method : current.methodHashes.keySet()) {
+			if (!methodHashes.containsKey(method)) {
+				result.add(method);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeObject(layoutHash);
+		SerialUtils.writeExternalMap(out, methodHashes, ObjectOutput::writeUTF, ObjectOutput::writeObject);
+	}
+
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		layoutHash = (byte[]) in.readObject();
+		methodHashes = SerialUtils.readExternalSortedImmutableNavigableMap(in, ObjectInput::readUTF,
+				SerialUtils::readExternalObject);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + "[" + (methodHashes == null ? "" : methodHashes.keySet()) + "]";
+	}
+
+	private static class UnsupportedClassFileException extends Exception {
+		private static final long serialVersionUID = 1L;
+
+		public UnsupportedClassFileException(String message) {
+			super(message, null, false, false);
+		}
+	}
+
+	private static final class ClassFileHasher {
+		private static final int CONSTANT_UTF8 = 1;
+		private static final int CONSTANT_INTEGER = 3;
+		private static final int CONSTANT_FLOAT = 4;
+		private static final int CONSTANT_LONG = 5;
+		private static final int CONSTANT_DOUBLE = 6;
+		private static final int CONSTANT_CLASS = 7;
+		private static final int CONSTANT_STRING = 8;
+		private static final int CONSTANT_FIELDREF = 9;
+		private static final int CONSTANT_METHODREF = 10;
+		private static final int CONSTANT_INTERFACEMETHODREF = 11;
+		private static final int CONSTANT_NAMEANDTYPE = 12;
+		private static final int CONSTANT_METHODHANDLE = 15;
+		private static final int CONSTANT_METHODTYPE = 16;
+		private static final int CONSTANT_DYNAMIC = 17;
+		private static final int CONSTANT_INVOKEDYNAMIC = 18;
+		private static final int CONSTANT_MODULE = 19;
+		private static final int CONSTANT_PACKAGE = 20;
+
+		/**
+		 * The operand lengths of the instructions that don't reference the constant pool, -1 for the others.
+		 */
+		private static final int[] OPERAND_LENGTHS = new int[256];
+		static {
+			Arrays.fill(OPERAND_LENGTHS, -1);
+			//nop - dconst_1
+			Arrays.fill(OPERAND_LENGTHS, 0x00, 0x10, 0);
+			//bipush, sipush
+			OPERAND_LENGTHS[0x10] = 1;
+			OPERAND_LENGTHS[0x11] = 2;
+			//iload - aload
+			Arrays.fill(OPERAND_LENGTHS, 0x15, 0x1a, 1);
+			//iload_0 - saload
+			Arrays.fill(OPERAND_LENGTHS, 0x1a, 0x36, 0);
+			//istore - astore
+			Arrays.fill(OPERAND_LENGTHS, 0x36, 0x3b, 1);
+			//istore_0 - lxor
+			Arrays.fill(OPERAND_LENGTHS, 0x3b, 0x84, 0);
+			//iinc
+			OPERAND_LENGTHS[0x84] = 2;
+			//i2l - dcmpg
+			Arrays.fill(OPERAND_LENGTHS, 0x85, 0x99, 0);
+			//ifeq - jsr
+			Arrays.fill(OPERAND_LENGTHS, 0x99, 0xa9, 2);
+			//ret
+			OPERAND_LENGTHS[0xa9] = 1;
+			//ireturn - return
+			Arrays.fill(OPERAND_LENGTHS, 0xac, 0xb2, 0);
+			//newarray
+			OPERAND_LENGTHS[0xbc] = 1;
+			//arraylength, athrow
+			OPERAND_LENGTHS[0xbe] = 0;
+			OPERAND_LENGTHS[0xbf] = 0;
+			//monitorenter, monitorexit
+			OPERAND_LENGTHS[0xc2] = 0;
+			OPERAND_LENGTHS[0xc3] = 0;
+			//ifnull, ifnonnull
+			OPERAND_LENGTHS[0xc6] = 2;
+			OPERAND_LENGTHS[0xc7] = 2;
+			//goto_w, jsr_w
+			OPERAND_LENGTHS[0xc8] = 4;
+			OPERAND_LENGTHS[0xc9] = 4;
+		}
+
+		private final byte[] bytes;
+		private final int[] constantOffsets;
+		private final MessageDigest layoutDigest;
+		private final MessageDigest codeDigest;
+		/**
+		 * The digest that is currently being updated.
+		 */
+		private MessageDigest digest;
+		private int bootstrapMethodsOffset = -1;
+		private int position;
+
+		public ClassFileHasher(byte[] bytes) throws UnsupportedClassFileException {
+			this.bytes = bytes;
+			try {
+				this.layoutDigest = MessageDigest.getInstance("MD5");
+				this.codeDigest = MessageDigest.getInstance("MD5");
+			} catch (NoSuchAlgorithmException e) {
+				throw new UnsupportedClassFileException("MD5 not available.");
+			}
+			if (readInt(0) != 0xCAFEBABE) {
+				throw new UnsupportedClassFileException("Invalid magic.");
+			}
+			int count = readUnsignedShort(8);
+			constantOffsets = new int[count];
+			int offset = 10;
+			for (int i = 1; i < count; i++) {
+				constantOffsets[i] = offset;
+				int tag = bytes[offset] & 0xFF;
+				switch (tag) {
+					case CONSTANT_UTF8: {
+						offset += 3 + readUnsignedShort(offset + 1);
+						break;
+					}
+					case CONSTANT_INTEGER:
+					case CONSTANT_FLOAT:
+					case CONSTANT_FIELDREF:
+					case CONSTANT_METHODREF:
+					case CONSTANT_INTERFACEMETHODREF:
+					case CONSTANT_NAMEANDTYPE:
+					case CONSTANT_DYNAMIC:
+					case CONSTANT_INVOKEDYNAMIC: {
+						offset += 5;
+						break;
+					}
+					case CONSTANT_LONG:
+					case CONSTANT_DOUBLE: {
+						offset += 9;
+						//takes two slots
+						++i;
+						break;
+					}
+					case CONSTANT_CLASS:
+					case CONSTANT_STRING:
+					case CONSTANT_METHODTYPE:
+					case CONSTANT_MODULE:
+					case CONSTANT_PACKAGE: {
+						offset += 3;
+						break;
+					}
+					case CONSTANT_METHODHANDLE: {
+						offset += 4;
+						break;
+					}
+					default: {
+						throw new UnsupportedClassFileException("Unknown constant pool tag: " + tag);
+					}
+				}
+			}
+			this.position = offset;
+			this.digest = layoutDigest;
+		}
+
+		public ClassMemberHashes hash() throws UnsupportedClassFileException, IOException {
+			int start = position;
+			//locate the bootstrap methods attribute first, as the method bodies may reference it
+			position += 6;
+			position += 2 + readUnsignedShort(position) * 2;
+			skipMembers();
+			skipMembers();
+			int attrcount = readUnsignedShort(position);
+			position += 2;
+			for (int i = 0; i < attrcount; i++) {
+				if ("BootstrapMethods".equals(readUtf8(readUnsignedShort(position)))) {
+					bootstrapMethodsOffset = position + 6;
+				}
+				position += 6 + readInt(position + 2);
+			}
+
+			position = start;
+			NavigableMap<String, byte[]> methodhashes = new TreeMap<>();
+			//major version
+			updateShort(readUnsignedShort(6));
+			//access flags, this, super
+			updateShort(readUnsignedShort(position));
+			updateConstant(readUnsignedShort(position + 2));
+			updateConstant(readUnsignedShort(position + 4));
+			position += 6;
+			int interfacecount = readUnsignedShort(position);
+			position += 2;
+			updateShort(interfacecount);
+			for (int i = 0; i < interfacecount; i++) {
+				updateConstant(readUnsignedShort(position));
+				position += 2;
+			}
+			int fieldcount = readUnsignedShort(position);
+			position += 2;
+			updateShort(fieldcount);
+			for (int i = 0; i < fieldcount; i++) {
+				updateMemberDeclaration();
+				updateAttributes(false);
+			}
+			int methodcount = readUnsignedShort(position);
+			position += 2;
+			updateShort(methodcount);
+			for (int i = 0; i < methodcount; i++) {
+				String method = readUtf8(readUnsignedShort(position + 2))
+						+ readUtf8(readUnsignedShort(position + 4));
+				updateMemberDeclaration();
+				byte[] codehash = updateAttributes(true);
+				if (codehash != null) {
+					methodhashes.put(method, codehash);
+				}
+			}
+			updateAttributes(false);
+			return new ClassMemberHashes(layoutDigest.digest(), methodhashes);
+		}
+
+		private void skipMembers() {
+			int count = readUnsignedShort(position);
+			position += 2;
+			for (int i = 0; i < count; i++) {
+				position += 6;
+				int attrcount = readUnsignedShort(position);
+				position += 2;
+				for (int j = 0; j < attrcount; j++) {
+					position += 6 + readInt(position + 2);
+				}
+			}
+		}
+
+		private void updateMemberDeclaration() throws UnsupportedClassFileException {
+			updateShort(readUnsignedShort(position));
+			updateConstant(readUnsignedShort(position + 2));
+			updateConstant(readUnsignedShort(position + 4));
+			position += 6;
+		}
+
+		/**
+		 * Updates the layout digest with the attributes at the current position.
+		 * <p>
+		 * If the attributes belong to a method, the hash of the code is returned.
+		 */
+		private byte[] updateAttributes(boolean method) throws UnsupportedClassFileException, IOException {
+			byte[] codehash = null;
+			int attrcount = readUnsignedShort(position);
+			position += 2;
+			for (int i = 0; i < attrcount; i++) {
+				String name = readUtf8(readUnsignedShort(position));
+				int length = readInt(position + 2);
+				int start = position + 6;
+				int end = start + length;
+				switch (name) {
+					case "SourceFile":
+					case "SourceDebugExtension":
+					case "BootstrapMethods": {
+						//debug info, or referenced by the method code
+						break;
+					}
+					case "Code": {
+						if (!method) {
+							throw new UnsupportedClassFileException("Unexpected Code attribute.");
+						}
+						codehash = hashCode(start);
+						break;
+					}
+					default: {
+						updateUtf8(name);
+						position = start;
+						updateAttributeContents(name);
+						if (position != end) {
+							throw new UnsupportedClassFileException("Invalid attribute length: " + name);
+						}
+						break;
+					}
+				}
+				position = end;
+			}
+			return codehash;
+		}
+
+		private void updateAttributeContents(String name) throws UnsupportedClassFileException, IOException {
+			switch (name) {
+				case "Deprecated":
+				case "Synthetic": {
+					break;
+				}
+				case "Signature":
+				case "ConstantValue":
+				case "NestHost": {
+					updateConstantAtPosition();
+					break;
+				}
+				case "Exceptions":
+				case "NestMembers":
+				case "PermittedSubclasses": {
+					int count = readUnsignedShort(position);
+					position += 2;
+					updateShort(count);
+					for (int i = 0; i < count; i++) {
+						updateConstantAtPosition();
+					}
+					break;
+				}
+				case "EnclosingMethod": {
+					updateConstantAtPosition();
+					updateConstantAtPosition();
+					break;
+				}
+				case "InnerClasses": {
+					int count = readUnsignedShort(position);
+					position += 2;
+					updateShort(count);
+					for (int i = 0; i < count; i++) {
+						updateConstantAtPosition();
+						updateConstantAtPosition();
+						updateConstantAtPosition();
+						updateShort(readUnsignedShort(position));
+						position += 2;
+					}
+					break;
+				}
+				case "MethodParameters": {
+					int count = bytes[position++] & 0xFF;
+					updateShort(count);
+					for (int i = 0; i < count; i++) {
+						updateConstantAtPosition();
+						updateShort(readUnsignedShort(position));
+						position += 2;
+					}
+					break;
+				}
+				case "RuntimeVisibleAnnotations":
+				case "RuntimeInvisibleAnnotations": {
+					updateAnnotations();
+					break;
+				}
+				case "RuntimeVisibleParameterAnnotations":
+				case "RuntimeInvisibleParameterAnnotations": {
+					int count = bytes[position++] & 0xFF;
+					updateShort(count);
+					for (int i = 0; i < count; i++) {
+						updateAnnotations();
+					}
+					break;
+				}
+				case "AnnotationDefault": {
+					updateElementValue();
+					break;
+				}
+				case "Record": {
+					int count = readUnsignedShort(position);
+					position += 2;
+					updateShort(count);
+					for (int i = 0; i < count; i++) {
+						updateConstantAtPosition();
+						updateConstantAtPosition();
+						updateAttributes(false);
+					}
+					break;
+				}
+				default: {
+					//the attribute may contain constant pool references that we can't resolve
+					throw new UnsupportedClassFileException("Unsupported attribute: " + name);
+				}
+			}
+		}
+
+		private void updateAnnotations() throws UnsupportedClassFileException {
+			int count = readUnsignedShort(position);
+			position += 2;
+			updateShort(count);
+			for (int i = 0; i < count; i++) {
+				updateAnnotation();
+			}
+		}
+
+		private void updateAnnotation() throws UnsupportedClassFileException {
+			updateConstantAtPosition();
+			int pairs = readUnsignedShort(position);
+			position += 2;
+			updateShort(pairs);
+			for (int i = 0; i < pairs; i++) {
+				updateConstantAtPosition();
+				updateElementValue();
+			}
+		}
+
+		private void updateElementValue() throws UnsupportedClassFileException {
+			int tag = bytes[position++] & 0xFF;
+			digest.update((byte) tag);
+			switch (tag) {
+				case 'B':
+				case 'C':
+				case 'D':
+				case 'F':
+				case 'I':
+				case 'J':
+				case 'S':
+				case 'Z':
+				case 's':
+				case 'c': {
+					updateConstantAtPosition();
+					break;
+				}
+				case 'e': {
+					updateConstantAtPosition();
+					updateConstantAtPosition();
+					break;
+				}
+				case '@': {
+					updateAnnotation();
+					break;
+				}
+				case '[': {
+					int count = readUnsignedShort(position);
+					position += 2;
+					updateShort(count);
+					for (int i = 0; i < count; i++) {
+						updateElementValue();
+					}
+					break;
+				}
+				default: {
+					throw new UnsupportedClassFileException("Unknown element value tag: " + tag);
+				}
+			}
+		}
+
+		/**
+		 * Hashes the Code attribute which contents start at the given offset.
+		 * <p>
+		 * The code digest is used until the hash is computed, then the layout digest is restored.
+		 */
+		private byte[] hashCode(int offset) throws UnsupportedClassFileException, IOException {
+			digest = codeDigest;
+			//max stack, max locals
+			digest.update(bytes, offset, 4);
+			int codelength = readInt(offset + 4);
+			int codestart = offset + 8;
+			int codeend = codestart + codelength;
+			updateInt(codelength);
+			int pc = codestart;
+			while (pc < codeend) {
+				int opcode = bytes[pc] & 0xFF;
+				digest.update((byte) opcode);
+				switch (opcode) {
+					case 0x12: {
+						//ldc
+						updateConstant(bytes[pc + 1] & 0xFF);
+						pc += 2;
+						break;
+					}
+					case 0x13:
+					case 0x14:
+					case 0xb2:
+					case 0xb3:
+					case 0xb4:
+					case 0xb5:
+					case 0xb6:
+					case 0xb7:
+					case 0xb8:
+					case 0xbb:
+					case 0xbd:
+					case 0xc0:
+					case 0xc1: {
+						//ldc_w, ldc2_w, field and method instructions, new, anewarray, checkcast, instanceof
+						updateConstant(readUnsignedShort(pc + 1));
+						pc += 3;
+						break;
+					}
+					case 0xb9:
+					case 0xba: {
+						//invokeinterface, invokedynamic
+						updateConstant(readUnsignedShort(pc + 1));
+						digest.update(bytes, pc + 3, 2);
+						pc += 5;
+						break;
+					}
+					case 0xc5: {
+						//multianewarray
+						updateConstant(readUnsignedShort(pc + 1));
+						digest.update(bytes[pc + 3]);
+						pc += 4;
+						break;
+					}
+					case 0xaa: {
+						//tableswitch
+						int start = pc;
+						pc = codestart + ((pc - codestart + 4) & ~3);
+						int low = readInt(pc + 4);
+						int high = readInt(pc + 8);
+						pc += 12 + (high - low + 1) * 4;
+						digest.update(bytes, start + 1, pc - start - 1);
+						break;
+					}
+					case 0xab: {
+						//lookupswitch
+						int start = pc;
+						pc = codestart + ((pc - codestart + 4) & ~3);
+						int npairs = readInt(pc + 4);
+						pc += 8 + npairs * 8;
+						digest.update(bytes, start + 1, pc - start - 1);
+						break;
+					}
+					case 0xc4: {
+						//wide
+						int len = (bytes[pc + 1] & 0xFF) == 0x84 ? 5 : 3;
+						digest.update(bytes, pc + 1, len);
+						pc += 1 + len;
+						break;
+					}
+					default: {
+						int len = OPERAND_LENGTHS[opcode];
+						if (len < 0) {
+							throw new UnsupportedClassFileException("Unknown opcode: " + opcode);
+						}
+						digest.update(bytes, pc + 1, len);
+						pc += 1 + len;
+						break;
+					}
+				}
+			}
+			if (pc != codeend) {
+				throw new UnsupportedClassFileException("Invalid code length.");
+			}
+			position = codeend;
+			int exceptioncount = readUnsignedShort(position);
+			position += 2;
+			updateShort(exceptioncount);
+			for (int i = 0; i < exceptioncount; i++) {
+				//start, end, handler
+				digest.update(bytes, position, 6);
+				position += 6;
+				updateConstantAtPosition();
+			}
+			int attrcount = readUnsignedShort(position);
+			position += 2;
+			for (int i = 0; i < attrcount; i++) {
+				String name = readUtf8(readUnsignedShort(position));
+				switch (name) {
+					case "LineNumberTable":
+					case "LocalVariableTable":
+					case "LocalVariableTypeTable":
+					case "StackMapTable":
+					case "RuntimeVisibleTypeAnnotations":
+					case "RuntimeInvisibleTypeAnnotations": {
+						//debug info, or derived from the code
+						break;
+					}
+					default: {
+						throw new UnsupportedClassFileException("Unsupported code attribute: " + name);
+					}
+				}
+				position += 6 + readInt(position + 2);
+			}
+			digest = layoutDigest;
+			return codeDigest.digest();
+		}
+
+		private void updateConstantAtPosition() throws UnsupportedClassFileException {
+			updateConstant(readUnsignedShort(position));
+			position += 2;
+		}
+
+		private void updateConstant(int index) throws UnsupportedClassFileException {
+			if (index == 0) {
+				digest.update((byte) 0);
+				return;
+			}
+			if (index >= constantOffsets.length) {
+				throw new UnsupportedClassFileException("Invalid constant pool index: " + index);
+			}
+			int offset = constantOffsets[index];
+			int tag = bytes[offset] & 0xFF;
+			digest.update((byte) tag);
+			switch (tag) {
+				case CONSTANT_UTF8: {
+					digest.update(bytes, offset + 1, 2 + readUnsignedShort(offset + 1));
+					break;
+				}
+				case CONSTANT_INTEGER:
+				case CONSTANT_FLOAT: {
+					digest.update(bytes, offset + 1, 4);
+					break;
+				}
+				case CONSTANT_LONG:
+				case CONSTANT_DOUBLE: {
+					digest.update(bytes, offset + 1, 8);
+					break;
+				}
+				case CONSTANT_CLASS:
+				case CONSTANT_STRING:
+				case CONSTANT_METHODTYPE:
+				case CONSTANT_MODULE:
+				case CONSTANT_PACKAGE: {
+					updateConstant(readUnsignedShort(offset + 1));
+					break;
+				}
+				case CONSTANT_FIELDREF:
+				case CONSTANT_METHODREF:
+				case CONSTANT_INTERFACEMETHODREF:
+				case CONSTANT_NAMEANDTYPE: {
+					updateConstant(readUnsignedShort(offset + 1));
+					updateConstant(readUnsignedShort(offset + 3));
+					break;
+				}
+				case CONSTANT_METHODHANDLE: {
+					digest.update(bytes[offset + 1]);
+					updateConstant(readUnsignedShort(offset + 2));
+					break;
+				}
+				case CONSTANT_DYNAMIC:
+				case CONSTANT_INVOKEDYNAMIC: {
+					updateBootstrapMethod(readUnsignedShort(offset + 1));
+					updateConstant(readUnsignedShort(offset + 3));
+					break;
+				}
+				default: {
+					throw new UnsupportedClassFileException("Unknown constant pool tag: " + tag);
+				}
+			}
+		}
+
+		private void updateBootstrapMethod(int index) throws UnsupportedClassFileException {
+			if (bootstrapMethodsOffset < 0) {
+				throw new UnsupportedClassFileException("BootstrapMethods attribute not found.");
+			}
+			int count = readUnsignedShort(bootstrapMethodsOffset);
+			if (index >= count) {
+				throw new UnsupportedClassFileException("Invalid bootstrap method index: " + index);
+			}
+			int offset = bootstrapMethodsOffset + 2;
+			for (int i = 0; i < index; i++) {
+				offset += 4 + readUnsignedShort(offset + 2) * 2;
+			}
+			updateConstant(readUnsignedShort(offset));
+			int argcount = readUnsignedShort(offset + 2);
+			updateShort(argcount);
+			for (int i = 0; i < argcount; i++) {
+				updateConstant(readUnsignedShort(offset + 4 + i * 2));
+			}
+		}
+
+		private void updateUtf8(String s) {
+			for (int i = 0; i < s.length(); i++) {
+				char c = s.charAt(i);
+				digest.update((byte) (c >>> 8));
+				digest.update((byte) c);
+			}
+		}
+
+		private void updateShort(int v) {
+			digest.update((byte) (v >>> 8));
+			digest.update((byte) v);
+		}
+
+		private void updateInt(int v) {
+			digest.update((byte) (v >>> 24));
+			digest.update((byte) (v >>> 16));
+			digest.update((byte) (v >>> 8));
+			digest.update((byte) v);
+		}
+
+		private String readUtf8(int index) throws IOException {
+			int offset = constantOffsets[index];
+			if ((bytes[offset] & 0xFF) != CONSTANT_UTF8) {
+				throw new IOException("Not an UTF8 constant at: " + index);
+			}
+			int len = readUnsignedShort(offset + 1);
+			return new DataInputStream(new ByteArrayInputStream(bytes, offset + 1, len + 2)).readUTF();
+		}
+
+		private int readUnsignedShort(int offset) {
+			return ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+		}
+
+		private int readInt(int offset) {
+			return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16)
+					| ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+		}
+	}
+}
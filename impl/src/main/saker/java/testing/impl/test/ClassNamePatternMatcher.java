@@ -0,0 +1,272 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.java.testing.impl.test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Matches class names against a set of wildcard patterns.
+ * <p>
+ * The patterns have the same format as the class name wildcards accepted by the testing task. The names are
+ * separated by <code>'.'</code> or <code>'/'</code>, <code>"*"</code> matches any number of characters in a name,
+ * and <code>"**"</code> matches zero or more names.
+ * <p>
+ * The patterns are compiled into a trie of names, so a class name is matched against all of the patterns in a single
+ * pass without splitting it or creating intermediate objects. The patterns are identified by their index in the
+ * collection that the matcher was created with.
+ * <p>
+ * The matcher is immutable and can be used concurrently.
+ */
+final class ClassNamePatternMatcher {
+	private static final int END = -1;
+
+	private final Node root = new Node();
+	private final int patternCount;
+
+	public ClassNamePatternMatcher(Iterable<String> patterns) {
+		int id = 0;
+		for (String pattern : patterns) {
+			addPattern(pattern, id++);
+		}
+		this.patternCount = id;
+	}
+
+	public int getPatternCount() {
+		return patternCount;
+	}
+
+	/**
+	 * Checks if the class name matches any of the patterns.
+	 */
+	public boolean matchesAny(String classname) {
+		return match(root, classname, start(classname), null);
+	}
+
+	/**
+	 * Collects the identifiers of the patterns that the class name matches.
+	 * 
+	 * @param classname
+	 *            The class name.
+	 * @param result
+	 *            The bit set to set the identifiers of the matching patterns in.
+	 * @return <code>true</code> if any of the patterns matched.
+	 */
+	public boolean match(String classname, BitSet result) {
+		return match(root, classname, start(classname), result);
+	}
+
+	private static int start(String classname) {
+		return classname.isEmpty() ? END : 0;
+	}
+
+	private void addPattern(String pattern, int id) {
+		Node node = root;
+		int len = pattern.length();
+		int start = 0;
+		while (start <= len) {
+			int end = start;
+			while (end < len && !isSeparator(pattern.charAt(end))) {
+				++end;
+			}
+			if (end > start) {
+				String name = pattern.substring(start, end);
+				if ("**".equals(name)) {
+					if (node.anyNames == null) {
+						node.anyNames = new Node();
+					}
+					node = node.anyNames;
+				} else if (name.indexOf('*') >= 0) {
+					node = node.getWildcardChild(name);
+				} else {
+					node = node.getLiteralChild(name);
+				}
+			}
+			start = end + 1;
+		}
+		node.addPattern(id);
+	}
+
+	private static boolean match(Node node, String classname, int start, BitSet result) {
+		boolean found = false;
+		Node any = node.anyNames;
+		if (any != null) {
+			//** consumes zero or more names
+			int pos = start;
+			while (true) {
+				if (match(any, classname, pos, result)) {
+					if (result == null) {
+						return true;
+					}
+					found = true;
+				}
+				if (pos == END) {
+					break;
+				}
+				pos = next(classname, nameEnd(classname, pos));
+			}
+		}
+		if (start == END) {
+			if (node.patterns.length > 0) {
+				if (result == null) {
+					return true;
+				}
+				for (int id : node.patterns) {
+					result.set(id);
+				}
+				found = true;
+			}
+			return found;
+		}
+		int end = nameEnd(classname, start);
+		int next = next(classname, end);
+		Node literal = node.findLiteralChild(classname, start, end);
+		if (literal != null && match(literal, classname, next, result)) {
+			if (result == null) {
+				return true;
+			}
+			found = true;
+		}
+		for (int i = 0; i < node.wildcardNames.length; i++) {
+			if (wildcardMatches(node.wildcardNames[i], classname, start, end)
+					&& match(node.wildcardChildren[i], classname, next, result)) {
+				if (result == null) {
+					return true;
+				}
+				found = true;
+			}
+		}
+		return found;
+	}
+
+	private static int nameEnd(String classname, int start) {
+		int len = classname.length();
+		int i = start;
+		while (i < len && !isSeparator(classname.charAt(i))) {
+			++i;
+		}
+		return i;
+	}
+
+	private static int next(String classname, int nameend) {
+		return nameend >= classname.length() ? END : nameend + 1;
+	}
+
+	private static boolean isSeparator(char c) {
+		return c == '.' || c == '/';
+	}
+
+	/**
+	 * Matches the region of the class name against a name pattern that contains <code>'*'</code> wildcards.
+	 */
+	private static boolean wildcardMatches(String pattern, String classname, int start, int end) {
+		int plen = pattern.length();
+		int p = 0;
+		int c = start;
+		//the position after the last star in the pattern, and the corresponding position in the name
+		int starp = -1;
+		int starc = -1;
+		while (c < end) {
+			if (p < plen && pattern.charAt(p) == '*') {
+				starp = ++p;
+				starc = c;
+			} else if (p < plen && pattern.charAt(p) == classname.charAt(c)) {
+				++p;
+				++c;
+			} else if (starp >= 0) {
+				p = starp;
+				c = ++starc;
+			} else {
+				return false;
+			}
+		}
+		while (p < plen && pattern.charAt(p) == '*') {
+			++p;
+		}
+		return p == plen;
+	}
+
+	private static final class Node {
+		private static final String[] EMPTY_STRING_ARRAY = {};
+		private static final Node[] EMPTY_NODE_ARRAY = {};
+
+		protected String[] literalNames = EMPTY_STRING_ARRAY;
+		protected int[] literalHashes = {};
+		protected Node[] literalChildren = EMPTY_NODE_ARRAY;
+		protected String[] wildcardNames = EMPTY_STRING_ARRAY;
+		protected Node[] wildcardChildren = EMPTY_NODE_ARRAY;
+		protected Node anyNames;
+		protected int[] patterns = {};
+
+		public Node getLiteralChild(String name) {
+			int hash = name.hashCode();
+			for (int i = 0; i < literalNames.length; i++) {
+				if (literalHashes[i] == hash && literalNames[i].equals(name)) {
+					return literalChildren[i];
+				}
+			}
+			Node result = new Node();
+			int len = literalNames.length;
+			literalNames = Arrays.copyOf(literalNames, len + 1);
+			literalHashes = Arrays.copyOf(literalHashes, len + 1);
+			literalChildren = Arrays.copyOf(literalChildren, len + 1);
+			literalNames[len] = name;
+			literalHashes[len] = hash;
+			literalChildren[len] = result;
+			return result;
+		}
+
+		public Node getWildcardChild(String name) {
+			for (int i = 0; i < wildcardNames.length; i++) {
+				if (wildcardNames[i].equals(name)) {
+					return wildcardChildren[i];
+				}
+			}
+			Node result = new Node();
+			int len = wildcardNames.length;
+			wildcardNames = Arrays.copyOf(wildcardNames, len + 1);
+			wildcardChildren = Arrays.copyOf(wildcardChildren, len + 1);
+			wildcardNames[len] = name;
+			wildcardChildren[len] = result;
+			return result;
+		}
+
+		public void addPattern(int id) {
+			int len = patterns.length;
+			patterns = Arrays.copyOf(patterns, len + 1);
+			patterns[len] = id;
+		}
+
+		public Node findLiteralChild(String classname, int start, int end) {
+			if (literalNames.length == 0) {
+				return null;
+			}
+			//same as String.hashCode() for the region
+			int hash = 0;
+			for (int i = start; i < end; i++) {
+				hash = 31 * hash + classname.charAt(i);
+			}
+			int len = end - start;
+			for (int i = 0; i < literalNames.length; i++) {
+				String name = literalNames[i];
+				if (literalHashes[i] == hash && name.length() == len && classname.regionMatches(start, name, 0, len)) {
+					return literalChildren[i];
+				}
+			}
+			return null;
+		}
+	}
+}
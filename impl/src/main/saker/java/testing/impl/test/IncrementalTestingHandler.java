@@ -15,22 +15,29 @@
  */
 package saker.java.testing.impl.test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.Externalizable;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -42,7 +49,12 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
@@ -64,7 +76,6 @@ import saker.build.file.content.NullContentDescriptor;
 import saker.build.file.content.SerializableContentDescriptor;
 import saker.build.file.path.ProviderHolderPathKey;
 import saker.build.file.path.SakerPath;
-import saker.build.file.path.WildcardPath;
 import saker.build.file.provider.FileEntry;
 import saker.build.file.provider.LocalFileProvider;
 import saker.build.file.provider.SakerPathFiles;
@@ -99,7 +110,6 @@ import saker.build.thirdparty.saker.util.DateUtils;
 import saker.build.thirdparty.saker.util.ImmutableUtils;
 import saker.build.thirdparty.saker.util.ObjectUtils;
 import saker.build.thirdparty.saker.util.ReflectUtils;
-import saker.build.thirdparty.saker.util.SetTransformingNavigableMap;
 import saker.build.thirdparty.saker.util.StringUtils;
 import saker.build.thirdparty.saker.util.classloader.ClassLoaderDataFinder;
 import saker.build.thirdparty.saker.util.classloader.JarClassLoaderDataFinder;
@@ -111,6 +121,7 @@ import saker.build.thirdparty.saker.util.function.TriConsumer;
 import saker.build.thirdparty.saker.util.io.FileUtils;
 import saker.build.thirdparty.saker.util.io.ResourceCloser;
 import saker.build.thirdparty.saker.util.io.SerialUtils;
+import saker.build.thirdparty.saker.util.io.StreamUtils;
 import saker.build.trace.BuildTrace;
 import saker.build.util.classloader.SakerDirectoryClassLoaderDataFinder;
 import saker.build.util.classloader.WildcardFilteringClassLoader;
@@ -127,15 +138,21 @@ import saker.java.compiler.api.compile.JavaCompilationWorkerTaskIdentifier;
 import saker.java.compiler.api.compile.JavaCompilerWorkerTaskOutput;
 import saker.java.compiler.api.compile.SakerJavaCompilerUtils;
 import saker.java.testing.api.test.exc.JavaTestRunnerFailureException;
+import saker.java.testing.api.test.invoker.BasicInstrumentationJavaTestInvoker;
 import saker.java.testing.api.test.invoker.JavaTestInvocationResult;
 import saker.java.testing.api.test.invoker.JavaTestingFileProvider;
 import saker.java.testing.api.test.invoker.JavaTestingInvoker;
 import saker.java.testing.api.test.invoker.ReflectionJavaTestInvoker;
 import saker.java.testing.api.test.invoker.TestInvocationParameters;
 import saker.java.testing.api.test.invoker.TestInvokerParameters;
+import saker.java.testing.impl.test.IncrementalTestingInfo.ClassContentHash;
+import saker.java.testing.impl.test.IncrementalTestingInfo.ClassLoaderResourceContents;
+import saker.java.testing.impl.test.IncrementalTestingInfo.ClassPathLayout;
 import saker.java.testing.impl.test.IncrementalTestingInfo.IncrementalTestCaseResult;
+import saker.java.testing.impl.test.IncrementalTestingInfo.InputDependencyGroups;
 import saker.java.testing.impl.test.IncrementalTestingInfo.ReferencedFilePath;
 import saker.java.testing.impl.test.IncrementalTestingInfo.TestCaseState;
+import saker.java.testing.impl.test.IncrementalTestingInfo.TestDependencyIndex;
 import saker.java.testing.impl.test.launching.TestInvokerDaemon;
 import saker.nest.bundle.BundleIdentifier;
 import saker.nest.bundle.NestBundleClassLoader;
@@ -174,20 +191,51 @@ public class IncrementalTestingHandler {
 	private JavaClassPath testClassPaths;
 	private JavaClassPath dependencyClassPaths;
 	private TestInvokerParameters testInvokerParameters;
-	private Map<Predicate<String>, Map<String, String>> testClassParameters = Collections.emptyNavigableMap();
+	private final boolean optimisticFileSynchronization;
+	/**
+	 * The test class parameters in the order of the wildcards in {@link #testClassParametersMatcher}.
+	 * <p>
+	 * The wildcards are sorted lexicographically by the task factory. If multiple wildcards match a test class, their
+	 * parameters are applied in this order, so the later wildcards override the values of the same keys.
+	 */
+	private List<Map<String, String>> testClassParameters = Collections.emptyList();
+	private ClassNamePatternMatcher testClassParametersMatcher;
 	private NavigableSet<String> testClasses;
 	private NavigableSet<String> nonDeterministicTests;
 
-	private Map<WildcardPath, Collection<WildcardPath>> additionalTestClassDependencies = Collections
+	private Map<String, ? extends Collection<String>> additionalTestClassDependencies = Collections
 			.emptyNavigableMap();
+	/**
+	 * The evaluated {@link #additionalTestClassDependencies} for the classes on the class path. Set during testing.
+	 */
+	private AdditionalTestDependencyClasses additionalTestDependencyClasses;
 
 	private NavigableMap<ReferencedFilePath, IncrementalTestCaseResult> prevTestCasesByPath;
 	private IncrementalTestingInfo prevInfo;
 
 	private boolean failFast = false;
 	private boolean verbose = TestFlag.ENABLED;
+	private boolean ignoreClassDebugInfoChanges = false;
 
 	private Set<String> retainClassNames;
+	private NavigableMap<String, ReferencedFilePath> classFilePathsByName = Collections.emptyNavigableMap();
+	/**
+	 * The internal names of the packages that contain tracked class files. Only the classes in these packages are
+	 * tracked as dependencies by the test invokers.
+	 */
+	private String[] classPathPackageNames;
+	/**
+	 * The dependent class name dictionaries of the test invokers.
+	 * <p>
+	 * The dictionaries are synchronized incrementally with the test results, so the class names are only transferred
+	 * once for each test invoker.
+	 */
+	private final Map<JavaTestingInvoker, InvokerClassNameDictionary> invokerClassNameDictionaries = Collections
+			.synchronizedMap(new IdentityHashMap<>());
+	/**
+	 * Interned dependent class names so the results of the test cases share the same instances.
+	 */
+	private final ConcurrentHashMap<String, String> internedClassNames = new ConcurrentHashMap<>();
 
 	//XXX maybe reify this ignoring with wildcards?
 	private final NavigableSet<SakerPath> ignoreFileChanges;
@@ -218,6 +266,8 @@ public class IncrementalTestingHandler {
 		this.userClassPaths = userClassPaths;
 		this.testClassPaths = testclasspathfiles;
 		this.testInvokerParameters = testInvokerParameters;
+		this.optimisticFileSynchronization = testInvokerParameters != null && Boolean.parseBoolean(
+				testInvokerParameters.get(BasicInstrumentationJavaTestInvoker.PARAMETER_OPTIMISTIC_FILE_SYNCHRONIZATION));
 		this.testClasses = testClasses == null ? null : new TreeSet<>(testClasses);
 		this.prevInfo = previnfo;
 
@@ -263,19 +313,7 @@ public class IncrementalTestingHandler {
 
 	public void setAdditionalTestClassDependencies(
 			Map<String, ? extends Collection<String>> additionalTestClassDependencies) {
-		this.additionalTestClassDependencies = new TreeMap<>();
-		for (Entry<String, ? extends Collection<String>> entry : additionalTestClassDependencies.entrySet()) {
-			WildcardPath wc = WildcardPath.valueOf(entry.getKey().replace('.', '/'));
-			this.additionalTestClassDependencies.compute(wc, (k, v) -> {
-				if (v == null) {
-					v = new TreeSet<>();
-				}
-				for (String p : entry.getValue()) {
-					v.add(WildcardPath.valueOf(p.replace('.', '/')));
-				}
-				return v;
-			});
-		}
+		this.additionalTestClassDependencies = new TreeMap<>(additionalTestClassDependencies);
 	}
 
 	public void setDependencyClassPaths(JavaClassPath dependencyClassPaths) {
@@ -286,38 +324,118 @@ public class IncrementalTestingHandler {
 		this.verbose = verbose;
 	}
 
+	public void setIgnoreClassDebugInfoChanges(boolean ignoreClassDebugInfoChanges) {
+		this.ignoreClassDebugInfoChanges = ignoreClassDebugInfoChanges;
+	}
+
 	public void setTestClassParameters(Map<String, Map<String, String>> testClassParameters) {
-		this.testClassParameters = new IdentityHashMap<>(testClassParameters.size());
-		for (Entry<String, Map<String, String>> entry : testClassParameters.entrySet()) {
-			Predicate<String> pred = createClassNameTestPredicate(entry.getKey());
-			this.testClassParameters.put(pred, entry.getValue());
-		}
+		this.testClassParameters = new ArrayList<>(testClassParameters.values());
+		this.testClassParametersMatcher = new ClassNamePatternMatcher(testClassParameters.keySet());
 	}
 
 	private Collection<String> getAdditionalTestDependencyClasses(String classname) {
-		Collection<String> result = new TreeSet<>();
-		String pathname = classname.replace('.', '/');
-		for (Entry<WildcardPath, Collection<WildcardPath>> entry : additionalTestClassDependencies.entrySet()) {
-			if (entry.getKey().includes(pathname)) {
-				for (String depcn : retainClassNames) {
-					String deppn = depcn.replace('.', '/');
-					for (WildcardPath depwc : entry.getValue()) {
-						if (depwc.includes(deppn)) {
-							result.add(depcn);
-							break;
-						}
+		return additionalTestDependencyClasses.get(classname);
+	}
+
+	/**
+	 * The additional dependency classes of the test classes, evaluated for the classes on the class path.
+	 * <p>
+	 * The dependency wildcards are matched against the class names only once for each build. The dependency classes of
+	 * a test are cached for each distinct combination of matching test class wildcards, so they're only looked up by
+	 * the executed tests.
+	 */
+	private static final class AdditionalTestDependencyClasses {
+		private final ClassNamePatternMatcher testClassMatcher;
+		/**
+		 * The dependency classes for each test class wildcard.
+		 */
+		private final List<NavigableSet<String>> dependencyClasses = new ArrayList<>();
+		private final ConcurrentHashMap<BitSet, Collection<String>> results = new ConcurrentHashMap<>();
+
+		public AdditionalTestDependencyClasses(Map<String, ? extends Collection<String>> dependencies,
+				Iterable<String> classnames) {
+			List<String> dependencywildcards = new ArrayList<>();
+			//the index of the test class wildcard for each dependency wildcard
+			int[] wildcardowners = new int[8];
+			for (Collection<String> depwildcards : dependencies.values()) {
+				int owner = dependencyClasses.size();
+				dependencyClasses.add(new TreeSet<>());
+				for (String wc : depwildcards) {
+					if (dependencywildcards.size() == wildcardowners.length) {
+						wildcardowners = Arrays.copyOf(wildcardowners, wildcardowners.length * 2);
 					}
+					wildcardowners[dependencywildcards.size()] = owner;
+					dependencywildcards.add(wc);
+				}
+			}
+			this.testClassMatcher = new ClassNamePatternMatcher(dependencies.keySet());
+			if (dependencywildcards.isEmpty()) {
+				return;
+			}
+			ClassNamePatternMatcher dependencymatcher = new ClassNamePatternMatcher(dependencywildcards);
+			BitSet matches = new BitSet();
+			for (String cname : classnames) {
+				if (!dependencymatcher.match(cname, matches)) {
+					continue;
 				}
+				for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+					dependencyClasses.get(wildcardowners[i]).add(cname);
+				}
+				matches.clear();
 			}
 		}
-		return result;
+
+		public Collection<String> get(String classname) {
+			BitSet matches = new BitSet();
+			if (!testClassMatcher.match(classname, matches)) {
+				return Collections.emptySet();
+			}
+			Collection<String> result = results.get(matches);
+			if (result != null) {
+				return result;
+			}
+			if (matches.cardinality() == 1) {
+				result = Collections.unmodifiableNavigableSet(dependencyClasses.get(matches.nextSetBit(0)));
+			} else {
+				NavigableSet<String> union = new TreeSet<>();
+				for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+					union.addAll(dependencyClasses.get(i));
+				}
+				result = Collections.unmodifiableNavigableSet(union);
+			}
+			Collection<String> prev = results.putIfAbsent(matches, result);
+			if (prev != null) {
+				return prev;
+			}
+			return result;
+		}
 	}
 
 	private interface ResourceDescriptorClassLoaderDataFinderSupplier {
 		public ClassLoaderDataFinder createDataFinder(TaskContext taskcontext, RMIVariables rmivariables)
 				throws IOException;
 
-		public Entry<SakerPath, ContentDescriptor> getResourceFileContentDescriptor(String resourcename);
+		/**
+		 * Gets the file and content descriptor that the given resource is loaded from using this class path entry.
+		 * 
+		 * @param resourcename
+		 *            The name of the resource.
+		 * @param resourcepath
+		 *            The resource name parsed as a forward relative path, or <code>null</code> if it is not a valid
+		 *            one.
+		 * @return The file entry or <code>null</code> if the resource is not tracked by this class path entry.
+		 */
+		public Entry<SakerPath, ContentDescriptor> getResourceFileContentDescriptor(String resourcename,
+				SakerPath resourcepath);
+
+		/**
+		 * Gets the content descriptor of the class path entry if the resources in it are not tracked individually.
+		 * 
+		 * @return The content descriptor or <code>null</code> if the resources are tracked individually.
+		 */
+		public default ContentDescriptor getClassPathContentDescriptor() {
+			return null;
+		}
 	}
 
 	private static class SakerDirectoryResourceDescriptorClassLoaderDataFinderSupplier
@@ -341,21 +459,17 @@ public class IncrementalTestingHandler {
 		}
 
 		@Override
-		public Entry<SakerPath, ContentDescriptor> getResourceFileContentDescriptor(String resourcename) {
-			try {
-				SakerPath respath = SakerPath.valueOf(resourcename);
-				if (!respath.isForwardRelative()) {
-					return null;
-				}
-				SakerPath foundfilepath = directoryPath.resolve(respath);
-				SakerFile foundfile = taskUtils.resolveAtRelativePath(directory, respath);
-				if (foundfile != null) {
-					return ImmutableUtils.makeImmutableMapEntry(foundfilepath, foundfile.getContentDescriptor());
-				}
-				return ImmutableUtils.makeImmutableMapEntry(foundfilepath, NonExistentContentDescriptor.INSTANCE);
-			} catch (InvalidPathFormatException e) {
+		public Entry<SakerPath, ContentDescriptor> getResourceFileContentDescriptor(String resourcename,
+				SakerPath resourcepath) {
+			if (resourcepath == null) {
 				return null;
 			}
+			SakerPath foundfilepath = directoryPath.resolve(resourcepath);
+			SakerFile foundfile = taskUtils.resolveAtRelativePath(directory, resourcepath);
+			if (foundfile != null) {
+				return ImmutableUtils.makeImmutableMapEntry(foundfilepath, foundfile.getContentDescriptor());
+			}
+			return ImmutableUtils.makeImmutableMapEntry(foundfilepath, NonExistentContentDescriptor.INSTANCE);
 		}
 
 		@Override
@@ -392,10 +506,16 @@ public class IncrementalTestingHandler {
 		}
 
 		@Override
-		public Entry<SakerPath, ContentDescriptor> getResourceFileContentDescriptor(String resourcename) {
+		public Entry<SakerPath, ContentDescriptor> getResourceFileContentDescriptor(String resourcename,
+				SakerPath resourcepath) {
 			return resourceFileEntry;
 		}
 
+		@Override
+		public ContentDescriptor getClassPathContentDescriptor() {
+			return resourceFileEntry.getValue();
+		}
+
 		@Override
 		public String toString() {
 			return "JarResourceDescriptorClassLoaderDataFinderSupplier [resourceFileEntry=" + resourceFileEntry
@@ -425,7 +545,8 @@ public class IncrementalTestingHandler {
 		}
 
 		@Override
-		public Entry<SakerPath, ContentDescriptor> getResourceFileContentDescriptor(String resourcename) {
+		public Entry<SakerPath, ContentDescriptor> getResourceFileContentDescriptor(String resourcename,
+				SakerPath resourcepath) {
 			//XXX do we need to implement this?
 			return null;
 		}
@@ -458,7 +579,8 @@ public class IncrementalTestingHandler {
 		}
 
 		@Override
-		public Entry<SakerPath, ContentDescriptor> getResourceFileContentDescriptor(String resourcename) {
+		public Entry<SakerPath, ContentDescriptor> getResourceFileContentDescriptor(String resourcename,
+				SakerPath resourcepath) {
 			//XXX do we need to implement this?
 			return null;
 		}
@@ -469,6 +591,123 @@ public class IncrementalTestingHandler {
 		}
 	}
 
+	/**
+	 * Looks up the class loader resources in the class path entries.
+	 * <p>
+	 * The lookups are cached, so a resource is only looked up once in all of the class path entries during the
+	 * testing, regardless of how many test cases reference it. The same index is used when selecting the tests to
+	 * rerun and when the test processes request the resources, so the lookups are shared between them.
+	 * <p>
+	 * The resource name is parsed only once per lookup, not for every class path entry.
+	 */
+	private static final class ClassLoaderResourceIndex {
+		private final ResourceDescriptorClassLoaderDataFinderSupplier[] finders;
+		private final ClassPathLayout layout;
+		private final boolean[] trackedAsWhole;
+		private final ConcurrentHashMap<String, ClassLoaderResourceLookup> lookups = new ConcurrentHashMap<>();
+
+		public ClassLoaderResourceIndex(
+				NavigableMap<ReferencedFilePath, ResourceDescriptorClassLoaderDataFinderSupplier> classfinders) {
+			int size = classfinders.size();
+			this.finders = new ResourceDescriptorClassLoaderDataFinderSupplier[size];
+			this.trackedAsWhole = new boolean[size];
+			ReferencedFilePath[] entries = new ReferencedFilePath[size];
+			ContentDescriptor[] contents = new ContentDescriptor[size];
+			int i = 0;
+			for (Entry<ReferencedFilePath, ResourceDescriptorClassLoaderDataFinderSupplier> entry : classfinders
+					.entrySet()) {
+				ResourceDescriptorClassLoaderDataFinderSupplier finder = entry.getValue();
+				ContentDescriptor cd = finder.getClassPathContentDescriptor();
+				finders[i] = finder;
+				trackedAsWhole[i] = cd != null;
+				entries[i] = entry.getKey();
+				contents[i] = cd;
+				++i;
+			}
+			this.layout = new ClassPathLayout(entries, contents);
+		}
+
+		public ClassPathLayout getLayout() {
+			return layout;
+		}
+
+		public ClassLoaderResourceLookup get(String resourcename) {
+			ClassLoaderResourceLookup result = lookups.get(resourcename);
+			if (result != null) {
+				return result;
+			}
+			//don't use computeIfAbsent, as that would block other lookups that hash to the same bin
+			//    concurrent lookups of the same resource produce the same result, so the duplicate work is harmless
+			result = lookup(resourcename);
+			ClassLoaderResourceLookup prev = lookups.putIfAbsent(resourcename, result);
+			if (prev != null) {
+				return prev;
+			}
+			return result;
+		}
+
+		private ClassLoaderResourceLookup lookup(String resourcename) {
+			SakerPath resourcepath = parseResourcePath(resourcename);
+			List<Entry<SakerPath, ContentDescriptor>> files = new ArrayList<>();
+			int[] indices = new int[finders.length];
+			ContentDescriptor[] contents = new ContentDescriptor[finders.length];
+			int count = 0;
+			for (int i = 0; i < finders.length; i++) {
+				Entry<SakerPath, ContentDescriptor> resentry = finders[i].getResourceFileContentDescriptor(resourcename,
+						resourcepath);
+				if (resentry == null) {
+					continue;
+				}
+				files.add(resentry);
+				ContentDescriptor cd = resentry.getValue();
+				if (trackedAsWhole[i] || cd instanceof NonExistentContentDescriptor) {
+					//part of the layout, or not present
+					continue;
+				}
+				indices[count] = i;
+				contents[count] = cd;
+				++count;
+			}
+			return new ClassLoaderResourceLookup(
+					new ClassLoaderResourceContents(Arrays.copyOf(indices, count), Arrays.copyOf(contents, count)),
+					files);
+		}
+
+		private static SakerPath parseResourcePath(String resourcename) {
+			try {
+				SakerPath respath = SakerPath.valueOf(resourcename);
+				if (!respath.isForwardRelative()) {
+					return null;
+				}
+				return respath;
+			} catch (InvalidPathFormatException e) {
+				return null;
+			}
+		}
+	}
+
+	private static final class ClassLoaderResourceLookup {
+		private final ClassLoaderResourceContents contents;
+		/**
+		 * The files that the resource was looked up at, with their content descriptors.
+		 */
+		private final List<Entry<SakerPath, ContentDescriptor>> files;
+
+		public ClassLoaderResourceLookup(ClassLoaderResourceContents contents,
+				List<Entry<SakerPath, ContentDescriptor>> files) {
+			this.contents = contents;
+			this.files = files;
+		}
+
+		public ClassLoaderResourceContents getContents() {
+			return contents;
+		}
+
+		public List<Entry<SakerPath, ContentDescriptor>> getFiles() {
+			return files;
+		}
+	}
+
 //	private interface ResourceDescriptorClassLoaderDataFinder extends ClassLoaderDataFinder {
 //		public Entry<SakerPath, ContentDescriptor> getResourceFileContentDescriptor(String resourcename);
 //	}
@@ -938,6 +1177,43 @@ public class IncrementalTestingHandler {
 		presentclassnamesbypath.putAll(testclassnamesbypath);
 
 		retainClassNames = ImmutableUtils.makeImmutableNavigableSet(presentclassnamesbypath.values());
+		NavigableMap<String, ReferencedFilePath> classfilepathsbyname = new TreeMap<>();
+		for (Entry<ReferencedFilePath, String> entry : presentclassnamesbypath.entrySet()) {
+			classfilepathsbyname.put(entry.getValue(), entry.getKey());
+		}
+		classFilePathsByName = classfilepathsbyname;
+		classPathPackageNames = getPackageNames(retainClassNames);
+		additionalTestDependencyClasses = new AdditionalTestDependencyClasses(additionalTestClassDependencies,
+				retainClassNames);
+
+		if (ignoreClassDebugInfoChanges) {
+			removeDebugInfoChangedClassNames(resultinfo, changedclassnames,
+					Arrays.asList(usercpfilesmap, depcpfilesmap, testcpfilesmap));
+		}
+
+		//the changed methods of the changed classes that have method level dependencies
+		//    null values if the layout of the class changed
+		NavigableMap<String, NavigableSet<String>> changedclassmethods = new TreeMap<>();
+		if (prevInfo != null) {
+			NavigableMap<String, ClassMemberHashes> resultmemberhashes = resultinfo.getClassMemberHashes();
+			for (Entry<String, ClassMemberHashes> entry : prevInfo.getClassMemberHashes().entrySet()) {
+				String hashedcname = entry.getKey();
+				if (!retainClassNames.contains(hashedcname)) {
+					continue;
+				}
+				if (!changedclassnames.contains(hashedcname)) {
+					resultmemberhashes.put(hashedcname, entry.getValue());
+					continue;
+				}
+				ClassMemberHashes currenthashes = createClassMemberHashes(hashedcname);
+				if (currenthashes == null) {
+					//the dependent tests are rerun based on the class dependency
+					continue;
+				}
+				resultmemberhashes.put(hashedcname, currenthashes);
+				changedclassmethods.put(hashedcname, entry.getValue().getChangedMethods(currenthashes));
+			}
+		}
 
 		Predicate<String> classnameincludepredicate = testClasses == null ? Functionals.alwaysPredicate()
 				: createClassNameTestPredicate(testClasses);
@@ -970,48 +1246,48 @@ public class IncrementalTestingHandler {
 				testclassfinders);
 		allclassfinders.putAll(userclassfinders);
 		allclassfinders.putAll(testrunnerclasspaths);
-
-		test_invocation_checker_loop:
+		ClassLoaderResourceIndex classloaderresources = new ClassLoaderResourceIndex(allclassfinders);
+		ClassPathLayout classpathlayout = classloaderresources.getLayout();
+		classpathlayout.assignIdentifier(prevInfo == null ? null : prevInfo.getClassPathLayout());
+		resultinfo.setClassPathLayout(classpathlayout);
+
+		TestDependencyIndex prevdependencyindex = prevInfo == null ? null : prevInfo.getTestDependencyIndex();
+		//the identifiers of the tests that depend on any of the changed classes
+		BitSet changeddependenttests = prevdependencyindex == null ? null
+				: prevdependencyindex.getDependentTests(changedclassnames);
+
+		//determine the invocation reasons based on the class changes first
+		//    the remaining tests are checked for the input file and resource changes afterwards
+		List<TestSelectionCandidate> candidates = new ArrayList<>();
+		List<TestSelectionCandidate> inputcheckcandidates = new ArrayList<>();
 		for (Entry<ReferencedFilePath, String> entry : testclassnamesbypath.entrySet()) {
 			ReferencedFilePath tcpath = entry.getKey();
 			String cname = entry.getValue();
 			if (!classnameincludepredicate.test(cname)) {
-				continue test_invocation_checker_loop;
+				continue;
 			}
 
 			IncrementalTestCaseResult prevtc = prevTestCasesByPath.get(tcpath);
+			TestSelectionCandidate candidate = new TestSelectionCandidate(tcpath, cname, prevtc);
+			candidates.add(candidate);
 			if (prevtc == null) {
-				if (verbose) {
-					System.out.println("Invoking: " + cname + " because it's new.");
-				}
-				teststorun.put(new IncrementalTestCaseResult(cname, tcpath, 0), null);
-				continue test_invocation_checker_loop;
+				candidate.invokeReason = "it's new.";
+				continue;
 			}
 			if (changedclassnames.contains(cname)) {
-				if (verbose) {
-					System.out.println("Invoking: " + cname + " because class changed.");
-				}
-				teststorun.put(new IncrementalTestCaseResult(cname, tcpath, prevtc.getExecutionMilliSeconds()), prevtc);
-				continue test_invocation_checker_loop;
+				candidate.invokeReason = "class changed.";
+				continue;
 			}
 			TestCaseState prevstate = prevtc.getState();
 			switch (prevstate) {
 				case NEW: {
-					if (verbose) {
-						System.out.println("Invoking: " + cname + " because it's new.");
-					}
-					teststorun.put(new IncrementalTestCaseResult(cname, tcpath, prevtc.getExecutionMilliSeconds()),
-							prevtc);
-					continue test_invocation_checker_loop;
+					candidate.invokeReason = "it's new.";
+					continue;
 				}
 				case FAILED: {
 					if (nondeterministicpredicate.test(cname)) {
-						if (verbose) {
-							System.out.println("Invoking: " + cname + " because it's nondeterministic.");
-						}
-						teststorun.put(new IncrementalTestCaseResult(cname, tcpath, prevtc.getExecutionMilliSeconds()),
-								prevtc);
-						continue test_invocation_checker_loop;
+						candidate.invokeReason = "it's nondeterministic.";
+						continue;
 					}
 					break;
 				}
@@ -1023,90 +1299,50 @@ public class IncrementalTestingHandler {
 				}
 			}
 
-			NavigableSet<String> dependentclassnames = prevtc.getDependentClassNames();
-			String dependentclasschanged = getAnyDependentClassChanged(dependentclassnames, changedclassnames, cname);
-			if (dependentclasschanged != null) {
-				//class file changed or
-				//dependent classes were changed
-				if (verbose) {
-					System.out.println(
-							"Invoking: " + cname + " because dependent class changed. (" + dependentclasschanged + ")");
+			if (isAnyDependentClassChangeCandidate(prevdependencyindex, changeddependenttests, tcpath)) {
+				String dependentclasschanged = getAnyDependentClassChanged(prevtc.getDependentClassNames(),
+						changedclassnames, cname, prevtc.getDependentMethods(), changedclassmethods);
+				if (dependentclasschanged != null) {
+					//class file changed or
+					//dependent classes were changed
+					candidate.invokeReason = "dependent class changed. (" + dependentclasschanged + ")";
+					continue;
 				}
-				teststorun.put(new IncrementalTestCaseResult(cname, tcpath, prevtc.getExecutionMilliSeconds()), prevtc);
-				continue test_invocation_checker_loop;
 			}
-			FileContentModifyTag modifytag = new FileContentModifyTag(cname);
+			inputcheckcandidates.add(candidate);
+		}
+		NavigableMap<ReferencedFilePath, String> filechangedtests = new TreeMap<>();
+		NavigableMap<ReferencedFilePath, String> directorychangedtests = new TreeMap<>();
+		if (!inputcheckcandidates.isEmpty()) {
+			collectInputFileChangedTests(prevInfo.getInputDependencyGroups(), inputfilechangedeltas,
+					inputfileadditiondeltas, filechangedtests, directorychangedtests);
+		}
+		for (TestSelectionCandidate candidate : inputcheckcandidates) {
+			candidate.invokeReason = getInputChangeInvocationReason(candidate.prevResult, filechangedtests,
+					directorychangedtests, classloaderresources, classpathlayout);
+		}
 
-			FileChangeDelta inputmodifydelta = inputfilechangedeltas.getAnyFileDeltaWithTag(modifytag);
-			if (inputmodifydelta != null) {
+		for (TestSelectionCandidate candidate : candidates) {
+			String cname = candidate.className;
+			IncrementalTestCaseResult prevtc = candidate.prevResult;
+			if (candidate.invokeReason != null) {
 				if (verbose) {
-					System.out
-							.println("Invoking: " + cname + " because file changed: " + inputmodifydelta.getFilePath());
-				}
-				teststorun.put(new IncrementalTestCaseResult(cname, tcpath, prevtc.getExecutionMilliSeconds()), prevtc);
-				continue test_invocation_checker_loop;
-			}
-			NavigableMap<String, ? extends NavigableMap<ReferencedFilePath, ? extends ContentDescriptor>> referencedclresources = prevtc
-					.getReferencedClassLoaderResources();
-			if (!ObjectUtils.isNullOrEmpty(referencedclresources)) {
-				for (Entry<String, ? extends NavigableMap<ReferencedFilePath, ? extends ContentDescriptor>> resentry : referencedclresources
-						.entrySet()) {
-					String resname = resentry.getKey();
-					NavigableMap<ReferencedFilePath, ? extends ContentDescriptor> resclexpectedcontents = resentry
-							.getValue();
-					boolean iterateres = ObjectUtils.iterateSortedMapEntriesBreak(resclexpectedcontents,
-							allclassfinders, (k, contents, clfinder) -> {
-								if (contents == null) {
-									//the class loader data finder was added
-									return false;
-								}
-								if (clfinder == null) {
-									//the class loader data finder was removed
-									return false;
-								}
-								Entry<SakerPath, ContentDescriptor> currentrescontentsentry = clfinder
-										.getResourceFileContentDescriptor(resname);
-								ContentDescriptor currentcontents;
-								if (currentrescontentsentry == null) {
-									currentcontents = NonExistentContentDescriptor.INSTANCE;
-								} else {
-									currentcontents = currentrescontentsentry.getValue();
-								}
-								if (currentcontents.isChanged(contents)) {
-									return false;
-								}
-								return true;
-							});
-					if (!iterateres) {
-						teststorun.put(new IncrementalTestCaseResult(cname, tcpath, prevtc.getExecutionMilliSeconds()),
-								prevtc);
-						if (verbose) {
-							System.out.println(
-									"Invoking: " + cname + " because class loader resource changed: " + resname);
-						}
-						continue test_invocation_checker_loop;
-					}
+					System.out.println("Invoking: " + cname + " because " + candidate.invokeReason);
 				}
-			}
-
-			DirectoryContentFileAdditionTag additiontag = new DirectoryContentFileAdditionTag(cname);
-			FileChangeDelta dirchangedelta = inputfileadditiondeltas.getAnyFileDeltaWithTag(additiontag);
-			if (dirchangedelta != null
-					|| (dirchangedelta = inputfilechangedeltas.getAnyFileDeltaWithTag(additiontag)) != null) {
-				if (verbose) {
-					System.out.println("Invoking: " + cname + " because directory entry changed in: "
-							+ dirchangedelta.getFilePath().getParent());
+				if (prevtc == null) {
+					teststorun.put(new IncrementalTestCaseResult(cname, candidate.classFilePath, 0), null);
+				} else {
+					teststorun.put(new IncrementalTestCaseResult(cname, candidate.classFilePath,
+							prevtc.getExecutionMilliSeconds()), prevtc);
 				}
-				teststorun.put(new IncrementalTestCaseResult(cname, tcpath, prevtc.getExecutionMilliSeconds()), prevtc);
-				continue test_invocation_checker_loop;
+				continue;
 			}
 			//we haven't added the class to be run, reuse the previous test result
-			if (prevstate != TestCaseState.SUCCESSFUL) {
+			if (prevtc.getState() != TestCaseState.SUCCESSFUL) {
 				//if it wasnt successful, print the details
 				//we dont have to rerun it as no related class files changed
 				printTestResult(prevtc);
 			}
-			reportInputDependenciesForTestResult(prevtc);
 			resultinfo.addTestCase(prevtc);
 		}
 
@@ -1120,6 +1356,7 @@ public class IncrementalTestingHandler {
 
 			int maxjvmcount = Math.max(1, maxJVMCount);
 
+			fileSynchronizationExecutor = createFileSynchronizationExecutor();
 			try {
 				try (ResourceCloser rescloser = new ResourceCloser()) {
 					ResourceDescriptorClassLoaderDataFinderSupplier[] usercp = userclassfinders.values()
@@ -1138,7 +1375,7 @@ public class IncrementalTestingHandler {
 
 					TestRunnerInnerTaskFactory innertaskfactory = new TestRunnerInnerTaskFactory(this, testcasestorun,
 							testinvokerqueue, invokerinstantiatenums, maxjvmcount);
-					innertaskfactory.allClassFinders = allclassfinders;
+					innertaskfactory.classLoaderResources = classloaderresources;
 					innertaskfactory.classPathNotTrackingFiles = classpathnottrackingfiles;
 					innertaskfactory.nonDeterministicPredicate = nondeterministicpredicate;
 					innertaskfactory.resCloser = rescloser;
@@ -1147,7 +1384,8 @@ public class IncrementalTestingHandler {
 					innertaskfactory.testerWorkingDirPath = testerworkingdirpath;
 					innertaskfactory.testRunnerClassClassPath = testrunnerclasscp;
 					innertaskfactory.userClassPath = usercp;
-					innertaskfactory.workingDirectoryActualPath = workingdirectoryactualpath;
+					innertaskfactory.pathResolver = createTestFilePathResolver(testerworkingdirpath, workmoddir,
+							workingdirectoryactualpath);
 					innertaskfactory.workSakerDir = workmoddir;
 
 					InnerTaskExecutionParameters innertaskparams = new InnerTaskExecutionParameters();
@@ -1179,6 +1417,8 @@ public class IncrementalTestingHandler {
 					}
 				}
 			} finally {
+				//the test cases wait for their file synchronizations, no tasks are running at this point
+				fileSynchronizationExecutor.shutdownNow();
 				if (!testcasestorun.isEmpty()) {
 					//add unrun tests from previous so they are not recognized as new in the next run
 					//report build time dependency, so pending tests are run in the next build
@@ -1189,6 +1429,14 @@ public class IncrementalTestingHandler {
 				}
 			}
 		}
+		TestInputDependencyRegistry inputdependencies = new TestInputDependencyRegistry();
+		for (IncrementalTestCaseResult tcres : resultinfo.getTestCasesByPath().values()) {
+			inputdependencies.add(tcres);
+		}
+		resultinfo.setInputDependencyGroups(inputdependencies.report(taskContext, ignoreFileChanges));
+		resultinfo.setTestDependencyIndex(
+				TestDependencyIndex.create(prevdependencyindex, prevInfo == null ? Collections.emptyNavigableMap()
+						: prevInfo.getTestCasesByPath(), resultinfo.getTestCasesByPath()));
 		//a last notification
 		printSuccessfulTestFinalNotification();
 		return resultinfo;
@@ -1210,8 +1458,8 @@ public class IncrementalTestingHandler {
 
 		private IncrementalTestingInfo resultInfo;
 		private SakerDirectory workSakerDir;
-		private Path workingDirectoryActualPath;
-		private NavigableMap<ReferencedFilePath, ResourceDescriptorClassLoaderDataFinderSupplier> allClassFinders;
+		private TestFilePathResolver pathResolver;
+		private ClassLoaderResourceIndex classLoaderResources;
 		private NavigableMap<SakerPath, ContentDescriptor> classPathNotTrackingFiles;
 		private Predicate<String> nonDeterministicPredicate;
 
@@ -1280,7 +1528,7 @@ public class IncrementalTestingHandler {
 				try {
 					JavaTestingInvoker invoker = invokersupplier.get();
 					testingHandler.invokeTestingImpl(testerWorkingDirPath, resultInfo, testcase, invoker, workSakerDir,
-							workingDirectoryActualPath, allClassFinders, classPathNotTrackingFiles);
+							pathResolver, classLoaderResources, classPathNotTrackingFiles);
 				} finally {
 					testInvokerQueue.add(invokersupplier);
 				}
@@ -1319,44 +1567,271 @@ public class IncrementalTestingHandler {
 		}
 	}
 
+	private static final class TestSelectionCandidate {
+		protected final ReferencedFilePath classFilePath;
+		protected final String className;
+		protected final IncrementalTestCaseResult prevResult;
+		/**
+		 * The reason for invoking the test or <code>null</code> if the previous result can be reused.
+		 */
+		protected String invokeReason;
+
+		public TestSelectionCandidate(ReferencedFilePath classFilePath, String className,
+				IncrementalTestCaseResult prevResult) {
+			this.classFilePath = classFilePath;
+			this.className = className;
+			this.prevResult = prevResult;
+		}
+	}
+
+	private static boolean isAnyDependentClassChangeCandidate(TestDependencyIndex dependencyindex,
+			BitSet changeddependenttests, ReferencedFilePath tcpath) {
+		if (dependencyindex == null) {
+			return true;
+		}
+		int id = dependencyindex.getTestId(tcpath);
+		if (id < 0) {
+			//not indexed, check it anyway
+			return true;
+		}
+		return changeddependenttests.get(id);
+	}
+
+	/**
+	 * Collects the test cases that are affected by the input file changes.
+	 * <p>
+	 * The dependencies are reported by {@link TestInputDependencyRegistry}, therefore the tags of the deltas only
+	 * identify the content groups of the changed paths. The test cases in the groups are looked up in the groups that
+	 * were recorded when the dependencies were reported.
+	 */
+	private static void collectInputFileChangedTests(InputDependencyGroups prevgroups,
+			TaskFileDeltas inputfilechangedeltas, TaskFileDeltas inputfileadditiondeltas,
+			Map<ReferencedFilePath, String> filechangedtests, Map<ReferencedFilePath, String> directorychangedtests) {
+		//the changed paths mapped to the changed content groups
+		Map<SakerPath, BitSet> changedfiles = new HashMap<>();
+		Map<SakerPath, BitSet> changeddirectories = new HashMap<>();
+		collectInputFileChangeGroups(inputfilechangedeltas, changedfiles, changeddirectories);
+		collectInputFileChangeGroups(inputfileadditiondeltas, changedfiles, changeddirectories);
+		for (Entry<SakerPath, BitSet> entry : changedfiles.entrySet()) {
+			SakerPath path = entry.getKey();
+			BitSet groups = entry.getValue();
+			for (int i = groups.nextSetBit(0); i >= 0; i = groups.nextSetBit(i + 1)) {
+				for (ReferencedFilePath tcpath : prevgroups.getFileGroupTests(path, i)) {
+					filechangedtests.putIfAbsent(tcpath, "file changed: " + path);
+				}
+			}
+		}
+		for (Entry<SakerPath, BitSet> entry : changeddirectories.entrySet()) {
+			SakerPath path = entry.getKey();
+			BitSet groups = entry.getValue();
+			for (int i = groups.nextSetBit(0); i >= 0; i = groups.nextSetBit(i + 1)) {
+				for (ReferencedFilePath tcpath : prevgroups.getDirectoryGroupTests(path, i)) {
+					directorychangedtests.putIfAbsent(tcpath, "directory entry changed in: " + path);
+				}
+			}
+		}
+	}
+
+	private static void collectInputFileChangeGroups(TaskFileDeltas deltas, Map<SakerPath, BitSet> changedfiles,
+			Map<SakerPath, BitSet> changeddirectories) {
+		for (FileChangeDelta delta : deltas.getFileDeltas()) {
+			Object tag = delta.getTag();
+			if (tag instanceof FileContentModifyTag) {
+				changedfiles.computeIfAbsent(delta.getFilePath(), x -> new BitSet())
+						.set(((FileContentModifyTag) tag).group);
+			} else if (tag instanceof DirectoryContentFileAdditionTag) {
+				changeddirectories.computeIfAbsent(delta.getFilePath().getParent(), x -> new BitSet())
+						.set(((DirectoryContentFileAdditionTag) tag).group);
+			}
+		}
+	}
+
+	/**
+	 * Checks if the input files or class loader resources of the test changed since the previous run.
+	 * <p>
+	 * This method can be called concurrently for different tests.
+	 * 
+	 * @return The reason for invoking the test or <code>null</code> if there were no changes.
+	 */
+	private static String getInputChangeInvocationReason(IncrementalTestCaseResult prevtc,
+			Map<ReferencedFilePath, String> filechangedtests, Map<ReferencedFilePath, String> directorychangedtests,
+			ClassLoaderResourceIndex classloaderresources, ClassPathLayout classpathlayout) {
+		ReferencedFilePath tcpath = prevtc.getClassFilePath();
+		String filechange = filechangedtests.get(tcpath);
+		if (filechange != null) {
+			return filechange;
+		}
+		NavigableMap<String, ClassLoaderResourceContents> referencedclresources = prevtc
+				.getReferencedClassLoaderResources();
+		if (!ObjectUtils.isNullOrEmpty(referencedclresources)) {
+			if (prevtc.getClassPathLayoutIdentifier() != classpathlayout.getIdentifier()) {
+				//class path entries were added, removed, or the ones tracked as a whole changed
+				return "class path changed.";
+			}
+			for (Entry<String, ClassLoaderResourceContents> resentry : referencedclresources.entrySet()) {
+				String resname = resentry.getKey();
+				ClassLoaderResourceContents currentcontents = classloaderresources.get(resname).getContents();
+				if (currentcontents.isChanged(resentry.getValue())) {
+					return "class loader resource changed: " + resname;
+				}
+			}
+		}
+		return directorychangedtests.get(tcpath);
+	}
+
 	private static String getAnyDependentClassChanged(NavigableSet<String> dependentclassnames,
-			NavigableSet<String> changedclasses, String cname) {
+			NavigableSet<String> changedclasses, String cname,
+			NavigableMap<String, ? extends NavigableSet<String>> dependentmethods,
+			NavigableMap<String, NavigableSet<String>> changedclassmethods) {
 		if (changedclasses.contains(cname)) {
 			return cname;
 		}
-		//TODO use navigableset subset to reduce count
-		String contained = ObjectUtils.getContainsAny(dependentclassnames, changedclasses);
-		return contained;
+		if (ObjectUtils.isNullOrEmpty(dependentmethods) || changedclassmethods.isEmpty()) {
+			//TODO use navigableset subset to reduce count
+			String contained = ObjectUtils.getContainsAny(dependentclassnames, changedclasses);
+			return contained;
+		}
+		for (String changedcname : changedclasses) {
+			if (!dependentclassnames.contains(changedcname)) {
+				continue;
+			}
+			NavigableSet<String> executedmethods = dependentmethods.get(changedcname);
+			if (executedmethods != null && changedclassmethods.containsKey(changedcname)) {
+				NavigableSet<String> changedmethods = changedclassmethods.get(changedcname);
+				if (changedmethods != null && ObjectUtils.getContainsAny(executedmethods, changedmethods) == null) {
+					//only the methods that weren't executed by the test changed
+					continue;
+				}
+			}
+			return changedcname;
+		}
+		return null;
+	}
+
+	/**
+	 * Removes the classes from the changed class names that only had their debug information changed.
+	 * <p>
+	 * The debug information insensitive hashes of the classes are recorded in the result info. They are only computed
+	 * for the changed classes, so the first change of a class is always considered to be a change, as there's no
+	 * previous hash to compare it to. Nothing is hashed in the first build, as all tests are run anyway.
+	 */
+	private void removeDebugInfoChangedClassNames(IncrementalTestingInfo resultinfo,
+			NavigableSet<String> changedclassnames,
+			List<Map<FileLocation, ? extends NavigableMap<SakerPath, ? extends ContentDescriptor>>> classpathfiles) {
+		if (prevInfo == null) {
+			return;
+		}
+		NavigableMap<String, ClassContentHash> prevhashes = prevInfo.getClassContentHashes();
+		NavigableMap<String, ClassContentHash> resulthashes = resultinfo.getClassContentHashes();
+		NavigableMap<String, ContentDescriptor> hashclasses = new TreeMap<>();
+		for (Map<FileLocation, ? extends NavigableMap<SakerPath, ? extends ContentDescriptor>> cpfilesmap : classpathfiles) {
+			for (Entry<FileLocation, ? extends NavigableMap<SakerPath, ? extends ContentDescriptor>> entry : cpfilesmap
+					.entrySet()) {
+				NavigableMap<SakerPath, ? extends ContentDescriptor> cpclassfiles = entry.getValue();
+				if (cpclassfiles == null) {
+					continue;
+				}
+				ReferencedFilePath reffilecp = toReferencedFilePath(entry.getKey());
+				for (Entry<SakerPath, ? extends ContentDescriptor> cfentry : cpclassfiles.entrySet()) {
+					SakerPath cfpath = cfentry.getKey();
+					ContentDescriptor cd = cfentry.getValue();
+					String cname = getClassNameFromClassFilePath(reffilecp.getPath(), cfpath);
+					if (cd == null || !new ReferencedFilePath(reffilecp.getLocation(), cfpath)
+							.equals(classFilePathsByName.get(cname))) {
+						//shadowed by a class file in an other class path
+						continue;
+					}
+					ClassContentHash prevhash = prevhashes.get(cname);
+					if (prevhash != null && !cd.isChanged(prevhash.getContentDescriptor())) {
+						resulthashes.put(cname, prevhash);
+						continue;
+					}
+					if (changedclassnames.contains(cname)) {
+						hashclasses.put(cname, cd);
+					}
+				}
+			}
+		}
+		if (hashclasses.isEmpty()) {
+			return;
+		}
+		for (Entry<String, ContentDescriptor> entry : hashclasses.entrySet()) {
+			String cname = entry.getKey();
+			ClassMemberHashes memberhashes = createClassMemberHashes(cname);
+			if (memberhashes == null) {
+				//not supported, the class is considered to be changed
+				continue;
+			}
+			ClassContentHash hash = new ClassContentHash(entry.getValue(), memberhashes.getContentHash());
+			resulthashes.put(cname, hash);
+			ClassContentHash prevhash = prevhashes.get(cname);
+			if (prevhash != null && prevhash.isSameHash(hash)) {
+				changedclassnames.remove(cname);
+				if (verbose) {
+					System.out.println("Only the debug information changed in class: " + cname);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Computes the member hashes of the class with the given name on the class path.
+	 * <p>
+	 * Only the classes in directory class paths are supported.
+	 * 
+	 * @return The hashes or <code>null</code> if the class file is not found or not supported.
+	 */
+	private ClassMemberHashes createClassMemberHashes(String classname) {
+		ReferencedFilePath classfilepath = classFilePathsByName.get(classname);
+		if (classfilepath == null) {
+			return null;
+		}
+		byte[] bytes;
+		try {
+			if (ReferencedFilePath.LOCATION_EXECUTION.equals(classfilepath.getLocation())) {
+				SakerFile file = taskContext.getTaskUtilities().resolveAtAbsolutePath(classfilepath.getPath());
+				if (file == null) {
+					return null;
+				}
+				ByteArrayOutputStream baos = new ByteArrayOutputStream();
+				try (InputStream is = file.openInputStream()) {
+					StreamUtils.copyStream(is, baos);
+				}
+				bytes = baos.toByteArray();
+			} else {
+				bytes = Files.readAllBytes(LocalFileProvider.toRealPath(classfilepath.getPath()));
+			}
+		} catch (IOException e) {
+			return null;
+		}
+		return ClassMemberHashes.create(bytes);
 	}
 
 	private static class DirectoryContentFileAdditionTag implements Externalizable {
 		private static final long serialVersionUID = 1L;
 
-		private String className;
+		protected int group;
 
 		public DirectoryContentFileAdditionTag() {
 		}
 
-		public DirectoryContentFileAdditionTag(String className) {
-			this.className = className;
+		public DirectoryContentFileAdditionTag(int group) {
+			this.group = group;
 		}
 
 		@Override
 		public void writeExternal(ObjectOutput out) throws IOException {
-			out.writeUTF(className);
+			out.writeInt(group);
 		}
 
 		@Override
 		public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
-			className = in.readUTF();
+			group = in.readInt();
 		}
 
 		@Override
 		public int hashCode() {
-			final int prime = 31;
-			int result = 1;
-			result = prime * result + ((className == null) ? 0 : className.hashCode());
-			return result;
+			return group;
 		}
 
 		@Override
@@ -1368,24 +1843,21 @@ public class IncrementalTestingHandler {
 			if (getClass() != obj.getClass())
 				return false;
 			DirectoryContentFileAdditionTag other = (DirectoryContentFileAdditionTag) obj;
-			if (className == null) {
-				if (other.className != null)
-					return false;
-			} else if (!className.equals(other.className))
+			if (group != other.group)
 				return false;
 			return true;
 		}
 
 		@Override
 		public String toString() {
-			return "DirectoryContentFileAdditionTag [" + className + "]";
+			return "DirectoryContentFileAdditionTag [" + group + "]";
 		}
 	}
 
 	private static class FileContentModifyTag implements Externalizable {
 		private static final long serialVersionUID = 1L;
 
-		private String className;
+		protected int group;
 
 		/**
 		 * For {@link Externalizable}.
@@ -1393,26 +1865,23 @@ public class IncrementalTestingHandler {
 		public FileContentModifyTag() {
 		}
 
-		public FileContentModifyTag(String className) {
-			this.className = className;
+		public FileContentModifyTag(int group) {
+			this.group = group;
 		}
 
 		@Override
 		public void writeExternal(ObjectOutput out) throws IOException {
-			out.writeUTF(className);
+			out.writeInt(group);
 		}
 
 		@Override
 		public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
-			className = in.readUTF();
+			group = in.readInt();
 		}
 
 		@Override
 		public int hashCode() {
-			final int prime = 31;
-			int result = 1;
-			result = prime * result + ((className == null) ? 0 : className.hashCode());
-			return result;
+			return group;
 		}
 
 		@Override
@@ -1424,17 +1893,14 @@ public class IncrementalTestingHandler {
 			if (getClass() != obj.getClass())
 				return false;
 			FileContentModifyTag other = (FileContentModifyTag) obj;
-			if (className == null) {
-				if (other.className != null)
-					return false;
-			} else if (!className.equals(other.className))
+			if (group != other.group)
 				return false;
 			return true;
 		}
 
 		@Override
 		public String toString() {
-			return "FileContentModifyTag [" + className + "]";
+			return "FileContentModifyTag [" + group + "]";
 		}
 	}
 
@@ -1448,59 +1914,138 @@ public class IncrementalTestingHandler {
 		}
 	}
 
-	private void reportInputDependenciesForTestResult(IncrementalTestCaseResult tcres) {
-		String classname = tcres.getClassName();
-
-		NavigableMap<SakerPath, ? extends ContentDescriptor> referencedfiles = tcres.getReferencedFiles();
-		FileContentModifyTag modifytag = new FileContentModifyTag(classname);
-		if (!referencedfiles.isEmpty()) {
-			NavigableMap<SakerPath, ? extends ContentDescriptor> reportfiles;
-			if (ignoreFileChanges.isEmpty()) {
-				reportfiles = referencedfiles;
-			} else {
-				reportfiles = new TreeMap<>(referencedfiles);
-				removeIgnoredFileChangesFromMap(ignoreFileChanges, reportfiles);
+	/**
+	 * Collects the input file dependencies of the test cases to report them once for each distinct path.
+	 * <p>
+	 * The test cases that reference a path with the same contents share the tag of the reported dependency. The tags
+	 * contain the index of the content group, that is assigned in the order of the test cases that reference the path.
+	 * The test cases of the groups are stored in the {@link InputDependencyGroups} of the testing info, and the
+	 * affected test cases are determined from the deltas in
+	 * {@link IncrementalTestingHandler#collectInputFileChangedTests}.
+	 */
+	private static final class TestInputDependencyRegistry {
+		private final NavigableMap<SakerPath, ContentGroups<ContentDescriptor>> fileContents = new TreeMap<>();
+		private final NavigableMap<SakerPath, ContentGroups<NavigableSet<String>>> directoryContents = new TreeMap<>();
+
+		public void add(IncrementalTestCaseResult tcres) {
+			ReferencedFilePath tcpath = tcres.getClassFilePath();
+			NavigableMap<SakerPath, ? extends ContentDescriptor> referencedfiles = tcres.getReferencedFiles();
+			if (!ObjectUtils.isNullOrEmpty(referencedfiles)) {
+				for (Entry<SakerPath, ? extends ContentDescriptor> entry : referencedfiles.entrySet()) {
+					fileContents.computeIfAbsent(entry.getKey(), x -> new ContentGroups<>()).add(entry.getValue(),
+							tcpath);
+				}
+			}
+			NavigableMap<SakerPath, ? extends NavigableSet<String>> referenceddirectories = tcres
+					.getReferencedDirectories();
+			if (!ObjectUtils.isNullOrEmpty(referenceddirectories)) {
+				for (Entry<SakerPath, ? extends NavigableSet<String>> entry : referenceddirectories.entrySet()) {
+					NavigableSet<String> contents = entry.getValue();
+					if (contents != null) {
+						directoryContents.computeIfAbsent(entry.getKey(), x -> new ContentGroups<>()).add(contents,
+								tcpath);
+					}
+				}
 			}
-			taskContext.getTaskUtilities().reportInputFileDependency(modifytag, reportfiles);
 		}
 
-		NavigableMap<SakerPath, ? extends NavigableSet<String>> referenceddirectories = tcres
-				.getReferencedDirectories();
-		if (!ObjectUtils.isNullOrEmpty(referenceddirectories)) {
-			DirectoryContentFileAdditionTag additiontag = new DirectoryContentFileAdditionTag(classname);
-			for (Entry<SakerPath, ? extends NavigableSet<String>> entry : referenceddirectories.entrySet()) {
-				NavigableSet<String> contents = entry.getValue();
-				if (contents != null) {
-					SakerPath path = entry.getKey();
-					if (SakerPathFiles.hasPathOrParent(ignoreFileChanges, path)) {
-						//do not report dependencies for ignored path
-						continue;
+		/**
+		 * Reports the dependencies of the added test cases.
+		 * 
+		 * @return The test cases in the content groups of the reported paths.
+		 */
+		public InputDependencyGroups report(TaskContext taskcontext, NavigableSet<SakerPath> ignoredpaths) {
+			NavigableMap<SakerPath, List<NavigableSet<ReferencedFilePath>>> filegrouptests = new TreeMap<>();
+			NavigableMap<SakerPath, List<NavigableSet<ReferencedFilePath>>> directorygrouptests = new TreeMap<>();
+
+			List<NavigableMap<SakerPath, ContentDescriptor>> groupfiles = new ArrayList<>();
+			for (Entry<SakerPath, ContentGroups<ContentDescriptor>> entry : fileContents.entrySet()) {
+				SakerPath path = entry.getKey();
+				if (SakerPathFiles.hasPathOrParent(ignoredpaths, path)) {
+					//do not report dependencies for ignored path
+					continue;
+				}
+				ContentGroups<ContentDescriptor> groups = entry.getValue();
+				List<ContentDescriptor> contents = groups.contents;
+				for (int i = 0; i < contents.size(); i++) {
+					getGroupMap(groupfiles, i).put(path, contents.get(i));
+				}
+				filegrouptests.put(path, groups.tests);
+			}
+			for (int i = 0; i < groupfiles.size(); i++) {
+				taskcontext.getTaskUtilities().reportInputFileDependency(new FileContentModifyTag(i),
+						groupfiles.get(i));
+			}
+
+			List<NavigableMap<SakerPath, ContentDescriptor>> groupdirectoryfiles = new ArrayList<>();
+			for (Entry<SakerPath, ContentGroups<NavigableSet<String>>> entry : directoryContents.entrySet()) {
+				SakerPath path = entry.getKey();
+				if (SakerPathFiles.hasPathOrParent(ignoredpaths, path)) {
+					//do not report dependencies for ignored path
+					continue;
+				}
+				ContentGroups<NavigableSet<String>> groups = entry.getValue();
+				List<NavigableSet<String>> contents = groups.contents;
+				directorygrouptests.put(path, groups.tests);
+				for (int i = 0; i < contents.size(); i++) {
+					NavigableMap<SakerPath, ContentDescriptor> files = getGroupMap(groupdirectoryfiles, i);
+					for (String fname : contents.get(i)) {
+						files.put(path.resolve(fname), CommonTaskContentDescriptors.PRESENT);
 					}
-					reportInputFileDependenciesWithContent(path, additiontag, contents,
-							CommonTaskContentDescriptors.PRESENT);
-					taskContext.reportInputFileAdditionDependency(additiontag,
+					taskcontext.reportInputFileAdditionDependency(new DirectoryContentFileAdditionTag(i),
 							DirectoryChildrenFileCollectionStrategy.create(path));
 				}
 			}
+			for (int i = 0; i < groupdirectoryfiles.size(); i++) {
+				taskcontext.getTaskUtilities().reportInputFileDependency(new DirectoryContentFileAdditionTag(i),
+						groupdirectoryfiles.get(i));
+			}
+			return new InputDependencyGroups(filegrouptests, directorygrouptests);
 		}
-	}
 
-	private void reportInputFileDependenciesWithContent(SakerPath basepath, Object tag,
-			NavigableSet<String> basepathfilenames, ContentDescriptor content) {
-		NavigableMap<SakerPath, ContentDescriptor> contents = new SetTransformingNavigableMap<String, SakerPath, ContentDescriptor>(
-				basepathfilenames) {
-			@Override
-			protected Map.Entry<SakerPath, ContentDescriptor> transformEntry(String e) {
-				return ImmutableUtils.makeImmutableMapEntry(basepath.resolve(e), content);
+		private static NavigableMap<SakerPath, ContentDescriptor> getGroupMap(
+				List<NavigableMap<SakerPath, ContentDescriptor>> groups, int index) {
+			while (groups.size() <= index) {
+				groups.add(new TreeMap<>());
 			}
-		};
-		taskContext.getTaskUtilities().reportInputFileDependency(tag, contents);
-	}
+			return groups.get(index);
+		}
+
+		/**
+		 * The distinct contents of a path, and the test cases that referenced them.
+		 */
+		private static final class ContentGroups<T> {
+			protected final List<T> contents = new ArrayList<>(1);
+			protected final List<NavigableSet<ReferencedFilePath>> tests = new ArrayList<>(1);
+
+			public void add(T content, ReferencedFilePath tcpath) {
+				int idx = contents.indexOf(content);
+				if (idx < 0) {
+					idx = contents.size();
+					contents.add(content);
+					tests.add(new TreeSet<>());
+				}
+				tests.get(idx).add(tcpath);
+			}
+		}
+	}
+
+	/**
+	 * Creates the resolver for the file accesses of the test cases.
+	 * <p>
+	 * The tracked directories and the working directory are the same for all test cases in a testing run, so the
+	 * resolver is created once and shared by the test invocations.
+	 */
+	private TestFilePathResolver createTestFilePathResolver(Path testerworkingdirpath, SakerDirectory worksakerdir,
+			Path actualworkingdirectorypath) {
+		NavigableMap<SakerPath, Path> trackeddirectories = new TreeMap<>();
+		trackeddirectories.put(worksakerdir.getSakerPath(), actualworkingdirectorypath);
+		return new TestFilePathResolver(executionContext, testerworkingdirpath, trackeddirectories, ignoreFileChanges);
+	}
 
 	protected void invokeTestingImpl(final Path testerworkingdirpath, IncrementalTestingInfo resultinfo,
 			IncrementalTestCaseResult tcres, JavaTestingInvoker invoker, SakerDirectory worksakerdir,
-			Path actualworkingdirectorypath,
-			NavigableMap<ReferencedFilePath, ResourceDescriptorClassLoaderDataFinderSupplier> allclassfinders,
+			TestFilePathResolver pathresolver, ClassLoaderResourceIndex classloaderresources,
 			NavigableMap<SakerPath, ContentDescriptor> classpathnottrackingfiles)
 			throws JavaTestRunnerFailureException, Exception {
 		try {
@@ -1509,10 +2054,8 @@ public class IncrementalTestingHandler {
 				TestFlag.metric().javaTestInvocation(classname);
 			}
 			long startnanos = System.nanoTime();
-			NavigableMap<SakerPath, Path> trackeddirectories = new TreeMap<>();
-			trackeddirectories.put(worksakerdir.getSakerPath(), actualworkingdirectorypath);
 			TestCallResult callres = callTestWithClass(invoker, classname, worksakerdir, testerworkingdirpath,
-					trackeddirectories, allclassfinders);
+					pathresolver, classloaderresources, prevTestCasesByPath.get(tcres.getClassFilePath()));
 			JavaTestInvocationResult invocationres = callres.getInvocationResult();
 			long endnanos = System.nanoTime();
 			NavigableMap<SakerPath, ContentDescriptor> reffiles = callres.getReferencedFiles();
@@ -1522,27 +2065,19 @@ public class IncrementalTestingHandler {
 			NavigableMap<SakerPath, NavigableSet<String>> referenceddirectories = new TreeMap<>();
 
 			for (Entry<String, ? extends NavigableSet<String>> entry : listeddirs.entrySet()) {
-				Path dirpath = Paths.get(entry.getKey());
-				if (!dirpath.isAbsolute()) {
-					dirpath = testerworkingdirpath.resolve(dirpath).normalize();
-				} else {
-					dirpath = dirpath.normalize();
-				}
-				SakerPath unmirrored = executionContext.toUnmirrorPath(dirpath);
-				SakerPath dirmpath = null;
-				if (unmirrored != null) {
-					dirmpath = unmirrored;
+				TestFilePathResolver.ResolvedPath resolved = pathresolver.resolve(entry.getKey());
+				SakerPath dirmpath;
+				if (resolved != null) {
+					dirmpath = resolved.getPath();
 				} else {
-					for (Entry<SakerPath, Path> trackentry : trackeddirectories.entrySet()) {
-						Path trackedpath = trackentry.getValue();
-						if (trackedpath != null) {
-							if (dirpath.startsWith(trackedpath)) {
-								Path relpath = trackedpath.relativize(dirpath);
-								dirmpath = trackentry.getKey().resolve(relpath);
-								break;
-							}
-						}
+					//not in a tracked directory, but may still be in the mirror directory
+					Path dirpath = Paths.get(entry.getKey());
+					if (!dirpath.isAbsolute()) {
+						dirpath = testerworkingdirpath.resolve(dirpath).normalize();
+					} else {
+						dirpath = dirpath.normalize();
 					}
+					dirmpath = executionContext.toUnmirrorPath(dirpath);
 				}
 				if (dirmpath != null) {
 					NavigableSet<String> contents = entry.getValue();
@@ -1567,13 +2102,36 @@ public class IncrementalTestingHandler {
 					referencedfiles.put(path, cdesc);
 				}
 			}
+			for (Entry<SakerPath, ContentDescriptor> entry : callres.getStatFiles().entrySet()) {
+				//the content dependency includes the existence of the file
+				referencedfiles.putIfAbsent(entry.getKey(), entry.getValue());
+			}
 
-			TreeSet<String> dependentresult = new TreeSet<>(invocationres.getDependentClasses());
+			NavigableSet<String> dependentresult = callres.getDependentClasses();
+			if (TestFlag.ENABLED) {
+				TestFlag.metric().javaTestDependentClasses(classname, dependentresult);
+			}
 			dependentresult.addAll(getAdditionalTestDependencyClasses(classname));
 			boolean successful = invocationres.isSuccessful();
 			tcres.setDependentClasses(dependentresult);
+			NavigableMap<String, ? extends NavigableSet<String>> dependentmethods = invocationres
+					.getDependentMethods();
+			if (!ObjectUtils.isNullOrEmpty(dependentmethods)) {
+				tcres.setDependentMethods(dependentmethods);
+				NavigableMap<String, ClassMemberHashes> memberhashes = resultinfo.getClassMemberHashes();
+				for (String depcname : dependentmethods.keySet()) {
+					if (memberhashes.containsKey(depcname)) {
+						continue;
+					}
+					ClassMemberHashes hashes = createClassMemberHashes(depcname);
+					if (hashes != null) {
+						memberhashes.putIfAbsent(depcname, hashes);
+					}
+				}
+			}
 			tcres.setReferencedFiles(referencedfiles);
-			tcres.setReferencedClassLoaderResources(callres.getReferencedClassLoaderResources());
+			tcres.setReferencedClassLoaderResources(callres.getReferencedClassLoaderResources(),
+					classloaderresources.getLayout().getIdentifier());
 			tcres.setReferencedDirectories(referenceddirectories);
 			tcres.setState(successful ? TestCaseState.SUCCESSFUL : TestCaseState.FAILED);
 			long millis = (endnanos - startnanos) / 1_000_000;
@@ -1581,13 +2139,11 @@ public class IncrementalTestingHandler {
 			if (!successful) {
 				tcres.setFailureInformation(invocationres.getFailureInformation());
 			}
-			reportInputDependenciesForTestResult(tcres);
 			resultinfo.addTestCase(tcres);
 
 			if (TestFlag.ENABLED) {
 				TestFlag.metric().javaTestReferencedFiles(classname, referencedfiles.keySet());
 				TestFlag.metric().javaTestReferencedDirectories(classname, referenceddirectories.keySet());
-				TestFlag.metric().javaTestDependentClasses(classname, invocationres.getDependentClasses());
 			}
 		} catch (Throwable e) {
 			//in case of an error, add the previous test result to the info, as it has to be run again in the next build
@@ -1599,25 +2155,11 @@ public class IncrementalTestingHandler {
 		printTestResult(tcres);
 	}
 
-	private static Predicate<String> createClassNameTestPredicate(String wildcard) {
-		WildcardPath wc = WildcardPath.valueOf(wildcard.replace('.', '/'));
-		return c -> {
-			c = c.replace('.', '/');
-			return wc.includes(c);
-		};
-	}
-
 	private static Predicate<String> createClassNameTestPredicate(Collection<String> wildcards) {
 		if (wildcards.isEmpty()) {
 			return Functionals.neverPredicate();
 		}
-		Iterator<String> it = wildcards.iterator();
-		String first = it.next();
-		Predicate<String> result = createClassNameTestPredicate(first);
-		while (it.hasNext()) {
-			result = result.or(createClassNameTestPredicate(it.next()));
-		}
-		return result;
+		return new ClassNamePatternMatcher(wildcards)::matchesAny;
 	}
 
 	private JavaTestingInvoker getTestingInvoker(TaskContext taskcontext, int identifier, ResourceCloser rescloser,
@@ -1675,9 +2217,22 @@ public class IncrementalTestingHandler {
 				ReflectUtils.getMethodAssert(JavaTestingInvoker.class, "initClassLoaders", ClassLoader.class,
 						ClassLoaderDataFinder[].class, ClassLoader.class, ClassLoaderDataFinder[].class),
 				userclasspathparentcl, userclasspath, testclasspathparentcl, testclasspath);
+		RMIVariables.invokeMethod(invoker,
+				ReflectUtils.getMethodAssert(JavaTestingInvoker.class, "initClassPathPackages", String[].class),
+				(Object) classPathPackageNames);
+		invokerClassNameDictionaries.put(invoker, new InvokerClassNameDictionary());
 		return invoker;
 	}
 
+	private static String[] getPackageNames(Iterable<String> classnames) {
+		TreeSet<String> result = new TreeSet<>();
+		for (String cname : classnames) {
+			int idx = cname.lastIndexOf('.');
+			result.add(idx < 0 ? "" : cname.substring(0, idx).replace('.', '/'));
+		}
+		return result.toArray(new String[result.size()]);
+	}
+
 	private static ClassLoaderDataFinder[] classPathSuppliersToDataFinders(ResourceCloser rescloser,
 			ResourceDescriptorClassLoaderDataFinderSupplier[] classpathsuppliers, TaskContext taskcontext,
 			RMIVariables rmivariables) throws IOException {
@@ -1770,27 +2325,93 @@ public class IncrementalTestingHandler {
 		}
 	}
 
-	private JavaTestingFileProvider createTestingFileProvider(ExecutionContext executionContext,
+	/**
+	 * Gets the paths of the files that the test case accessed in the previous run.
+	 * <p>
+	 * The test case will likely access them again, so they can be synchronized before the test is invoked.
+	 */
+	private static Collection<SakerPath> getPrefetchPaths(IncrementalTestCaseResult prevtc) {
+		if (prevtc == null) {
+			return Collections.emptySet();
+		}
+		NavigableMap<SakerPath, ? extends ContentDescriptor> reffiles = prevtc.getReferencedFiles();
+		NavigableMap<SakerPath, ? extends NavigableSet<String>> refdirs = prevtc.getReferencedDirectories();
+		if (ObjectUtils.isNullOrEmpty(refdirs)) {
+			return reffiles == null ? Collections.emptySet() : reffiles.keySet();
+		}
+		NavigableSet<SakerPath> result = new TreeSet<>(refdirs.keySet());
+		if (reffiles != null) {
+			result.addAll(reffiles.keySet());
+		}
+		return result;
+	}
+
+	private SynchronizingTestingFileProvider createTestingFileProvider(ExecutionContext executionContext,
 			SakerDirectory workingdir, Path testerworkingdir, TestCallResult callresult,
-			NavigableMap<SakerPath, Path> trackeddirectories,
-			NavigableMap<ReferencedFilePath, ResourceDescriptorClassLoaderDataFinderSupplier> allclassfinders) {
+			TestFilePathResolver pathresolver, ClassLoaderResourceIndex classloaderresources) {
 		SakerPath directoryPath = workingdir.getSakerPath();
 		if (directoryPath.isRelative()) {
 			//directory was replaced meanwhile
 			throw new IllegalStateException("Working directory is no longer present: " + this.workingDirectory);
 		}
 		return new SynchronizingTestingFileProvider(executionContext, workingdir, directoryPath, testerworkingdir,
-				callresult, trackeddirectories, allclassfinders);
+				callresult, pathresolver, classloaderresources);
 	}
 
 	private static final NullContentDescriptor CONTENT_WROTE_MARKER = new NullContentDescriptor();
 
-	//TODO we might need to move this outside of this class, to keep a common instace between class tests
-	private final ConcurrentSkipListMap<SakerPath, Object> synchronizeLocks = new ConcurrentSkipListMap<>();
+	private static final int SYNCHRONIZE_LOCK_STRIPE_COUNT = 64;
 
-	private class SynchronizingTestingFileProvider implements JavaTestingFileProvider {
-		//XXX make a more specific implementation that doesn't synchronize the contents of a parent directory, only when they are requested as well
+	/**
+	 * The content descriptors of the files that were synchronized for the test cases.
+	 * <p>
+	 * Shared by all test cases and test JVMs, so a file is only synchronized once during the testing. The entries are
+	 * removed when a test case writes the file.
+	 */
+	private final ConcurrentHashMap<SakerPath, ContentDescriptor> synchronizedFileContents = new ConcurrentHashMap<>();
+	/**
+	 * The paths of the directories that had their children synchronized as a test case listed them.
+	 * <p>
+	 * Reading a file only synchronizes the file and its parent directories, the other children are only synchronized
+	 * when the directory is listed. The entries are removed when a test case writes a child of the directory.
+	 */
+	private final Set<SakerPath> synchronizedDirectoryChildren = ConcurrentHashMap.newKeySet();
+	/**
+	 * Striped locks for the file synchronization. The locks are never nested.
+	 */
+	private final Object[] synchronizeLocks = new Object[SYNCHRONIZE_LOCK_STRIPE_COUNT];
+	{
+		for (int i = 0; i < synchronizeLocks.length; i++) {
+			synchronizeLocks[i] = new Object();
+		}
+	}
+
+	private static final int FILE_SYNCHRONIZATION_THREAD_COUNT = Math.max(1,
+			Runtime.getRuntime().availableProcessors());
 
+	/**
+	 * The executor that synchronizes the files for the test cases in parallel.
+	 * <p>
+	 * Created when the test cases are started, and shut down after all of them finished.
+	 */
+	private ExecutorService fileSynchronizationExecutor;
+
+	private static ExecutorService createFileSynchronizationExecutor() {
+		AtomicInteger threadcounter = new AtomicInteger();
+		return Executors.newFixedThreadPool(FILE_SYNCHRONIZATION_THREAD_COUNT, r -> {
+			Thread result = new Thread(r, "Test file synchronizer-" + threadcounter.incrementAndGet());
+			result.setDaemon(true);
+			return result;
+		});
+	}
+
+	private Object getSynchronizeLock(SakerPath path) {
+		int h = path.hashCode();
+		h ^= h >>> 16;
+		return synchronizeLocks[h & (SYNCHRONIZE_LOCK_STRIPE_COUNT - 1)];
+	}
+
+	private class SynchronizingTestingFileProvider implements JavaTestingFileProvider {
 		// TODO clear up code comments
 
 		private final ExecutionContext executionContext;
@@ -1805,26 +2426,33 @@ public class IncrementalTestingHandler {
 
 		//TODO add option to add more to this
 		private final NavigableMap<SakerPath, Path> trackedDirectories;
+		private final TestFilePathResolver pathResolver;
 
 //		private final ConcurrentSkipListMap<SakerPath, NavigableSet<String>> listedDirectoryContents = new ConcurrentSkipListMap<>();
 		private Path mirrorDirectoryPath;
-		private NavigableMap<ReferencedFilePath, ResourceDescriptorClassLoaderDataFinderSupplier> allClassFinders;
+		private final ClassLoaderResourceIndex classLoaderResources;
+
+		private Map<SakerPath, OptimisticRead> optimisticReads = Collections.emptyMap();
+		private List<Future<?>> prefetchFutures = Collections.emptyList();
+		private volatile boolean prefetchCancelled;
+		private Throwable prefetchException;
+		private volatile boolean optimisticReadsInvalidated;
 
 		public SynchronizingTestingFileProvider(ExecutionContext executionContext, SakerDirectory workingDirectory,
 				SakerPath workingdirectorysakerpath, Path testerworkingdirectory, TestCallResult callresult,
-				NavigableMap<SakerPath, Path> trackedDirectories,
-				NavigableMap<ReferencedFilePath, ResourceDescriptorClassLoaderDataFinderSupplier> allclassfinders) {
+				TestFilePathResolver pathresolver, ClassLoaderResourceIndex classloaderresources) {
 			this.executionContext = executionContext;
 //			this.contentDatabase = executionContext.getContentDatabase();
 			this.workingDirectory = workingDirectory;
 			this.workingDirectorySakerPath = workingdirectorysakerpath;
 			this.testerWorkingDirectoryPath = testerworkingdirectory;
 			this.callResult = callresult;
-			this.allClassFinders = allclassfinders;
+			this.classLoaderResources = classloaderresources;
 
 			this.mirrorDirectoryPath = executionContext.getMirrorDirectory();
 
-			this.trackedDirectories = trackedDirectories;
+			this.pathResolver = pathresolver;
+			this.trackedDirectories = pathresolver.getTrackedDirectories();
 		}
 
 		@Override
@@ -1833,24 +2461,233 @@ public class IncrementalTestingHandler {
 				//it shouldn't be null, but check more than less
 				return;
 			}
-			NavigableMap<ReferencedFilePath, ContentDescriptor> contentdescriptors = new TreeMap<>();
-			NavigableMap<ReferencedFilePath, ContentDescriptor> prevcontentdescriptors = callResult.referencedClassLoaderResources
-					.putIfAbsent(name, contentdescriptors);
-			if (prevcontentdescriptors != null) {
+			if (callResult.referencedClassLoaderResources.containsKey(name)) {
 				//referenced multiple times, no need to record it more 
 				return;
 			}
-			for (Entry<ReferencedFilePath, ResourceDescriptorClassLoaderDataFinderSupplier> entry : allClassFinders
-					.entrySet()) {
-				ResourceDescriptorClassLoaderDataFinderSupplier clfinder = entry.getValue();
-				Entry<SakerPath, ContentDescriptor> resourceassociation = clfinder
-						.getResourceFileContentDescriptor(name);
-				if (resourceassociation != null) {
-					contentdescriptors.put(entry.getKey(), resourceassociation.getValue());
-					putReferencedFileIfAbsent(resourceassociation.getKey(), resourceassociation.getValue());
-				} else {
-					contentdescriptors.put(entry.getKey(), NonExistentContentDescriptor.INSTANCE);
+			ClassLoaderResourceLookup lookup = classLoaderResources.get(name);
+			if (callResult.referencedClassLoaderResources.putIfAbsent(name, lookup.getContents()) != null) {
+				return;
+			}
+			for (Entry<SakerPath, ContentDescriptor> resourceassociation : lookup.getFiles()) {
+				putReferencedFileIfAbsent(resourceassociation.getKey(), resourceassociation.getValue());
+			}
+		}
+
+		/**
+		 * Synchronizes the files at the given paths in parallel.
+		 * <p>
+		 * The synchronized files are not added to the referenced files of the test case, they are added when the test
+		 * case accesses them, based on the kind of the access.
+		 */
+		public void prefetchFiles(Collection<SakerPath> paths) {
+			if (paths.isEmpty()) {
+				return;
+			}
+			Throwable exc = awaitFutures(submitPrefetchFiles(paths));
+			if (exc != null) {
+				throw ObjectUtils.sneakyThrow(exc);
+			}
+		}
+
+		private List<Future<?>> submitPrefetchFiles(Collection<SakerPath> paths) {
+			List<Future<?>> result = new ArrayList<>(paths.size());
+			for (SakerPath path : paths) {
+				result.add(fileSynchronizationExecutor.submit(() -> prefetchFile(path)));
+			}
+			return result;
+		}
+
+		/**
+		 * Waits for all of the argument futures to complete.
+		 * <p>
+		 * The waiting is not interruptible, as the files may still be synchronized in the background otherwise. The
+		 * interrupted status of the thread is restored after the waiting.
+		 * 
+		 * @return The exception that was thrown by the tasks, or <code>null</code> if they completed successfully.
+		 */
+		private Throwable awaitFutures(List<Future<?>> futures) {
+			Throwable result = null;
+			boolean interrupted = false;
+			for (Future<?> f : futures) {
+				while (true) {
+					try {
+						f.get();
+					} catch (InterruptedException e) {
+						interrupted = true;
+						continue;
+					} catch (ExecutionException e) {
+						if (result == null) {
+							result = e.getCause();
+						} else {
+							result.addSuppressed(e.getCause());
+						}
+					}
+					break;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+			return result;
+		}
+
+		/**
+		 * Starts synchronizing the files at the given paths in the background.
+		 * 
+		 * @see #awaitPrefetchFiles()
+		 * @see #validateOptimisticReads()
+		 */
+		public void startPrefetchFiles(Collection<SakerPath> paths) {
+			prefetchFutures = submitPrefetchFiles(paths);
+		}
+
+		/**
+		 * Skips the synchronization of the files that are not yet started in the background.
+		 */
+		public void cancelPrefetchFiles() {
+			prefetchCancelled = true;
+		}
+
+		/**
+		 * Waits for the background synchronization that was started by {@link #startPrefetchFiles(Collection)}.
+		 */
+		public void awaitPrefetchFiles() {
+			List<Future<?>> futures = prefetchFutures;
+			prefetchFutures = Collections.emptyList();
+			Throwable exc = awaitFutures(futures);
+			if (exc != null) {
+				prefetchException = exc;
+			}
+		}
+
+		/**
+		 * Gets the exception that was thrown by the background synchronization.
+		 * 
+		 * @return The exception or <code>null</code> if the synchronization was successful.
+		 */
+		public Throwable getPrefetchException() {
+			return prefetchException;
+		}
+
+		/**
+		 * Selects the files that the test case can read without waiting for their synchronization.
+		 * <p>
+		 * These are the files that have the same contents as in the previous run of the test case, and are present on
+		 * the local file system.
+		 */
+		public void initOptimisticReads(NavigableMap<SakerPath, ? extends ContentDescriptor> prevreferencedfiles) {
+			Map<SakerPath, OptimisticRead> result = new HashMap<>();
+			for (Entry<SakerPath, ? extends ContentDescriptor> entry : prevreferencedfiles.entrySet()) {
+				ContentDescriptor prevcd = entry.getValue();
+				if (prevcd == null || prevcd instanceof NonExistentContentDescriptor) {
+					continue;
+				}
+				withTrackedLocalFile(entry.getKey(), (f, ppath, filesakerpath) -> {
+					if (f == null || f instanceof SakerDirectory || !prevcd.equals(f.getContentDescriptor())) {
+						return;
+					}
+					BasicFileAttributes attrs;
+					try {
+						attrs = Files.readAttributes(ppath, BasicFileAttributes.class);
+					} catch (IOException e) {
+						return;
+					}
+					if (attrs.isRegularFile()) {
+						result.put(filesakerpath, new OptimisticRead(ppath, prevcd, attrs));
+					}
+				});
+			}
+			optimisticReads = result;
+		}
+
+		@Override
+		public String[] getOptimisticReadPaths() {
+			Map<SakerPath, OptimisticRead> reads = optimisticReads;
+			if (reads.isEmpty()) {
+				return null;
+			}
+			String[] result = new String[reads.size()];
+			int i = 0;
+			for (OptimisticRead read : reads.values()) {
+				result[i++] = read.localPath.toString();
+			}
+			return result;
+		}
+
+		public Map<SakerPath, Path> getOptimisticReadLocalPaths() {
+			Map<SakerPath, Path> result = new TreeMap<>();
+			for (Entry<SakerPath, OptimisticRead> entry : optimisticReads.entrySet()) {
+				result.put(entry.getKey(), entry.getValue().localPath);
+			}
+			return result;
+		}
+
+		/**
+		 * Checks that the optimistically read files were not modified by the background synchronization.
+		 * <p>
+		 * {@link #awaitPrefetchFiles()} must be called before this.
+		 * 
+		 * @return <code>true</code> if the test case could read the appropriate file contents.
+		 */
+		public boolean validateOptimisticReads() {
+			return prefetchException == null && !optimisticReadsInvalidated;
+		}
+
+		private void prefetchFile(SakerPath filesakerpath) {
+			if (prefetchCancelled) {
+				return;
+			}
+			ContentDescriptor syncedcd = synchronizedFileContents.get(filesakerpath);
+			if (syncedcd != null) {
+				//no need to resolve the file for the already synchronized files
+				validateOptimisticRead(filesakerpath, syncedcd);
+				return;
+			}
+			withTrackedLocalFile(filesakerpath, (f, ppath, sakerpath) -> {
+				validateOptimisticRead(sakerpath, synchronizeFile(f, ppath, sakerpath));
+			});
+		}
+
+		private void validateOptimisticRead(SakerPath filesakerpath, ContentDescriptor syncedcd) {
+			OptimisticRead read = optimisticReads.get(filesakerpath);
+			if (read == null) {
+				return;
+			}
+			if (!read.contentDescriptor.equals(syncedcd)) {
+				optimisticReadsInvalidated = true;
+				return;
+			}
+			//if the synchronization modified the file, the test might've read the previous contents
+			//    this can also happen if the test writes the file, but that results in an unnecessary rerun at most
+			try {
+				BasicFileAttributes attrs = Files.readAttributes(read.localPath, BasicFileAttributes.class);
+				if (!read.isSameFile(attrs)) {
+					optimisticReadsInvalidated = true;
+				}
+			} catch (IOException e) {
+				optimisticReadsInvalidated = true;
+			}
+		}
+
+		private void withTrackedLocalFile(SakerPath filesakerpath, TriConsumer<SakerFile, Path, SakerPath> consumer) {
+			if (SakerPathFiles.hasPathOrParent(ignoreFileChanges, filesakerpath)) {
+				return;
+			}
+			for (SakerPath trackedpath : trackedDirectories.keySet()) {
+				if (!filesakerpath.startsWith(trackedpath)) {
+					continue;
+				}
+				//the actual local path, or the mirror path of the tracked directory
+				Path entrypath = pathResolver.getTrackedLocalPath(trackedpath);
+				if (entrypath == null) {
+					return;
 				}
+				SakerPath relmodpath = trackedpath.relativize(filesakerpath);
+				Path ppath = entrypath.resolve(relmodpath.toString()).normalize();
+				SakerFile f = SakerPathFiles.resolveAtRelativePath(workingDirectory, relmodpath);
+				consumer.accept(f, ppath, filesakerpath);
+				return;
 			}
 		}
 
@@ -1864,46 +2701,24 @@ public class IncrementalTestingHandler {
 		}
 
 		private void doWithFilePath(String path, TriConsumer<SakerFile, Path, SakerPath> consumer) {
-			Path ppath = toAbsoluteNormalizedAccessPath(path);
-			SakerPath unmirrored = executionContext.toUnmirrorPath(ppath);
-			SakerFile f = null;
-			SakerPath filesakerpath = null;
-			if (unmirrored != null) {
-				//the test is accessing a file inside the mirror directory
-				//check if the chosen directory is tracked
-				if (!SakerPathFiles.hasPathOrParent(trackedDirectories.navigableKeySet(), unmirrored)) {
-					return;
-				}
-				f = SakerPathFiles.resolveAtAbsolutePath(executionContext, unmirrored);
-				filesakerpath = unmirrored;
-			} else {
-				for (Entry<SakerPath, Path> entry : trackedDirectories.entrySet()) {
-					Path entrypath = entry.getValue();
-					if (entrypath == null) {
-						continue;
-					}
-					if (!ppath.startsWith(entrypath)) {
-						continue;
-					}
-					//the tracked directory is on the local filesystem
-					//the test is accessing a file inside the tracked directory
-					SakerPath relmodpath = SakerPath.valueOf(entrypath.relativize(ppath));
-					f = SakerPathFiles.resolveAtRelativePath(workingDirectory, relmodpath);
-					filesakerpath = workingDirectorySakerPath.resolve(relmodpath);
-					break;
-				}
-			}
-			if (filesakerpath == null) {
-				//no saker file found for the path
+			TestFilePathResolver.ResolvedPath resolved = pathResolver.resolve(path);
+			if (resolved == null) {
 				//not in a tracked directory
 				return;
 			}
-			if (SakerPathFiles.hasPathOrParent(ignoreFileChanges, filesakerpath)) {
+			if (resolved.isIgnored()) {
 				//don't perform any operations on files that are explicitly ignored for testing purposes
 				return;
 			}
-
-			consumer.accept(f, ppath, filesakerpath);
+			SakerPath trackedpath = resolved.getTrackedDirectoryPath();
+			SakerPath relmodpath = resolved.getRelativePath();
+			SakerFile f;
+			if (trackedpath.equals(workingDirectorySakerPath)) {
+				f = SakerPathFiles.resolveAtRelativePath(workingDirectory, relmodpath);
+			} else {
+				f = SakerPathFiles.resolveAtAbsolutePath(executionContext, trackedpath.resolve(relmodpath));
+			}
+			consumer.accept(f, resolved.getLocalPath(), resolved.getPath());
 		}
 
 		@Override
@@ -1921,12 +2736,32 @@ public class IncrementalTestingHandler {
 			});
 		}
 
+		@Override
+		public void requestFileStat(String path) {
+			doWithFilePath(path, (f, ppath, filesakerpath) -> {
+				ContentDescriptor cd = synchronizeFile(f, ppath, filesakerpath);
+				if (cd == null) {
+					return;
+				}
+				//only the existence of the file is depended on
+				callResult.statFiles.putIfAbsent(filesakerpath,
+						cd instanceof NonExistentContentDescriptor ? NonExistentContentDescriptor.INSTANCE
+								: CommonTaskContentDescriptors.PRESENT);
+			});
+		}
+
 		@Override
 		public void requestFileWrite(String path) {
 			//a read must precede a write request
 			Path ppath = toAbsoluteNormalizedAccessPath(path);
 			taskContext.invalidate(localFiles.getPathKey(ppath));
 			doWithFilePath(path, (f, diskpath, filesakerpath) -> {
+				//the file needs to be synchronized again for the next reader
+				synchronizedFileContents.remove(filesakerpath);
+				SakerPath parentpath = filesakerpath.getParent();
+				if (parentpath != null) {
+					synchronizedDirectoryChildren.remove(parentpath);
+				}
 				callResult.referencedFiles.put(filesakerpath, CONTENT_WROTE_MARKER);
 			});
 
@@ -1950,6 +2785,13 @@ public class IncrementalTestingHandler {
 
 		@Override
 		public void requestFileList(String path) {
+			doWithFilePath(path, (f, ppath, filesakerpath) -> {
+				synchronize(f, ppath, filesakerpath);
+				if (f instanceof SakerDirectory) {
+					synchronizeChildren((SakerDirectory) f, ppath, filesakerpath);
+				}
+			});
+
 //			doWithFilePath(path, (f, ppath, filemodpath) -> {
 //				NavigableSet<String> listed = listedDirectoryContents.get(filemodpath);
 //				if (listed == null) {
@@ -1978,23 +2820,76 @@ public class IncrementalTestingHandler {
 		}
 
 		private void synchronize(SakerFile f, Path path, SakerPath filesakerpath) {
-			if (filesakerpath == null
-					|| !SakerPathFiles.hasPathOrParent(trackedDirectories.navigableKeySet(), filesakerpath)) {
+			ContentDescriptor cd = synchronizeFile(f, path, filesakerpath);
+			if (cd != null) {
+				putReferencedFileIfAbsent(filesakerpath, cd);
+			}
+		}
+
+		/**
+		 * Synchronizes the children of a listed directory.
+		 * <p>
+		 * The children are not added to the referenced files, as the test case only listed them. The directory is
+		 * expected to be already synchronized.
+		 */
+		private void synchronizeChildren(SakerDirectory dir, Path path, SakerPath dirsakerpath) {
+			if (synchronizedDirectoryChildren.contains(dirsakerpath)) {
 				return;
 			}
-			Object lock = new Object();
-			synchronized (lock) {
-				Object prevlock = synchronizeLocks.putIfAbsent(filesakerpath, lock);
-				if (prevlock != null) {
-					synchronized (prevlock) {
-						//do nothing, but wait for the synchronization to finish by trying to enter the lock
+			//concurrent listings may synchronize the children at the same time
+			//    the children are synchronized only once, as the same synchronization cache is used for them
+			NavigableMap<String, ? extends SakerFile> children = dir.getChildren();
+			try (DirectoryStream<Path> ds = Files.newDirectoryStream(path)) {
+				//remove the leftover entries that are not present in the build file system
+				for (Path p : ds) {
+					if (children.containsKey(p.getFileName().toString())) {
+						continue;
 					}
-					putReferencedFileIfAbsent(filesakerpath,
-							f == null ? NonExistentContentDescriptor.INSTANCE : f.getContentDescriptor());
-					return;
+					localFiles.deleteRecursively(p);
+					taskContext.invalidate(localFiles.getPathKey(p));
+				}
+			} catch (IOException e) {
+				//XXX do not print exception?
+				e.printStackTrace();
+			}
+			for (Entry<String, ? extends SakerFile> entry : children.entrySet()) {
+				String name = entry.getKey();
+				synchronizeFile(entry.getValue(), path.resolve(name), dirsakerpath.resolve(name));
+			}
+			synchronizedDirectoryChildren.add(dirsakerpath);
+		}
+
+		/**
+		 * Synchronizes the file or directory to the given path, along with its parent directories.
+		 * <p>
+		 * The children of a directory are not synchronized.
+		 * 
+		 * @return The content descriptor of the synchronized file or <code>null</code> if it is not in a tracked
+		 *             directory.
+		 */
+		private ContentDescriptor synchronizeFile(SakerFile f, Path path, SakerPath filesakerpath) {
+			if (filesakerpath == null
+					|| !SakerPathFiles.hasPathOrParent(trackedDirectories.navigableKeySet(), filesakerpath)) {
+				return null;
+			}
+			ContentDescriptor syncedcd = synchronizedFileContents.get(filesakerpath);
+			if (syncedcd != null) {
+				return syncedcd;
+			}
+			if (f != null) {
+				//synchronize the parent before locking, so the striped locks are not nested
+				//    the parent is not referenced, only the files that the test case accesses
+				synchronizeFile(f.getParent(), path.getParent(), filesakerpath.getParent());
+			}
+			synchronized (getSynchronizeLock(filesakerpath)) {
+				syncedcd = synchronizedFileContents.get(filesakerpath);
+				if (syncedcd != null) {
+					//synchronized by a concurrent request
+					return syncedcd;
 				}
 				//TODO we should use NullContentDescriptor instead of non existent when the synchronization has failed?
 				ProviderHolderPathKey pathkey = localFiles.getPathKey(path);
+				ContentDescriptor cd;
 				if (f == null) {
 					try {
 						// make sure that there is no actual file present (maybe a leftover from something?)
@@ -2005,42 +2900,34 @@ public class IncrementalTestingHandler {
 						e.printStackTrace();
 					}
 					taskContext.invalidate(pathkey);
-					putReferencedFile(filesakerpath, NonExistentContentDescriptor.INSTANCE);
+					cd = NonExistentContentDescriptor.INSTANCE;
 //					listedDirectoryContents.put(filemodpath, LIST_SYNC_FAILED_MARKER_MAP);
-					return;
-				}
-				synchronize(f.getParent(), path.getParent(), filesakerpath.getParent());
-				if (f instanceof SakerDirectory) {
+				} else if (f instanceof SakerDirectory) {
 					try {
-						((SakerDirectory) f).synchronize(pathkey, DirectoryVisitPredicate.children());
+						//the children are synchronized when the directory is listed
+						((SakerDirectory) f).synchronize(pathkey, DirectoryVisitPredicate.synchronizeNothing());
 //						NavigableMap<String, SakerFile> syncedchildren = ((SakerDirectory) f).synchronizeChildren(pathkey, 1,
 //								Functionals.alwaysPredicate());
 //						listedDirectoryContents.put(filemodpath, new TreeSet<>(syncedchildren.navigableKeySet()));
-						putReferencedFile(filesakerpath, f.getContentDescriptor());
+						cd = f.getContentDescriptor();
 					} catch (IOException e) {
 						// TODO: handle exception
 						e.printStackTrace();
 //						listedDirectoryContents.put(filemodpath, LIST_SYNC_FAILED_MARKER_MAP);
-						putReferencedFile(filesakerpath, NonExistentContentDescriptor.INSTANCE);
+						cd = NonExistentContentDescriptor.INSTANCE;
 					}
 				} else {
 					try {
 						f.synchronize(pathkey);
-						putReferencedFile(filesakerpath, f.getContentDescriptor());
+						cd = f.getContentDescriptor();
 					} catch (IOException e) {
 						// TODO: handle exception
 						e.printStackTrace();
-						putReferencedFile(filesakerpath, NonExistentContentDescriptor.INSTANCE);
+						cd = NonExistentContentDescriptor.INSTANCE;
 					}
 				}
-			}
-		}
-
-		private void putReferencedFile(SakerPath path, ContentDescriptor cd) {
-			ContentDescriptor prev = callResult.referencedFiles.put(path, cd);
-			if (prev != null) {
-				throw new AssertionError(
-						"Content descriptor for path: " + path + " is added multiple times: " + prev + " - " + cd);
+				synchronizedFileContents.put(filesakerpath, cd);
+				return cd;
 			}
 		}
 
@@ -2106,10 +2993,30 @@ public class IncrementalTestingHandler {
 //		}
 	}
 
+	private static final class OptimisticRead {
+		protected final Path localPath;
+		protected final ContentDescriptor contentDescriptor;
+		protected final BasicFileAttributes attributes;
+
+		public OptimisticRead(Path localPath, ContentDescriptor contentDescriptor, BasicFileAttributes attributes) {
+			this.localPath = localPath;
+			this.contentDescriptor = contentDescriptor;
+			this.attributes = attributes;
+		}
+
+		public boolean isSameFile(BasicFileAttributes attrs) {
+			return attrs.isRegularFile() && attrs.size() == attributes.size()
+					&& attrs.lastModifiedTime().equals(attributes.lastModifiedTime())
+					&& Objects.equals(attrs.fileKey(), attributes.fileKey());
+		}
+	}
+
 	private static class TestCallResult {
 		protected JavaTestInvocationResult invocationResult;
+		protected NavigableSet<String> dependentClasses;
 		protected NavigableMap<SakerPath, ContentDescriptor> referencedFiles = new ConcurrentSkipListMap<>();
-		protected NavigableMap<String, NavigableMap<ReferencedFilePath, ContentDescriptor>> referencedClassLoaderResources = new ConcurrentSkipListMap<>();
+		protected NavigableMap<SakerPath, ContentDescriptor> statFiles = new ConcurrentSkipListMap<>();
+		protected NavigableMap<String, ClassLoaderResourceContents> referencedClassLoaderResources = new ConcurrentSkipListMap<>();
 //		protected NavigableMap<SakerPath, NavigableSet<String>> listedDirectories = new ConcurrentSkipListMap<>();
 
 		public TestCallResult() {
@@ -2123,15 +3030,27 @@ public class IncrementalTestingHandler {
 			return invocationResult;
 		}
 
+		public void setDependentClasses(NavigableSet<String> dependentClasses) {
+			this.dependentClasses = dependentClasses;
+		}
+
+		public NavigableSet<String> getDependentClasses() {
+			return dependentClasses;
+		}
+
 		public NavigableMap<SakerPath, ContentDescriptor> getReferencedFiles() {
 			return referencedFiles;
 		}
 
+		public NavigableMap<SakerPath, ContentDescriptor> getStatFiles() {
+			return statFiles;
+		}
+
 		public NavigableMap<String, ? extends NavigableSet<String>> getListedDirectories() {
 			return invocationResult.getListedDirectories();
 		}
 
-		public NavigableMap<String, NavigableMap<ReferencedFilePath, ContentDescriptor>> getReferencedClassLoaderResources() {
+		public NavigableMap<String, ClassLoaderResourceContents> getReferencedClassLoaderResources() {
 			return referencedClassLoaderResources;
 		}
 //		public NavigableMap<SakerPath, NavigableSet<String>> getListedDirectories() {
@@ -2140,33 +3059,150 @@ public class IncrementalTestingHandler {
 	}
 
 	private TestCallResult callTestWithClass(JavaTestingInvoker invoker, String classname, SakerDirectory worksakerdir,
-			Path testerworkingdir, NavigableMap<SakerPath, Path> trackeddirectories,
-			NavigableMap<ReferencedFilePath, ResourceDescriptorClassLoaderDataFinderSupplier> allclassfinders)
-			throws JavaTestRunnerFailureException, Exception {
+			Path testerworkingdir, TestFilePathResolver pathresolver, ClassLoaderResourceIndex classloaderresources,
+			IncrementalTestCaseResult prevtc) throws JavaTestRunnerFailureException, Exception {
 		Map<String, String> userparams = new TreeMap<>();
-		for (Entry<Predicate<String>, Map<String, String>> entry : testClassParameters.entrySet()) {
-			if (entry.getKey().test(classname)) {
-				userparams.putAll(entry.getValue());
+		if (!testClassParameters.isEmpty()) {
+			BitSet matches = new BitSet();
+			if (testClassParametersMatcher.match(classname, matches)) {
+				for (int i = matches.nextSetBit(0); i >= 0; i = matches.nextSetBit(i + 1)) {
+					userparams.putAll(testClassParameters.get(i));
+				}
 			}
 		}
 		TestInvocationParameters parameters = new TestInvocationParameters(classname, userparams);
 
-		TestCallResult callresult = new TestCallResult();
-		JavaTestingFileProvider fileprovider = createTestingFileProvider(executionContext, worksakerdir,
-				testerworkingdir, callresult, trackeddirectories, allclassfinders);
-		JavaTestInvocationResult invocationresult = invoker.invokeTest(fileprovider, parameters);
-		Integer exitcode = invocationresult.getExitCode();
+		Collection<SakerPath> prefetchpaths = getPrefetchPaths(prevtc);
+		boolean optimistic = optimisticFileSynchronization && !prefetchpaths.isEmpty();
+		while (true) {
+			TestCallResult callresult = new TestCallResult();
+			SynchronizingTestingFileProvider fileprovider = createTestingFileProvider(executionContext, worksakerdir,
+					testerworkingdir, callresult, pathresolver, classloaderresources);
+			if (optimistic) {
+				fileprovider.initOptimisticReads(prevtc.getReferencedFiles());
+				if (TestFlag.ENABLED) {
+					TestFlag.metric().javaTestOptimisticReads(classname, fileprovider.getOptimisticReadLocalPaths());
+				}
+				//the test doesn't wait for the optimistically readable files, they are validated after the test
+				fileprovider.startPrefetchFiles(prefetchpaths);
+			} else {
+				//synchronize the files before the test accesses them, so the requests from the test JVM don't wait for it
+				fileprovider.prefetchFiles(prefetchpaths);
+			}
+			JavaTestInvocationResult invocationresult = null;
+			try {
+				invocationresult = invoker.invokeTest(fileprovider, parameters);
+			} finally {
+				if (invocationresult == null) {
+					//the files don't need to be synchronized if the invocation failed
+					fileprovider.cancelPrefetchFiles();
+				}
+				//don't leave the synchronization running in the background after the test
+				fileprovider.awaitPrefetchFiles();
+			}
+			//resolve the dependent classes even if the result is discarded, to keep the class name dictionary in sync
+			NavigableSet<String> dependentclasses = resolveDependentClasses(invoker, invocationresult);
+			Throwable prefetchexc = fileprovider.getPrefetchException();
+			if (prefetchexc != null) {
+				SakerLog.warning()
+						.println("Failed to synchronize files for test: " + classname + " (" + prefetchexc + ")");
+			}
+			if (optimistic && !fileprovider.validateOptimisticReads()) {
+				//the test may have read some files before they were synchronized
+				if (verbose) {
+					SakerLog.info().verbose().println("Rerunning test: " + classname
+							+ " as its optimistically read files were modified by the synchronization.");
+				}
+				if (TestFlag.ENABLED) {
+					TestFlag.metric().javaTestOptimisticReadRerun(classname);
+				}
+				optimistic = false;
+				continue;
+			}
+			Integer exitcode = invocationresult.getExitCode();
+
+			if (exitcode != null) {
+				invocationresult.setSuccessful(successExitCodes.contains(exitcode));
+			}
+
+//			dependentclasses.retainAll(retainClassNames);
+			dependentclasses.add(internClassName(classname));
+
+			callresult.setInvocationResult(invocationresult);
+			callresult.setDependentClasses(dependentclasses);
+			return callresult;
+		}
+	}
+
+	private NavigableSet<String> resolveDependentClasses(JavaTestingInvoker invoker,
+			JavaTestInvocationResult invocationresult) {
+		NavigableSet<String> result = new TreeSet<>();
+		int[] indices = invocationresult.getDependentClassIndices();
+		if (indices == null) {
+			Set<String> dependentclasses = invocationresult.getDependentClasses();
+			if (dependentclasses != null) {
+				for (String cname : dependentclasses) {
+					result.add(internClassName(cname));
+				}
+			}
+			return result;
+		}
+		InvokerClassNameDictionary dictionary = invokerClassNameDictionaries.get(invoker);
+		if (dictionary == null) {
+			throw new IllegalStateException("No class name dictionary for test invoker.");
+		}
+		dictionary.resolve(this, invoker, invocationresult, indices, result);
+		return result;
+	}
+
+	private String internClassName(String classname) {
+		String prev = internedClassNames.putIfAbsent(classname, classname);
+		return prev == null ? classname : prev;
+	}
 
-		if (exitcode != null) {
-			invocationresult.setSuccessful(successExitCodes.contains(exitcode));
+	/**
+	 * Host side copy of the dependent class name dictionary of a test invoker.
+	 * 
+	 * @see JavaTestInvocationResult#setDependentClassIndices(int[], int, String[])
+	 */
+	private static final class InvokerClassNameDictionary {
+		private final List<String> names = new ArrayList<>();
+
+		public InvokerClassNameDictionary() {
 		}
 
-		Set<String> dependentclasses = invocationresult.getDependentClasses();
-//		dependentclasses.retainAll(retainClassNames);
-		dependentclasses.add(classname);
+		public synchronized void resolve(IncrementalTestingHandler handler, JavaTestingInvoker invoker,
+				JavaTestInvocationResult invocationresult, int[] indices, Collection<? super String> result) {
+			addNames(handler, invocationresult.getClassNameDictionaryOffset(), invocationresult.getAddedClassNames());
+			int maxindex = -1;
+			for (int idx : indices) {
+				if (idx > maxindex) {
+					maxindex = idx;
+				}
+			}
+			if (maxindex >= names.size()) {
+				//some names are missing, e.g. a previous result failed to be transferred
+				int size = names.size();
+				addNames(handler, size, invoker.getDependentClassNames(size));
+				if (maxindex >= names.size()) {
+					throw new IllegalStateException("Dependent class index out of range: " + maxindex
+							+ " for dictionary size: " + names.size());
+				}
+			}
+			for (int idx : indices) {
+				result.add(names.get(idx));
+			}
+		}
 
-		callresult.setInvocationResult(invocationresult);
-		return callresult;
+		private void addNames(IncrementalTestingHandler handler, int offset, String[] addednames) {
+			if (addednames == null || offset > names.size()) {
+				//can't append to the dictionary, the missing names are requested if necessary
+				return;
+			}
+			for (int i = names.size() - offset; i < addednames.length; i++) {
+				names.add(handler.internClassName(addednames[i]));
+			}
+		}
 	}
 
 //	private Path getWorkingDirectoryPath() {
@@ -19,13 +19,20 @@ import java.io.Externalizable;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.NavigableMap;
 import java.util.NavigableSet;
 import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentSkipListMap;
 
@@ -132,11 +139,537 @@ public class IncrementalTestingInfo implements Externalizable {
 
 	}
 
+	/**
+	 * The contents of a class loader resource in the class path entries.
+	 * <p>
+	 * Only the entries that contain the resource are recorded, by their index in the {@link ClassPathLayout}. The
+	 * entries that are tracked as a whole (e.g. JARs) are not recorded, as they are part of the layout.
+	 */
+	public static final class ClassLoaderResourceContents implements Externalizable {
+		private static final long serialVersionUID = 1L;
+
+		private int[] indices;
+		private ContentDescriptor[] contents;
+
+		/**
+		 * For {@link Externalizable}.
+		 */
+		public ClassLoaderResourceContents() {
+		}
+
+		public ClassLoaderResourceContents(int[] indices, ContentDescriptor[] contents) {
+			this.indices = indices;
+			this.contents = contents;
+		}
+
+		/**
+		 * Checks if the resource contents changed compared to the previous contents.
+		 * 
+		 * @param prev
+		 *            The previous contents, recorded with the same class path layout.
+		 * @return <code>true</code> if changed.
+		 */
+		public boolean isChanged(ClassLoaderResourceContents prev) {
+			if (!Arrays.equals(indices, prev.indices)) {
+				return true;
+			}
+			for (int i = 0; i < contents.length; i++) {
+				if (contents[i].isChanged(prev.contents[i])) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public void writeExternal(ObjectOutput out) throws IOException {
+			out.writeInt(indices.length);
+			for (int i = 0; i < indices.length; i++) {
+				out.writeInt(indices[i]);
+				out.writeObject(contents[i]);
+			}
+		}
+
+		@Override
+		public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+			int len = in.readInt();
+			indices = new int[len];
+			contents = new ContentDescriptor[len];
+			for (int i = 0; i < len; i++) {
+				indices[i] = in.readInt();
+				contents[i] = (ContentDescriptor) in.readObject();
+			}
+		}
+
+		@Override
+		public String toString() {
+			return getClass().getSimpleName() + "[" + Arrays.toString(indices) + "]";
+		}
+	}
+
+	/**
+	 * The ordered class path entries that are used to look up the class loader resources.
+	 * <p>
+	 * The layout has an identifier that is recorded in the test cases along with their
+	 * {@linkplain ClassLoaderResourceContents resource contents}. The identifier is kept between builds if the layout
+	 * doesn't change.
+	 */
+	public static final class ClassPathLayout implements Externalizable {
+		private static final long serialVersionUID = 1L;
+
+		private long identifier;
+		private ReferencedFilePath[] entries;
+		/**
+		 * The content descriptors of the entries that are tracked as a whole. The elements may be <code>null</code>.
+		 */
+		private ContentDescriptor[] contents;
+
+		/**
+		 * For {@link Externalizable}.
+		 */
+		public ClassPathLayout() {
+		}
+
+		public ClassPathLayout(ReferencedFilePath[] entries, ContentDescriptor[] contents) {
+			this.entries = entries;
+			this.contents = contents;
+		}
+
+		public long getIdentifier() {
+			return identifier;
+		}
+
+		/**
+		 * Assigns the identifier of the layout based on the layout of the previous build.
+		 * 
+		 * @param prev
+		 *            The previous layout or <code>null</code>.
+		 */
+		public void assignIdentifier(ClassPathLayout prev) {
+			if (prev == null) {
+				identifier = 0;
+			} else if (isChanged(prev)) {
+				identifier = prev.identifier + 1;
+			} else {
+				identifier = prev.identifier;
+			}
+		}
+
+		private boolean isChanged(ClassPathLayout prev) {
+			if (!Arrays.equals(entries, prev.entries)) {
+				return true;
+			}
+			for (int i = 0; i < contents.length; i++) {
+				ContentDescriptor cd = contents[i];
+				ContentDescriptor prevcd = prev.contents[i];
+				if (cd == null ? prevcd != null : (prevcd == null || cd.isChanged(prevcd))) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public void writeExternal(ObjectOutput out) throws IOException {
+			out.writeLong(identifier);
+			out.writeInt(entries.length);
+			for (int i = 0; i < entries.length; i++) {
+				out.writeObject(entries[i]);
+				out.writeObject(contents[i]);
+			}
+		}
+
+		@Override
+		public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+			identifier = in.readLong();
+			int len = in.readInt();
+			entries = new ReferencedFilePath[len];
+			contents = new ContentDescriptor[len];
+			for (int i = 0; i < len; i++) {
+				entries[i] = (ReferencedFilePath) in.readObject();
+				contents[i] = (ContentDescriptor) in.readObject();
+			}
+		}
+
+		@Override
+		public String toString() {
+			return getClass().getSimpleName() + "[" + identifier + ": " + entries.length + " entries]";
+		}
+	}
+
+	/**
+	 * Inverted index of the class dependencies of the test cases.
+	 * <p>
+	 * The test cases are assigned integer identifiers, and the index maps the dependent class names to the set of
+	 * test identifiers that depend on them. The index is maintained incrementally between builds, only the test cases
+	 * that were rerun, added, or removed are updated in it.
+	 */
+	public static final class TestDependencyIndex implements Externalizable {
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The test case paths by their identifiers. The elements are <code>null</code> for unused identifiers.
+		 */
+		private ReferencedFilePath[] tests;
+		private NavigableMap<String, BitSet> dependentTests;
+
+		private transient Map<ReferencedFilePath, Integer> testIds;
+
+		/**
+		 * For {@link Externalizable}.
+		 */
+		public TestDependencyIndex() {
+		}
+
+		private TestDependencyIndex(ReferencedFilePath[] tests, NavigableMap<String, BitSet> dependentTests) {
+			this.tests = tests;
+			this.dependentTests = dependentTests;
+			this.testIds = createTestIds(tests);
+		}
+
+		/**
+		 * Creates the index for the given test cases based on the index of the previous build.
+		 * <p>
+		 * The test cases that are the same instances as in the previous build are not reindexed.
+		 * 
+		 * @param prev
+		 *            The previous index or <code>null</code>.
+		 * @param prevtestcases
+		 *            The test cases that the previous index was created for.
+		 * @param testcases
+		 *            The current test cases.
+		 * @return The created index.
+		 */
+		public static TestDependencyIndex create(TestDependencyIndex prev,
+				Map<ReferencedFilePath, IncrementalTestCaseResult> prevtestcases,
+				Map<ReferencedFilePath, IncrementalTestCaseResult> testcases) {
+			Map<ReferencedFilePath, Integer> ids;
+			ReferencedFilePath[] tests;
+			NavigableMap<String, BitSet> dependents = new TreeMap<>();
+			BitSet freeids = new BitSet();
+			if (prev == null) {
+				prevtestcases = Collections.emptyMap();
+				ids = new HashMap<>();
+				tests = new ReferencedFilePath[testcases.size()];
+				freeids.set(0, tests.length);
+			} else {
+				ids = new HashMap<>(prev.testIds);
+				tests = Arrays.copyOf(prev.tests, Math.max(prev.tests.length, testcases.size()));
+				for (int i = 0; i < tests.length; i++) {
+					if (tests[i] == null) {
+						freeids.set(i);
+					}
+				}
+				for (Entry<String, BitSet> entry : prev.dependentTests.entrySet()) {
+					dependents.put(entry.getKey(), (BitSet) entry.getValue().clone());
+				}
+				for (Entry<ReferencedFilePath, Integer> entry : prev.testIds.entrySet()) {
+					ReferencedFilePath path = entry.getKey();
+					IncrementalTestCaseResult tc = testcases.get(path);
+					IncrementalTestCaseResult prevtc = prevtestcases.get(path);
+					if (tc != null && tc == prevtc) {
+						//unchanged
+						continue;
+					}
+					int id = entry.getValue();
+					if (prevtc != null) {
+						removeDependentTest(dependents, prevtc.getDependentClassNames(), id);
+					}
+					if (tc == null) {
+						tests[id] = null;
+						ids.remove(path);
+						freeids.set(id);
+					}
+				}
+			}
+			for (IncrementalTestCaseResult tc : testcases.values()) {
+				ReferencedFilePath path = tc.getClassFilePath();
+				Integer id = ids.get(path);
+				if (id == null) {
+					int nid = freeids.nextSetBit(0);
+					if (nid < 0) {
+						nid = tests.length;
+						tests = Arrays.copyOf(tests, tests.length * 2 + 1);
+						freeids.set(nid + 1, tests.length);
+					} else {
+						freeids.clear(nid);
+					}
+					tests[nid] = path;
+					ids.put(path, nid);
+					id = nid;
+				} else if (tc == prevtestcases.get(path)) {
+					//unchanged
+					continue;
+				}
+				addDependentTest(dependents, tc.getDependentClassNames(), id);
+			}
+			//trim the trailing unused identifiers
+			int len = tests.length;
+			while (len > 0 && tests[len - 1] == null) {
+				--len;
+			}
+			if (len != tests.length) {
+				tests = Arrays.copyOf(tests, len);
+			}
+			return new TestDependencyIndex(tests, dependents);
+		}
+
+		/**
+		 * Gets the identifier of the test case with the given path.
+		 * 
+		 * @return The identifier or -1 if the test case is not indexed.
+		 */
+		public int getTestId(ReferencedFilePath testpath) {
+			Integer id = testIds.get(testpath);
+			if (id == null) {
+				return -1;
+			}
+			return id;
+		}
+
+		/**
+		 * Gets the identifiers of the test cases that depend on any of the given classes.
+		 */
+		public BitSet getDependentTests(Collection<String> classnames) {
+			BitSet result = new BitSet();
+			for (String cname : classnames) {
+				BitSet tests = dependentTests.get(cname);
+				if (tests != null) {
+					result.or(tests);
+				}
+			}
+			return result;
+		}
+
+		private static void addDependentTest(NavigableMap<String, BitSet> dependents, Set<String> classnames,
+				int id) {
+			if (classnames == null) {
+				return;
+			}
+			for (String cname : classnames) {
+				dependents.computeIfAbsent(cname, x -> new BitSet()).set(id);
+			}
+		}
+
+		private static void removeDependentTest(NavigableMap<String, BitSet> dependents, Set<String> classnames,
+				int id) {
+			if (classnames == null) {
+				return;
+			}
+			for (String cname : classnames) {
+				BitSet tests = dependents.get(cname);
+				if (tests == null) {
+					continue;
+				}
+				tests.clear(id);
+				if (tests.isEmpty()) {
+					dependents.remove(cname);
+				}
+			}
+		}
+
+		private static Map<ReferencedFilePath, Integer> createTestIds(ReferencedFilePath[] tests) {
+			Map<ReferencedFilePath, Integer> result = new HashMap<>();
+			for (int i = 0; i < tests.length; i++) {
+				if (tests[i] != null) {
+					result.put(tests[i], i);
+				}
+			}
+			return result;
+		}
+
+		@Override
+		public void writeExternal(ObjectOutput out) throws IOException {
+			out.writeInt(tests.length);
+			for (ReferencedFilePath path : tests) {
+				out.writeObject(path);
+			}
+			out.writeInt(dependentTests.size());
+			for (Entry<String, BitSet> entry : dependentTests.entrySet()) {
+				out.writeUTF(entry.getKey());
+				long[] words = entry.getValue().toLongArray();
+				out.writeInt(words.length);
+				for (long w : words) {
+					out.writeLong(w);
+				}
+			}
+		}
+
+		@Override
+		public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+			int len = in.readInt();
+			tests = new ReferencedFilePath[len];
+			for (int i = 0; i < len; i++) {
+				tests[i] = (ReferencedFilePath) in.readObject();
+			}
+			dependentTests = new TreeMap<>();
+			int size = in.readInt();
+			for (int i = 0; i < size; i++) {
+				String cname = in.readUTF();
+				long[] words = new long[in.readInt()];
+				for (int j = 0; j < words.length; j++) {
+					words[j] = in.readLong();
+				}
+				dependentTests.put(cname, BitSet.valueOf(words));
+			}
+			testIds = createTestIds(tests);
+		}
+
+		@Override
+		public String toString() {
+			return getClass().getSimpleName() + "[" + testIds.size() + " tests, " + dependentTests.size()
+					+ " classes]";
+		}
+	}
+
+	/**
+	 * The test cases in the content groups of the reported input file dependencies.
+	 * <p>
+	 * The test cases that referenced a path with the same contents are in the same group. The group indices are the
+	 * ones in the tags of the reported dependencies, so the test cases affected by a change can be looked up without
+	 * comparing the contents again.
+	 */
+	public static final class InputDependencyGroups implements Externalizable {
+		private static final long serialVersionUID = 1L;
+
+		private NavigableMap<SakerPath, List<NavigableSet<ReferencedFilePath>>> fileGroups;
+		private NavigableMap<SakerPath, List<NavigableSet<ReferencedFilePath>>> directoryGroups;
+
+		/**
+		 * For {@link Externalizable}.
+		 */
+		public InputDependencyGroups() {
+		}
+
+		public InputDependencyGroups(NavigableMap<SakerPath, List<NavigableSet<ReferencedFilePath>>> fileGroups,
+				NavigableMap<SakerPath, List<NavigableSet<ReferencedFilePath>>> directoryGroups) {
+			this.fileGroups = fileGroups;
+			this.directoryGroups = directoryGroups;
+		}
+
+		/**
+		 * Gets the test cases that referenced the file with the contents of the given group.
+		 */
+		public NavigableSet<ReferencedFilePath> getFileGroupTests(SakerPath path, int group) {
+			return getGroupTests(fileGroups, path, group);
+		}
+
+		/**
+		 * Gets the test cases that listed the directory with the contents of the given group.
+		 */
+		public NavigableSet<ReferencedFilePath> getDirectoryGroupTests(SakerPath path, int group) {
+			return getGroupTests(directoryGroups, path, group);
+		}
+
+		@Override
+		public void writeExternal(ObjectOutput out) throws IOException {
+			writeGroups(out, fileGroups);
+			writeGroups(out, directoryGroups);
+		}
+
+		@Override
+		public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+			fileGroups = readGroups(in);
+			directoryGroups = readGroups(in);
+		}
+
+		@Override
+		public String toString() {
+			return getClass().getSimpleName() + "[files=" + fileGroups.size() + ", directories="
+					+ directoryGroups.size() + "]";
+		}
+
+		private static NavigableSet<ReferencedFilePath> getGroupTests(
+				NavigableMap<SakerPath, List<NavigableSet<ReferencedFilePath>>> groups, SakerPath path, int group) {
+			List<NavigableSet<ReferencedFilePath>> pathgroups = groups.get(path);
+			if (pathgroups == null || group < 0 || group >= pathgroups.size()) {
+				return Collections.emptyNavigableSet();
+			}
+			return pathgroups.get(group);
+		}
+
+		private static void writeGroups(ObjectOutput out,
+				NavigableMap<SakerPath, List<NavigableSet<ReferencedFilePath>>> groups) throws IOException {
+			out.writeInt(groups.size());
+			for (Entry<SakerPath, List<NavigableSet<ReferencedFilePath>>> entry : groups.entrySet()) {
+				out.writeObject(entry.getKey());
+				List<NavigableSet<ReferencedFilePath>> pathgroups = entry.getValue();
+				out.writeInt(pathgroups.size());
+				for (NavigableSet<ReferencedFilePath> tests : pathgroups) {
+					SerialUtils.writeExternalCollection(out, tests);
+				}
+			}
+		}
+
+		private static NavigableMap<SakerPath, List<NavigableSet<ReferencedFilePath>>> readGroups(ObjectInput in)
+				throws IOException, ClassNotFoundException {
+			NavigableMap<SakerPath, List<NavigableSet<ReferencedFilePath>>> result = new TreeMap<>();
+			for (int size = in.readInt(); size > 0; --size) {
+				SakerPath path = (SakerPath) in.readObject();
+				int groupcount = in.readInt();
+				List<NavigableSet<ReferencedFilePath>> pathgroups = new ArrayList<>(groupcount);
+				for (int i = 0; i < groupcount; i++) {
+					pathgroups.add(SerialUtils.readExternalSortedImmutableNavigableSet(in));
+				}
+				result.put(path, pathgroups);
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * The debug information insensitive hash of a class file, along with the content descriptor of the class file that
+	 * it was computed from.
+	 */
+	public static final class ClassContentHash implements Externalizable {
+		private static final long serialVersionUID = 1L;
+
+		private ContentDescriptor contentDescriptor;
+		private byte[] hash;
+
+		/**
+		 * For {@link Externalizable}.
+		 */
+		public ClassContentHash() {
+		}
+
+		public ClassContentHash(ContentDescriptor contentDescriptor, byte[] hash) {
+			this.contentDescriptor = contentDescriptor;
+			this.hash = hash;
+		}
+
+		public ContentDescriptor getContentDescriptor() {
+			return contentDescriptor;
+		}
+
+		public boolean isSameHash(ClassContentHash other) {
+			return Arrays.equals(hash, other.hash);
+		}
+
+		@Override
+		public void writeExternal(ObjectOutput out) throws IOException {
+			out.writeObject(contentDescriptor);
+			out.writeObject(hash);
+		}
+
+		@Override
+		public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+			contentDescriptor = (ContentDescriptor) in.readObject();
+			hash = (byte[]) in.readObject();
+		}
+
+		@Override
+		public String toString() {
+			return getClass().getSimpleName() + "[" + contentDescriptor + "]";
+		}
+	}
+
 	public static class IncrementalTestCaseResult implements Externalizable {
 		private static final long serialVersionUID = 1L;
 
 		private String className;
 		private NavigableSet<String> dependentClasses;
+		private NavigableMap<String, ? extends NavigableSet<String>> dependentMethods;
 		private ReferencedFilePath classFilePath;
 		private TestCaseState state = TestCaseState.NEW;
 		private String failInformation;
@@ -144,7 +677,8 @@ public class IncrementalTestingInfo implements Externalizable {
 
 		private NavigableMap<SakerPath, ? extends ContentDescriptor> referencedFiles;
 		private NavigableMap<SakerPath, ? extends NavigableSet<String>> referencedDirectories;
-		private NavigableMap<String, ? extends NavigableMap<ReferencedFilePath, ? extends ContentDescriptor>> referencedClassLoaderResources;
+		private NavigableMap<String, ClassLoaderResourceContents> referencedClassLoaderResources;
+		private long classPathLayoutIdentifier = -1;
 
 		/**
 		 * For {@link Externalizable}.
@@ -163,9 +697,15 @@ public class IncrementalTestingInfo implements Externalizable {
 			this.dependentClasses = dependentClasses;
 		}
 
+		public void setDependentMethods(NavigableMap<String, ? extends NavigableSet<String>> dependentMethods) {
+			this.dependentMethods = dependentMethods;
+		}
+
 		public void setReferencedClassLoaderResources(
-				NavigableMap<String, ? extends NavigableMap<ReferencedFilePath, ? extends ContentDescriptor>> accessedClassLoaderResources) {
+				NavigableMap<String, ClassLoaderResourceContents> accessedClassLoaderResources,
+				long classPathLayoutIdentifier) {
 			this.referencedClassLoaderResources = accessedClassLoaderResources;
+			this.classPathLayoutIdentifier = classPathLayoutIdentifier;
 		}
 
 		public void setReferencedFiles(NavigableMap<SakerPath, ? extends ContentDescriptor> referencedFiles) {
@@ -185,10 +725,17 @@ public class IncrementalTestingInfo implements Externalizable {
 			return referencedFiles;
 		}
 
-		public NavigableMap<String, ? extends NavigableMap<ReferencedFilePath, ? extends ContentDescriptor>> getReferencedClassLoaderResources() {
+		public NavigableMap<String, ClassLoaderResourceContents> getReferencedClassLoaderResources() {
 			return referencedClassLoaderResources;
 		}
 
+		/**
+		 * Gets the identifier of the {@link ClassPathLayout} that the class loader resources were recorded with.
+		 */
+		public long getClassPathLayoutIdentifier() {
+			return classPathLayoutIdentifier;
+		}
+
 		public NavigableMap<SakerPath, ? extends NavigableSet<String>> getReferencedDirectories() {
 			return referencedDirectories;
 		}
@@ -205,6 +752,10 @@ public class IncrementalTestingInfo implements Externalizable {
 			return dependentClasses;
 		}
 
+		public NavigableMap<String, ? extends NavigableSet<String>> getDependentMethods() {
+			return dependentMethods;
+		}
+
 		public boolean isSuccessful() {
 			return state == TestCaseState.SUCCESSFUL;
 		}
@@ -235,13 +786,15 @@ public class IncrementalTestingInfo implements Externalizable {
 			SerialUtils.writeExternalCollection(out, dependentClasses);
 			SerialUtils.writeExternalMap(out, referencedFiles);
 			SerialUtils.writeExternalMap(out, referencedDirectories);
-			SerialUtils.writeExternalMap(out, referencedClassLoaderResources, ObjectOutput::writeObject,
-					SerialUtils::writeExternalMap);
+			SerialUtils.writeExternalMap(out, referencedClassLoaderResources);
+			out.writeLong(classPathLayoutIdentifier);
 			out.writeObject(classFilePath);
 			out.writeObject(state);
 
 			out.writeObject(failInformation);
 			out.writeLong(executionMilliSeconds);
+			SerialUtils.writeExternalMap(out, dependentMethods, ObjectOutput::writeUTF,
+					SerialUtils::writeExternalCollection);
 		}
 
 		@Override
@@ -250,13 +803,15 @@ public class IncrementalTestingInfo implements Externalizable {
 			dependentClasses = SerialUtils.readExternalSortedImmutableNavigableSet(in);
 			referencedFiles = SerialUtils.readExternalSortedImmutableNavigableMap(in);
 			referencedDirectories = SerialUtils.readExternalSortedImmutableNavigableMap(in);
-			referencedClassLoaderResources = SerialUtils.readExternalSortedImmutableNavigableMap(in,
-					SerialUtils::readExternalObject, SerialUtils::readExternalImmutableNavigableMap);
+			referencedClassLoaderResources = SerialUtils.readExternalSortedImmutableNavigableMap(in);
+			classPathLayoutIdentifier = in.readLong();
 			classFilePath = (ReferencedFilePath) in.readObject();
 			state = (TestCaseState) in.readObject();
 
 			failInformation = (String) in.readObject();
 			executionMilliSeconds = in.readLong();
+			dependentMethods = SerialUtils.readExternalSortedImmutableNavigableMap(in, ObjectInput::readUTF,
+					SerialUtils::readExternalSortedImmutableNavigableSet);
 		}
 
 		@Override
@@ -310,6 +865,12 @@ public class IncrementalTestingInfo implements Externalizable {
 
 	private NavigableMap<ReferencedFilePath, IncrementalTestCaseResult> testCasesByPath = new ConcurrentSkipListMap<>();
 	private NavigableMap<SakerPath, ClassInfo> classContentsByPath = new ConcurrentSkipListMap<>();
+	private NavigableMap<String, ClassMemberHashes> classMemberHashes = new ConcurrentSkipListMap<>();
+	private ClassPathLayout classPathLayout;
+	private TestDependencyIndex testDependencyIndex;
+	private NavigableMap<String, ClassContentHash> classContentHashes = new ConcurrentSkipListMap<>();
+	private InputDependencyGroups inputDependencyGroups = new InputDependencyGroups(Collections.emptyNavigableMap(),
+			Collections.emptyNavigableMap());
 
 	private Map<? extends FileLocation, ? extends ContentDescriptor> testRunnerClassPathFiles = Collections.emptyMap();
 
@@ -401,6 +962,53 @@ public class IncrementalTestingInfo implements Externalizable {
 		return classContentsByPath;
 	}
 
+	/**
+	 * Gets the member hashes of the classes that have method level dependencies in any of the test cases.
+	 */
+	public NavigableMap<String, ClassMemberHashes> getClassMemberHashes() {
+		return classMemberHashes;
+	}
+
+	/**
+	 * Gets the layout of the class path that is used to look up the class loader resources.
+	 */
+	public ClassPathLayout getClassPathLayout() {
+		return classPathLayout;
+	}
+
+	public void setClassPathLayout(ClassPathLayout classPathLayout) {
+		this.classPathLayout = classPathLayout;
+	}
+
+	/**
+	 * Gets the class dependency index of the test cases in this info.
+	 */
+	public TestDependencyIndex getTestDependencyIndex() {
+		return testDependencyIndex;
+	}
+
+	public void setTestDependencyIndex(TestDependencyIndex testDependencyIndex) {
+		this.testDependencyIndex = testDependencyIndex;
+	}
+
+	/**
+	 * Gets the debug information insensitive hashes of the classes if the debug information changes are ignored.
+	 */
+	public NavigableMap<String, ClassContentHash> getClassContentHashes() {
+		return classContentHashes;
+	}
+
+	/**
+	 * Gets the content groups of the input file dependencies that were reported for the test cases.
+	 */
+	public InputDependencyGroups getInputDependencyGroups() {
+		return inputDependencyGroups;
+	}
+
+	public void setInputDependencyGroups(InputDependencyGroups inputDependencyGroups) {
+		this.inputDependencyGroups = inputDependencyGroups;
+	}
+
 	public void addTestCase(IncrementalTestCaseResult testcase) {
 		testCasesByPath.put(testcase.classFilePath, testcase);
 	}
@@ -432,6 +1040,11 @@ public class IncrementalTestingInfo implements Externalizable {
 		SerialUtils.writeExternalMap(out, userClassPathFiles);
 		SerialUtils.writeExternalMap(out, testClassPathFiles);
 		SerialUtils.writeExternalMap(out, dependencyClassPathFiles);
+		SerialUtils.writeExternalMap(out, classMemberHashes);
+		out.writeObject(classPathLayout);
+		out.writeObject(testDependencyIndex);
+		SerialUtils.writeExternalMap(out, classContentHashes);
+		out.writeObject(inputDependencyGroups);
 	}
 
 	@Override
@@ -443,5 +1056,10 @@ public class IncrementalTestingInfo implements Externalizable {
 		userClassPathFiles = SerialUtils.readExternalSortedImmutableNavigableMap(in);
 		testClassPathFiles = SerialUtils.readExternalSortedImmutableNavigableMap(in);
 		dependencyClassPathFiles = SerialUtils.readExternalSortedImmutableNavigableMap(in);
+		classMemberHashes = SerialUtils.readExternalSortedImmutableNavigableMap(in);
+		classPathLayout = (ClassPathLayout) in.readObject();
+		testDependencyIndex = (TestDependencyIndex) in.readObject();
+		classContentHashes = SerialUtils.readExternalSortedImmutableNavigableMap(in);
+		inputDependencyGroups = (InputDependencyGroups) in.readObject();
 	}
 }
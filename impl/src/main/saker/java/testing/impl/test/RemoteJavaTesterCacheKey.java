@@ -47,6 +47,13 @@ public class RemoteJavaTesterCacheKey implements CacheKey<RemoteTester, RemoteJa
 	public static final boolean COLLECT_RMI_STATS = saker.build.meta.Versions.VERSION_FULL_COMPOUND >= 8_015
 			&& (System.getProperty(PropertyNames.PROPERTY_COLLECT_RMI_STATISTICS) != null || TestFlag.ENABLED);
 
+	/**
+	 * The system property that specifies the transformed class cache directory for the testing agent.
+	 * <p>
+	 * Must be the same as <code>TransformedClassCache.PROPERTY_DIRECTORY</code> in the agent.
+	 */
+	private static final String AGENT_TRANSFORM_CACHE_DIRECTORY_PROPERTY = "saker.java.testing.agent.transform.cache.dir";
+
 	private transient final SakerEnvironment environment;
 
 	private final Path javaExe;
@@ -89,6 +96,11 @@ public class RemoteJavaTesterCacheKey implements CacheKey<RemoteTester, RemoteJa
 		RepositoryEnvironment repoenv = nestbundlecl.getRepository().getRepositoryEnvironment();
 		List<String> commands = new ArrayList<>();
 		commands.add(javaExe.toString());
+		Path transformcachedir = getAgentTransformCacheDirectory(repoenv, testingAgentJar, bootstrapAgentJar);
+		if (transformcachedir != null) {
+			//add before the user JVM arguments so it can be overridden or disabled
+			commands.add("-D" + AGENT_TRANSFORM_CACHE_DIRECTORY_PROPERTY + "=" + transformcachedir);
+		}
 		if (!ObjectUtils.isNullOrEmpty(processJVMArguments)) {
 			for (Iterator<String> it = processJVMArguments.iterator(); it.hasNext();) {
 				String arg = it.next();
@@ -178,6 +190,23 @@ public class RemoteJavaTesterCacheKey implements CacheKey<RemoteTester, RemoteJa
 		}
 	}
 
+	private static Path getAgentTransformCacheDirectory(RepositoryEnvironment repoenv, Path agentjar,
+			Path bootstrapagentjar) {
+		//the transformed classes depend on the agent implementation, so the cache directory is specific to the agent JARs
+		try {
+			String fingerprint = agentjar + ":" + Files.size(agentjar) + ":"
+					+ Files.getLastModifiedTime(agentjar).toMillis() + ";" + bootstrapagentjar + ":"
+					+ Files.size(bootstrapagentjar) + ":" + Files.getLastModifiedTime(bootstrapagentjar).toMillis();
+			String hash = StringUtils.toHexString(
+					MessageDigest.getInstance("MD5").digest(fingerprint.getBytes(StandardCharsets.UTF_8)));
+			return repoenv.getEnvironmentStorageDirectory().resolve("saker.java.testing").resolve("transform_cache")
+					.resolve(hash);
+		} catch (IOException | NoSuchAlgorithmException e) {
+			SakerLog.warning().println("Failed to determine testing agent transformation cache directory: " + e);
+			return null;
+		}
+	}
+
 	private static String getShortPathedAgentPath(Path path) throws NoSuchAlgorithmException, IOException {
 		//if the jar paths are too long on windows (exceeds MAX_PATH), then the process will not find them.
 		//    MAX_PATH is defined as 260, but have some threshold in order to function properly because
@@ -0,0 +1,275 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.java.testing.impl.test;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+
+import saker.build.file.path.SakerPath;
+import saker.build.runtime.execution.ExecutionContext;
+
+/**
+ * Resolves the local paths accessed by the test cases to the tracked execution paths.
+ * <p>
+ * The local paths of the tracked directories (the mirror and the actual local paths) and the ignored paths are
+ * compiled into a trie of path names. The raw path strings reported by the test JVM are split and normalized in a
+ * single pass, and are looked up in the trie without creating intermediate {@link Path} or {@link SakerPath} objects.
+ * <p>
+ * The path names are compared case insensitively on Windows.
+ */
+final class TestFilePathResolver {
+	private static final boolean WINDOWS_SEPARATORS = File.separatorChar == '\\';
+
+	private final NavigableMap<SakerPath, Path> trackedDirectories;
+	private final Map<SakerPath, Path> trackedLocalPaths = new HashMap<>();
+	private final Node root = new Node();
+	private final Path workingDirectory;
+	private final List<String> workingDirectoryNames;
+
+	public TestFilePathResolver(ExecutionContext executioncontext, Path workingdirectory,
+			NavigableMap<SakerPath, Path> trackeddirectories, NavigableSet<SakerPath> ignoredpaths) {
+		this.trackedDirectories = trackeddirectories;
+		this.workingDirectory = workingdirectory;
+		this.workingDirectoryNames = getNames(workingdirectory);
+		for (Entry<SakerPath, Path> entry : trackeddirectories.entrySet()) {
+			SakerPath trackedpath = entry.getKey();
+			Path mirrorpath;
+			try {
+				mirrorpath = executioncontext.toMirrorPath(trackedpath);
+			} catch (RuntimeException e) {
+				//the directory cannot be mirrored
+				mirrorpath = null;
+			}
+			addTrackedDirectory(trackedpath, mirrorpath, ignoredpaths);
+			Path localpath = entry.getValue();
+			if (localpath != null) {
+				addTrackedDirectory(trackedpath, localpath, ignoredpaths);
+				trackedLocalPaths.put(trackedpath, localpath.toAbsolutePath().normalize());
+			} else if (mirrorpath != null) {
+				trackedLocalPaths.put(trackedpath, mirrorpath.toAbsolutePath().normalize());
+			}
+		}
+	}
+
+	public NavigableMap<SakerPath, Path> getTrackedDirectories() {
+		return trackedDirectories;
+	}
+
+	/**
+	 * Gets the local path that the files of the tracked directory are synchronized to.
+	 * <p>
+	 * This is the actual local path of the directory, or the mirror path if the directory is not on the local file
+	 * system.
+	 * 
+	 * @param trackedpath
+	 *            The path of the tracked directory.
+	 * @return The local path or <code>null</code> if the directory is not tracked or cannot be mirrored.
+	 */
+	public Path getTrackedLocalPath(SakerPath trackedpath) {
+		return trackedLocalPaths.get(trackedpath);
+	}
+
+	/**
+	 * Resolves the path accessed by a test case.
+	 * 
+	 * @param path
+	 *            The path string, relative to the working directory of the test, or absolute.
+	 * @return The resolved path or <code>null</code> if the path is not in a tracked directory.
+	 */
+	public ResolvedPath resolve(String path) {
+		List<String> names = getNormalizedNames(path);
+		Node node = root;
+		Node tracked = null;
+		int trackedcount = 0;
+		boolean ignored = false;
+		for (int i = 0; i < names.size(); i++) {
+			node = node.children.get(toKey(names.get(i)));
+			if (node == null) {
+				break;
+			}
+			if (node.ignored) {
+				ignored = true;
+			}
+			if (node.trackedPath != null) {
+				tracked = node;
+				trackedcount = i + 1;
+			}
+		}
+		if (tracked == null) {
+			return null;
+		}
+		return new ResolvedPath(tracked, names.subList(trackedcount, names.size()), ignored);
+	}
+
+	private void addTrackedDirectory(SakerPath trackedpath, Path localpath, NavigableSet<SakerPath> ignoredpaths) {
+		if (localpath == null) {
+			return;
+		}
+		localpath = localpath.toAbsolutePath().normalize();
+		List<String> names = getNames(localpath);
+		Node node = getNode(names);
+		node.trackedPath = trackedpath;
+		node.localPath = localpath;
+		for (SakerPath ignoredpath : ignoredpaths) {
+			if (trackedpath.startsWith(ignoredpath)) {
+				node.ignored = true;
+			} else if (ignoredpath.startsWith(trackedpath)) {
+				List<String> ignorednames = new ArrayList<>(names);
+				SakerPath relpath = trackedpath.relativize(ignoredpath);
+				for (int i = 0; i < relpath.getNameCount(); i++) {
+					ignorednames.add(relpath.getName(i));
+				}
+				getNode(ignorednames).ignored = true;
+			}
+		}
+	}
+
+	private Node getNode(List<String> names) {
+		Node node = root;
+		for (String n : names) {
+			node = node.children.computeIfAbsent(toKey(n), x -> new Node());
+		}
+		return node;
+	}
+
+	private List<String> getNormalizedNames(String path) {
+		int len = path.length();
+		List<String> result;
+		int start;
+		if (len > 0 && path.charAt(0) == '/' && !WINDOWS_SEPARATORS) {
+			result = new ArrayList<>();
+			result.add("/");
+			start = 1;
+		} else if (WINDOWS_SEPARATORS && len > 2 && path.charAt(1) == ':' && isSeparator(path.charAt(2))) {
+			result = new ArrayList<>();
+			result.add(path.substring(0, 2) + "\\");
+			start = 3;
+		} else if (len > 0 && isSeparator(path.charAt(0)) || WINDOWS_SEPARATORS && len > 1 && path.charAt(1) == ':') {
+			//UNC paths, drive relative paths, or others that are not handled
+			return getNames(workingDirectory.resolve(Paths.get(path)).normalize());
+		} else {
+			result = new ArrayList<>(workingDirectoryNames);
+			start = 0;
+		}
+		while (start < len) {
+			int end = start;
+			while (end < len && !isSeparator(path.charAt(end))) {
+				++end;
+			}
+			int namelen = end - start;
+			if (namelen == 0 || (namelen == 1 && path.charAt(start) == '.')) {
+				//empty name or current directory
+			} else if (namelen == 2 && path.charAt(start) == '.' && path.charAt(start + 1) == '.') {
+				if (result.size() > 1) {
+					result.remove(result.size() - 1);
+				}
+			} else {
+				result.add(path.substring(start, end));
+			}
+			start = end + 1;
+		}
+		return result;
+	}
+
+	private static boolean isSeparator(char c) {
+		return c == '/' || (WINDOWS_SEPARATORS && c == '\\');
+	}
+
+	private static String toKey(String name) {
+		return WINDOWS_SEPARATORS ? name.toLowerCase(Locale.ENGLISH) : name;
+	}
+
+	private static List<String> getNames(Path path) {
+		List<String> result = new ArrayList<>();
+		Path root = path.getRoot();
+		if (root != null) {
+			result.add(root.toString());
+		}
+		for (Path n : path) {
+			result.add(n.toString());
+		}
+		return result;
+	}
+
+	private static final class Node {
+		final Map<String, Node> children = new HashMap<>();
+		SakerPath trackedPath;
+		Path localPath;
+		boolean ignored;
+	}
+
+	public static final class ResolvedPath {
+		private final Node trackedNode;
+		private final List<String> relativeNames;
+		private final boolean ignored;
+
+		ResolvedPath(Node trackedNode, List<String> relativeNames, boolean ignored) {
+			this.trackedNode = trackedNode;
+			this.relativeNames = relativeNames;
+			this.ignored = ignored;
+		}
+
+		/**
+		 * Gets the path of the tracked directory that contains the path.
+		 */
+		public SakerPath getTrackedDirectoryPath() {
+			return trackedNode.trackedPath;
+		}
+
+		/**
+		 * Gets the path relative to the tracked directory.
+		 */
+		public SakerPath getRelativePath() {
+			if (relativeNames.isEmpty()) {
+				return SakerPath.EMPTY;
+			}
+			return SakerPath.valueOf(String.join("/", relativeNames));
+		}
+
+		public SakerPath getPath() {
+			if (relativeNames.isEmpty()) {
+				return trackedNode.trackedPath;
+			}
+			return trackedNode.trackedPath.resolve(String.join("/", relativeNames));
+		}
+
+		/**
+		 * Gets the absolute normalized local path that was accessed.
+		 */
+		public Path getLocalPath() {
+			if (relativeNames.isEmpty()) {
+				return trackedNode.localPath;
+			}
+			return trackedNode.localPath.resolve(String.join(File.separator, relativeNames));
+		}
+
+		/**
+		 * Checks if the path is ignored for the file change tracking.
+		 */
+		public boolean isIgnored() {
+			return ignored;
+		}
+	}
+}
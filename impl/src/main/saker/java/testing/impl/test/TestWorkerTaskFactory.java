@@ -90,6 +90,7 @@ public class TestWorkerTaskFactory
 	private transient boolean failFast = false;
 	private transient boolean abortOnFail = true;
 	private transient boolean verbose = TestFlag.ENABLED;
+	private transient boolean ignoreClassDebugInfoChanges = false;
 
 	private SDKDescription javaSDK = DEFAULT_JAVA_SDK;
 
@@ -164,6 +165,10 @@ public class TestWorkerTaskFactory
 		this.verbose = verbose;
 	}
 
+	public void setIgnoreClassDebugInfoChanges(boolean ignoreClassDebugInfoChanges) {
+		this.ignoreClassDebugInfoChanges = ignoreClassDebugInfoChanges;
+	}
+
 	public void setWorkingDirectory(SakerPath workingDirectory) {
 		if (SakerPath.EMPTY.equals(workingDirectory)) {
 			this.workingDirectory = null;
@@ -277,6 +282,7 @@ public class TestWorkerTaskFactory
 		testhandler.setAdditionalTestClassDependencies(additionalTestClassDependencies);
 		testhandler.setTestClassParameters(testClassParameters);
 		testhandler.setVerbose(verbose);
+		testhandler.setIgnoreClassDebugInfoChanges(ignoreClassDebugInfoChanges);
 		testhandler.setProcessJVMArguments(processJVMArguments);
 		if (testInvokerClass != null) {
 			testhandler.setTestInvokerClassName(testInvokerClass);
@@ -327,6 +333,7 @@ public class TestWorkerTaskFactory
 		out.writeBoolean(abortOnFail);
 		out.writeInt(maxJVMCount);
 		out.writeBoolean(verbose);
+		out.writeBoolean(ignoreClassDebugInfoChanges);
 
 		out.writeObject(workingDirectory);
 
@@ -358,6 +365,7 @@ public class TestWorkerTaskFactory
 		abortOnFail = in.readBoolean();
 		maxJVMCount = in.readInt();
 		verbose = in.readBoolean();
+		ignoreClassDebugInfoChanges = in.readBoolean();
 
 		workingDirectory = (SakerPath) in.readObject();
 
@@ -492,6 +500,7 @@ public class TestWorkerTaskFactory
 				+ (successExitCodes != null ? "successExitCodes=" + successExitCodes + ", " : "")
 				+ (ignoreFileChanges != null ? "ignoreFileChanges=" + ignoreFileChanges + ", " : "") + "failFast="
 				+ failFast + ", abortOnFail=" + abortOnFail + ", maxJVMCount=" + maxJVMCount + ", "
+				+ "ignoreClassDebugInfoChanges=" + ignoreClassDebugInfoChanges + ", "
 				+ (workingDirectory != null ? "workingDirectory=" + workingDirectory : "") + "]";
 	}
 
@@ -105,12 +105,29 @@ import saker.build.trace.BuildTrace;
 				+ "at the start of testing, and don't change for each test case.\n"
 				+ "If the default TestInvokerClass is used, the following parameter(s) can be used: \n"
 				+ "TestRunnerClass: Specifies the class that runs the test. It must have a static main(String[]) method which is "
-				+ "called for each test case."))
+				+ "called for each test case.\n"
+				+ "The following parameters are also available for test invokers that extend BasicInstrumentationJavaTestInvoker: \n"
+				+ "DependencyTrackingIncludes: Semicolon separated class name wildcards of the classes that should be tracked "
+				+ "as dependencies of the test cases. E.g. \"com.example.**\"\n"
+				+ "DependencyTrackingExcludes: Semicolon separated class name wildcards of the classes that shouldn't be tracked "
+				+ "as dependencies of the test cases.\n"
+				+ "TestRunnerDependencyTracking: Set to true to track the classes of the TestRunnerClassPath as dependencies. "
+				+ "They are not tracked by default, as all tests are rerun if the TestRunnerClassPath changes.\n"
+				+ "ClassLoadDependencyTracking: Semicolon separated class name wildcards of the test classes which dependencies "
+				+ "are tracked based on the classes loaded during the test instead of instrumenting the method bodies. "
+				+ "The matching tests are run with new classloaders. It has less overhead, but is less precise.\n"
+				+ "MethodDependencyTracking: Set to true to track the executed methods of the dependent classes. The tests "
+				+ "are only rerun if an executed method, or the structure of a dependent class changes.\n"
+				+ "OptimisticFileSynchronization: Set to true to let the tests read the files that are unchanged since their "
+				+ "previous run without waiting for the synchronization. A test is rerun if such a file is modified by the "
+				+ "synchronization."))
 @NestParameterInformation(value = "TestClassParameters",
 		type = @NestTypeUsage(value = Map.class, elementTypes = { String.class, Map.class }),
 		info = @NestInformation("Specifies arbitrary key-value pairs that are passed to the TestInvokerClass for each test case.\n"
 				+ "Each entry in the specified map is a class name wildcard mapped to the string key-value pairs that are passed "
 				+ "for any test case which class name matches the associated wildcard.\n"
+				+ "If multiple wildcards match a test case, their parameters are merged in the lexicographical order of the "
+				+ "wildcards. The values of the same keys are overwritten by the parameters of the later wildcards.\n"
 				+ "The parameters for the test cases can be used to configure the behaviour of the test runner for the invoked "
 				+ "test case.\n"
 				+ "If the default TestInvokerClass is used, the following test case parameter(s) can be used: \n"
@@ -152,6 +169,16 @@ import saker.build.trace.BuildTrace;
 				+ "If set to false, then a failed test will not cause the build execution to fail.\n"
 				+ "The default is true."))
 
+@NestParameterInformation(value = "IgnoreClassDebugInfoChanges",
+		type = @NestTypeUsage(boolean.class),
+		info = @NestInformation("Specifies if the changes of the debug information in the class files should be ignored "
+				+ "when determining the tests to rerun.\n"
+				+ "If set to true, the class files are hashed without their line numbers, local variable names, source file "
+				+ "and similar debug attributes. A class is only considered to be changed if this hash changes, so "
+				+ "formatting changes in the source files don't cause the dependent tests to be rerun. Note that the stack "
+				+ "traces of the reused test results may refer to outdated line numbers.\n"
+				+ "The default is false."))
+
 @NestParameterInformation(value = "JavaSDK",
 		type = @NestTypeUsage(SDKDescriptionTaskOption.class),
 		info = @NestInformation("Specifies the Java installation that should be used to execute the tests.\n"
@@ -227,6 +254,9 @@ public class JavaTesterTaskFactory extends FrontendTaskFactory<Object> {
 		@SakerInput("Verbose")
 		public boolean verbose = TestFlag.ENABLED;
 
+		@SakerInput("IgnoreClassDebugInfoChanges")
+		public boolean ignoreClassDebugInfoChangesOption = false;
+
 		@SakerInput("JavaSDK")
 		public SDKDescriptionTaskOption javaSDKOption;
 
@@ -270,6 +300,7 @@ public class JavaTesterTaskFactory extends FrontendTaskFactory<Object> {
 			workerfactory.setAbortOnFail(abortOnFailOption);
 			workerfactory.setMaxJVMCount(maxJVMCountOption);
 			workerfactory.setVerbose(verbose);
+			workerfactory.setIgnoreClassDebugInfoChanges(ignoreClassDebugInfoChangesOption);
 			workerfactory.setJavaSDK(javasdk[0]);
 			workerfactory.setWorkingDirectory(workingDirectory);
 			workerfactory.setProcessJVMArguments(ObjectUtils.cloneArrayList(processJVMParametersOption));
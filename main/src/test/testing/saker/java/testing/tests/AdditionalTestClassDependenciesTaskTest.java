@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package testing.saker.java.testing.tests;
+
+import saker.build.file.path.SakerPath;
+import testing.saker.SakerTest;
+import testing.saker.java.testing.JavaTestingVariablesMetricEnvironmentTestCase;
+
+@SakerTest
+public class AdditionalTestClassDependenciesTaskTest extends JavaTestingVariablesMetricEnvironmentTestCase {
+	@Override
+	protected void runNestTaskTestImpl() throws Throwable {
+		SakerPath alphapath = SRC_PATH_BASE.resolve("plugin/Alpha.java");
+		SakerPath betapath = SRC_PATH_BASE.resolve("plugin/sub/Beta.java");
+		SakerPath gammapath = SRC_PATH_BASE.resolve("other/Gamma.java");
+		SakerPath newtestpath = SRC_PATH_BASE.resolve("test/integration/NewIntegrationTest.java");
+
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf("test.UnitTest", "test.integration.PluginIntegrationTest",
+				"test.integration.OtherIntegrationTest"));
+
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf());
+
+		//matched by the ** in the dependency wildcard
+		files.putFile(betapath, "package plugin.sub; public class Beta { public static void function() { int x; } }");
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(),
+				setOf("test.integration.PluginIntegrationTest", "test.integration.OtherIntegrationTest"));
+
+		//only the tests matching the second wildcard depend on it
+		files.putFile(gammapath, "package other; public class Gamma { public static void function() { int x; } }");
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf("test.integration.OtherIntegrationTest"));
+
+		files.putFile(newtestpath,
+				"package test.integration; public class NewIntegrationTest { public static void main(String[] args) { } }");
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf("test.integration.NewIntegrationTest"));
+
+		files.putFile(alphapath, "package plugin; public class Alpha { public static void function() { int x; } }");
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf("test.integration.PluginIntegrationTest",
+				"test.integration.OtherIntegrationTest", "test.integration.NewIntegrationTest"));
+		assertEquals(getMetric().getSuccessfulTests(), setOf("test.integration.PluginIntegrationTest",
+				"test.integration.OtherIntegrationTest", "test.integration.NewIntegrationTest"));
+	}
+
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package testing.saker.java.testing.tests;
+
+import saker.build.file.path.SakerPath;
+import testing.saker.SakerTest;
+import testing.saker.java.testing.JavaTestingVariablesMetricEnvironmentTestCase;
+
+@SakerTest
+public class ClassDebugInfoChangeTaskTest extends JavaTestingVariablesMetricEnvironmentTestCase {
+	@Override
+	protected void runNestTaskTestImpl() throws Throwable {
+		SakerPath calculatorpath = SRC_PATH_BASE.resolve("lib/Calculator.java");
+
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf("test.CalculatorTest", "test.OtherTest"));
+
+		//the class is not hashed until it changes, so the first change always reruns the dependent tests
+		files.putFile(calculatorpath,
+				"package lib;\n\npublic class Calculator {\n\tpublic static int add(int a, int b) {\n\t\tint sum = b + a;\n\t\treturn sum;\n\t}\n}\n");
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf("test.CalculatorTest"));
+
+		//only the line numbers change
+		files.putFile(calculatorpath,
+				"package lib;\n\n\n\npublic class Calculator {\n\n\tpublic static int add(int a, int b) {\n\n\t\tint sum = b + a;\n\t\treturn sum;\n\t}\n}\n");
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf());
+
+		//only the local variable names change
+		files.putFile(calculatorpath,
+				"package lib;\n\n\n\npublic class Calculator {\n\n\tpublic static int add(int a, int b) {\n\n\t\tint total = b + a;\n\t\treturn total;\n\t}\n}\n");
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf());
+
+		files.putFile(calculatorpath,
+				"package lib;\n\n\n\npublic class Calculator {\n\n\tpublic static int add(int a, int b) {\n\n\t\tint total = b + a + 0 * a;\n\t\treturn total;\n\t}\n}\n");
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf("test.CalculatorTest"));
+		assertEquals(getMetric().getSuccessfulTests(), setOf("test.CalculatorTest"));
+	}
+
+}
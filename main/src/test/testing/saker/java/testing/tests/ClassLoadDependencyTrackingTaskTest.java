@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package testing.saker.java.testing.tests;
+
+import java.util.Set;
+
+import saker.build.file.path.SakerPath;
+import testing.saker.SakerTest;
+import testing.saker.java.testing.JavaTestingVariablesMetricEnvironmentTestCase;
+
+@SakerTest
+public class ClassLoadDependencyTrackingTaskTest extends JavaTestingVariablesMetricEnvironmentTestCase {
+	@Override
+	protected void runNestTaskTestImpl() throws Throwable {
+		SakerPath dependentpath = SRC_PATH_BASE.resolve("lib/Dependent.java");
+
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf("test.Consumer", "test.Unrelated"));
+		assertEquals(getMetric().getSuccessfulTests(), setOf("test.Consumer", "test.Unrelated"));
+		Set<String> consumerdeps = getMetric().getTestDependentClasses("test.Consumer");
+		//recorded when loaded by the test specific classloaders
+		assertTrue(consumerdeps.contains("test.Consumer"));
+		assertTrue(consumerdeps.contains("lib.Dependent"));
+		assertFalse(consumerdeps.contains("test.Unrelated"));
+		assertFalse(getMetric().getTestDependentClasses("test.Unrelated").contains("lib.Dependent"));
+
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf());
+
+		files.putFile(dependentpath, "package lib; public class Dependent { public static void function() { int x; } }");
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf("test.Consumer"));
+		assertEquals(getMetric().getSuccessfulTests(), setOf("test.Consumer"));
+	}
+
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package testing.saker.java.testing.tests;
+
+import testing.saker.SakerTest;
+import testing.saker.java.testing.JavaTestingVariablesMetricEnvironmentTestCase;
+
+@SakerTest
+public class ClassNameWildcardTaskTest extends JavaTestingVariablesMetricEnvironmentTestCase {
+	@Override
+	protected void runNestTaskTestImpl() throws Throwable {
+		//the wildcards are matched the same way as the path wildcards:
+		//    ** matches zero or more names, so **.*Test matches the classes in the default package as well
+		//    * matches in a single name, so a.TestNot and a.b.Helper are not matched
+		//    a trailing .** matches the name itself, but not the ones that only start with it
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(),
+				setOf("RootTest", "a.b.DeepTest", "a.b.FlakyTest", "a.b.FailingTest", "single.Single"));
+		assertEquals(getMetric().getSuccessfulTests(), setOf("RootTest", "a.b.DeepTest"));
+		assertEquals(getMetric().getFailedTests(), setOf("a.b.FlakyTest", "a.b.FailingTest", "single.Single"));
+
+		//the failed non-deterministic tests are rerun
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf("a.b.FlakyTest", "single.Single"));
+		assertEquals(getMetric().getFailedTests(), setOf("a.b.FlakyTest", "single.Single"));
+	}
+
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package testing.saker.java.testing.tests;
+
+import java.util.Set;
+
+import saker.build.file.path.SakerPath;
+import testing.saker.SakerTest;
+import testing.saker.java.testing.JavaTestingVariablesMetricEnvironmentTestCase;
+
+@SakerTest
+public class DependencyTrackingFilterTaskTest extends JavaTestingVariablesMetricEnvironmentTestCase {
+	@Override
+	protected void runNestTaskTestImpl() throws Throwable {
+		SakerPath helperpath = SRC_PATH_BASE.resolve("excluded/Helper.java");
+		SakerPath dependentpath = SRC_PATH_BASE.resolve("test/Dependent.java");
+
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf("test.Consumer", "test.Dependent"));
+		assertEquals(getMetric().getSuccessfulTests(), setOf("test.Consumer", "test.Dependent"));
+		Set<String> consumerdeps = getMetric().getTestDependentClasses("test.Consumer");
+		assertTrue(consumerdeps.contains("test.Dependent"));
+		//excluded by the parameter
+		assertFalse(consumerdeps.contains("excluded.Helper"));
+		//the test runner classes are not tracked by default
+		assertFalse(consumerdeps.contains("testrunner.TestRunnerMain"));
+
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf());
+
+		files.putFile(helperpath, "package excluded; public class Helper { public static void function() { int x; } }");
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf());
+
+		files.putFile(dependentpath, "package test; public class Dependent { public static void function() { int x; } }");
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf("test.Consumer", "test.Dependent"));
+		assertEquals(getMetric().getSuccessfulTests(), setOf("test.Consumer", "test.Dependent"));
+	}
+
+}
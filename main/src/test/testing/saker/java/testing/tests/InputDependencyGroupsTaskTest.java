@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package testing.saker.java.testing.tests;
+
+import saker.build.file.path.SakerPath;
+import testing.saker.SakerTest;
+import testing.saker.java.testing.JavaTestingVariablesMetricEnvironmentTestCase;
+
+@SakerTest
+public class InputDependencyGroupsTaskTest extends JavaTestingVariablesMetricEnvironmentTestCase {
+	@Override
+	protected void runNestTaskTestImpl() throws Throwable {
+		SakerPath inputpath = PATH_WORKING_DIRECTORY.resolve("input.txt");
+		SakerPath otherpath = PATH_WORKING_DIRECTORY.resolve("other.txt");
+
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(),
+				setOf("test.ReaderA", "test.ReaderB", "test.ExistsInput", "test.Unrelated"));
+		assertEquals(getMetric().getSuccessfulTests(),
+				setOf("test.ReaderA", "test.ReaderB", "test.ExistsInput", "test.Unrelated"));
+
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf());
+
+		//the readers recorded the contents, the other test only the existence of the file
+		//    only the tests in the group of the contents are rerun
+		files.putFile(inputpath, "modified");
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf("test.ReaderA", "test.ReaderB"));
+
+		//the groups are updated with the new contents
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf());
+
+		files.putFile(otherpath, "modified");
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf("test.ReaderA"));
+
+		files.delete(inputpath);
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf("test.ReaderA", "test.ReaderB", "test.ExistsInput"));
+		assertEquals(getMetric().getFailedTests(), setOf("test.ReaderA", "test.ReaderB", "test.ExistsInput"));
+
+		files.putFile(inputpath, "input");
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf("test.ReaderA", "test.ReaderB", "test.ExistsInput"));
+		assertEquals(getMetric().getSuccessfulTests(), setOf("test.ReaderA", "test.ReaderB", "test.ExistsInput"));
+	}
+
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package testing.saker.java.testing.tests;
+
+import saker.build.file.path.SakerPath;
+import testing.saker.SakerTest;
+import testing.saker.java.testing.JavaTestingVariablesMetricEnvironmentTestCase;
+
+@SakerTest
+public class MethodDependencyTrackingTaskTest extends JavaTestingVariablesMetricEnvironmentTestCase {
+	@Override
+	protected void runNestTaskTestImpl() throws Throwable {
+		SakerPath utilpath = SRC_PATH_BASE.resolve("lib/Util.java");
+
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf("test.UsesA", "test.UsesB"));
+		assertEquals(getMetric().getSuccessfulTests(), setOf("test.UsesA", "test.UsesB"));
+
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf());
+
+		//only the body of b() changes
+		files.putFile(utilpath, "package lib; public class Util { public static void a() { } "
+				+ "public static void b() { System.out.println(\"b\"); } }");
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf("test.UsesB"));
+		assertEquals(getMetric().getSuccessfulTests(), setOf("test.UsesB"));
+
+		//only the body of a() changes
+		files.putFile(utilpath, "package lib; public class Util { public static void a() { System.out.println(\"a\"); } "
+				+ "public static void b() { System.out.println(\"b\"); } }");
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf("test.UsesA"));
+
+		//the layout of the class changes
+		files.putFile(utilpath, "package lib; public class Util { public static int field; "
+				+ "public static void a() { System.out.println(\"a\"); } "
+				+ "public static void b() { System.out.println(\"b\"); } }");
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf("test.UsesA", "test.UsesB"));
+
+		//add a static initializer
+		files.putFile(utilpath, "package lib; public class Util { public static int field = 1; "
+				+ "public static void a() { System.out.println(\"a\"); } "
+				+ "public static void b() { System.out.println(\"b\"); } }");
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf("test.UsesA", "test.UsesB"));
+
+		//only the static initializer changes
+		//    it is run only once in the shared JVM, so it is not recorded as executed for all tests
+		files.putFile(utilpath, "package lib; public class Util { public static int field = 2; "
+				+ "public static void a() { System.out.println(\"a\"); } "
+				+ "public static void b() { System.out.println(\"b\"); } }");
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf("test.UsesA", "test.UsesB"));
+	}
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package testing.saker.java.testing.tests;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+
+import saker.build.file.path.SakerPath;
+import testing.saker.SakerTest;
+import testing.saker.java.testing.JavaTestingVariablesMetricEnvironmentTestCase;
+
+@SakerTest
+public class OptimisticFileSynchronizationTaskTest extends JavaTestingVariablesMetricEnvironmentTestCase {
+	@Override
+	protected void runNestTaskTestImpl() throws Throwable {
+		SakerPath utilpath = SRC_PATH_BASE.resolve("lib/Util.java");
+		SakerPath inputpath = PATH_WORKING_DIRECTORY.resolve("input.txt");
+
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf("test.ReadsInput"));
+		assertEquals(getMetric().getSuccessfulTests(), setOf("test.ReadsInput"));
+
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf());
+
+		//the input file is unchanged, it is read optimistically
+		files.putFile(utilpath, "package lib; public class Util { public static void a() { System.out.println(\"a\"); } "
+				+ "public static void b() { } }");
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf("test.ReadsInput"));
+		assertEquals(getMetric().getSuccessfulTests(), setOf("test.ReadsInput"));
+		Map<SakerPath, Path> optimisticreads = getMetric().getTestOptimisticReads().get("test.ReadsInput");
+		assertNonNull(optimisticreads);
+		Path inputlocalpath = optimisticreads.get(inputpath);
+		assertNonNull(inputlocalpath);
+		assertEquals(getMetric().getTestOptimisticReadReruns(), Collections.emptyMap());
+
+		//the local copy of the input file is modified, but its contents in the build are unchanged
+		//    the test reads the modified file optimistically, and is rerun after the synchronization restores it
+		Files.write(inputlocalpath, "tampered".getBytes(StandardCharsets.UTF_8));
+		files.putFile(utilpath, "package lib; public class Util { public static void a() { System.out.println(\"aa\"); } "
+				+ "public static void b() { } }");
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf("test.ReadsInput"));
+		assertEquals(getMetric().getSuccessfulTests(), setOf("test.ReadsInput"));
+		assertEquals(getMetric().getFailedTests(), setOf());
+		assertTrue(getMetric().getTestOptimisticReads().get("test.ReadsInput").containsKey(inputpath));
+		assertEquals(getMetric().getTestOptimisticReadReruns().get("test.ReadsInput"), 1);
+		assertEquals(new String(Files.readAllBytes(inputlocalpath), StandardCharsets.UTF_8), "input");
+
+		//the input file changed, it is synchronized before the test reads it
+		files.putFile(inputpath, "modified");
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf("test.ReadsInput"));
+		assertEquals(getMetric().getFailedTests(), setOf("test.ReadsInput"));
+
+		files.putFile(inputpath, "input-modified");
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf("test.ReadsInput"));
+		assertEquals(getMetric().getSuccessfulTests(), setOf("test.ReadsInput"));
+	}
+
+}
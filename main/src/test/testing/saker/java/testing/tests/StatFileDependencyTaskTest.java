@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package testing.saker.java.testing.tests;
+
+import saker.build.file.path.SakerPath;
+import testing.saker.SakerTest;
+import testing.saker.java.testing.JavaTestingVariablesMetricEnvironmentTestCase;
+
+@SakerTest
+public class StatFileDependencyTaskTest extends JavaTestingVariablesMetricEnvironmentTestCase {
+	@Override
+	protected void runNestTaskTestImpl() throws Throwable {
+		SakerPath inputpath = PATH_WORKING_DIRECTORY.resolve("input.txt");
+
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf("test.ExistsInput", "test.ReadsInput"));
+		assertEquals(getMetric().getSuccessfulTests(), setOf("test.ExistsInput", "test.ReadsInput"));
+
+		//only the test that reads the contents is rerun
+		files.putFile(inputpath, "modified");
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf("test.ReadsInput"));
+
+		files.delete(inputpath);
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf("test.ExistsInput", "test.ReadsInput"));
+		assertEquals(getMetric().getFailedTests(), setOf("test.ExistsInput"));
+
+		files.putFile(inputpath, "input");
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf("test.ExistsInput", "test.ReadsInput"));
+		assertEquals(getMetric().getSuccessfulTests(), setOf("test.ExistsInput", "test.ReadsInput"));
+	}
+
+}
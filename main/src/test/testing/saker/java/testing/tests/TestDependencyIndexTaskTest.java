@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package testing.saker.java.testing.tests;
+
+import saker.build.file.path.SakerPath;
+import testing.saker.SakerTest;
+import testing.saker.java.testing.JavaTestingVariablesMetricEnvironmentTestCase;
+
+@SakerTest
+public class TestDependencyIndexTaskTest extends JavaTestingVariablesMetricEnvironmentTestCase {
+	@Override
+	protected void runNestTaskTestImpl() throws Throwable {
+		SakerPath alphapath = SRC_PATH_BASE.resolve("lib/Alpha.java");
+		SakerPath betapath = SRC_PATH_BASE.resolve("lib/Beta.java");
+		SakerPath sharedpath = SRC_PATH_BASE.resolve("lib/Shared.java");
+		SakerPath betatestpath = SRC_PATH_BASE.resolve("test/BetaTest.java");
+		SakerPath gammatestpath = SRC_PATH_BASE.resolve("test/GammaTest.java");
+		String betatestsource = "package test; public class BetaTest { public static void main(String[] args) { lib.Beta.function(); } }";
+
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf("test.AlphaTest", "test.BetaTest", "test.SharedTest"));
+
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf());
+
+		files.putFile(alphapath, "package lib; public class Alpha { public static void function() { int x; } }");
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf("test.AlphaTest"));
+
+		files.putFile(sharedpath, "package lib; public class Shared { public static void function() { int x; } }");
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf("test.AlphaTest", "test.SharedTest"));
+
+		//the added test may take the index identifier of the removed one
+		files.delete(betatestpath);
+		files.putFile(gammatestpath,
+				"package test; public class GammaTest { public static void main(String[] args) { lib.Alpha.function(); } }");
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf("test.GammaTest"));
+
+		//the removed test is no longer associated with its dependencies
+		files.putFile(betapath, "package lib; public class Beta { public static void function() { int x; } }");
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf());
+
+		//the identifiers of the remaining tests are carried over
+		files.putFile(alphapath, "package lib; public class Alpha { public static void function() { int x; int y; } }");
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf("test.AlphaTest", "test.GammaTest"));
+
+		files.putFile(betatestpath, betatestsource);
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf("test.BetaTest"));
+
+		files.putFile(betapath, "package lib; public class Beta { public static void function() { int x; int y; } }");
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf("test.BetaTest"));
+
+		files.putFile(sharedpath,
+				"package lib; public class Shared { public static void function() { int x; int y; } }");
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf("test.AlphaTest", "test.SharedTest"));
+		assertEquals(getMetric().getSuccessfulTests(), setOf("test.AlphaTest", "test.SharedTest"));
+	}
+
+}
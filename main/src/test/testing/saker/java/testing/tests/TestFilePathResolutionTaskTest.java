@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package testing.saker.java.testing.tests;
+
+import saker.build.file.path.SakerPath;
+import testing.saker.SakerTest;
+import testing.saker.java.testing.JavaTestingVariablesMetricEnvironmentTestCase;
+
+@SakerTest
+public class TestFilePathResolutionTaskTest extends JavaTestingVariablesMetricEnvironmentTestCase {
+	@Override
+	protected void runNestTaskTestImpl() throws Throwable {
+		SakerPath inputpath = PATH_WORKING_DIRECTORY.resolve("input.txt");
+		SakerPath filepath = PATH_WORKING_DIRECTORY.resolve("data/file.txt");
+		SakerPath deeppath = PATH_WORKING_DIRECTORY.resolve("data/nested/deep.txt");
+		SakerPath ignoredpath = PATH_WORKING_DIRECTORY.resolve("ignored");
+
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(),
+				setOf("test.RelativeRead", "test.DotSegmentsRead", "test.AbsoluteRead", "test.IgnoredRead"));
+		assertEquals(getMetric().getSuccessfulTests(),
+				setOf("test.RelativeRead", "test.DotSegmentsRead", "test.AbsoluteRead", "test.IgnoredRead"));
+		assertTrue(getMetric().getTestReferencedFiles("test.RelativeRead").contains(filepath));
+		//the . and .. names are normalized
+		assertTrue(getMetric().getTestReferencedFiles("test.DotSegmentsRead").contains(inputpath));
+		assertTrue(getMetric().getTestReferencedFiles("test.DotSegmentsRead").contains(deeppath));
+		//the absolute path is in the mirror directory of the working directory
+		assertTrue(getMetric().getTestReferencedFiles("test.AbsoluteRead").contains(deeppath));
+		for (SakerPath path : getMetric().getTestReferencedFiles("test.IgnoredRead")) {
+			assertFalse(path.startsWith(ignoredpath));
+		}
+
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf());
+
+		files.putFile(inputpath, "modified");
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf("test.DotSegmentsRead"));
+
+		files.putFile(deeppath, "modified");
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf("test.DotSegmentsRead", "test.AbsoluteRead"));
+
+		files.putFile(filepath, "modified");
+		runScriptTask("build");
+		assertEquals(getMetric().getInvokedTests(), setOf("test.RelativeRead"));
+
+		files.putFile(ignoredpath.resolve("ignored.txt"), "modified");
+		runScriptTask("build");
+		assertEmpty(getMetric().getRunTaskIdResults());
+	}
+
+}
@@ -15,6 +15,7 @@
  */
 package testing.saker.java.testing;
 
+import java.nio.file.Path;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
@@ -33,6 +34,8 @@ public class TestingCollectingTestMetric extends CollectingTestMetric implements
 	protected Map<String, Set<SakerPath>> testReferencedFiles = new ConcurrentSkipListMap<>();
 	protected Map<String, Set<SakerPath>> testReferencedDirectories = new ConcurrentSkipListMap<>();
 	protected Map<String, Set<String>> testDependentClasses = new ConcurrentSkipListMap<>();
+	protected Map<String, Map<SakerPath, Path>> testOptimisticReads = new ConcurrentSkipListMap<>();
+	protected Map<String, Integer> testOptimisticReadReruns = new ConcurrentSkipListMap<>();
 
 	@Override
 	public void javaTestSuccessful(String classname) {
@@ -64,6 +67,16 @@ public class TestingCollectingTestMetric extends CollectingTestMetric implements
 		this.testDependentClasses.put(classname, new TreeSet<>(directories));
 	}
 
+	@Override
+	public void javaTestOptimisticReads(String classname, Map<SakerPath, Path> localpaths) {
+		this.testOptimisticReads.put(classname, localpaths);
+	}
+
+	@Override
+	public void javaTestOptimisticReadRerun(String classname) {
+		this.testOptimisticReadReruns.merge(classname, 1, Integer::sum);
+	}
+
 	public Set<String> getInvokedTests() {
 		return invokedTests;
 	}
@@ -104,6 +117,14 @@ public class TestingCollectingTestMetric extends CollectingTestMetric implements
 		return testDependentClasses;
 	}
 
+	public Map<String, Map<SakerPath, Path>> getTestOptimisticReads() {
+		return testOptimisticReads;
+	}
+
+	public Map<String, Integer> getTestOptimisticReadReruns() {
+		return testOptimisticReadReruns;
+	}
+
 	public Set<String> getTestDependentClasses(String classname) {
 		Set<String> result = testDependentClasses.get(classname);
 		if (result == null) {
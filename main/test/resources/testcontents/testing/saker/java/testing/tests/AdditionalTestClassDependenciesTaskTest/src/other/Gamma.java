@@ -0,0 +1,6 @@
+package other;
+
+public class Gamma {
+	public static void function() {
+	}
+}
@@ -0,0 +1,6 @@
+package plugin;
+
+public class Alpha {
+	public static void function() {
+	}
+}
@@ -0,0 +1,6 @@
+package plugin.sub;
+
+public class Beta {
+	public static void function() {
+	}
+}
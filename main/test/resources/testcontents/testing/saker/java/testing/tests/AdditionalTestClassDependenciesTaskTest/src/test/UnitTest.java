@@ -0,0 +1,6 @@
+package test;
+
+public class UnitTest {
+	public static void main(String[] args) {
+	}
+}
@@ -0,0 +1,6 @@
+package test.integration;
+
+public class OtherIntegrationTest {
+	public static void main(String[] args) {
+	}
+}
@@ -0,0 +1,6 @@
+package test.integration;
+
+public class PluginIntegrationTest {
+	public static void main(String[] args) {
+	}
+}
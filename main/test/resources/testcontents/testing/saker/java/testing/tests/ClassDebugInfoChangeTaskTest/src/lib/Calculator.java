@@ -0,0 +1,8 @@
+package lib;
+
+public class Calculator {
+	public static int add(int a, int b) {
+		int sum = a + b;
+		return sum;
+	}
+}
@@ -0,0 +1,11 @@
+package test;
+
+import lib.Calculator;
+
+public class CalculatorTest {
+	public static void main(String[] args) {
+		if (Calculator.add(1, 2) != 3) {
+			throw new AssertionError();
+		}
+	}
+}
@@ -0,0 +1,6 @@
+package test;
+
+public class OtherTest {
+	public static void main(String[] args) {
+	}
+}
@@ -0,0 +1,6 @@
+package lib;
+
+public class Dependent {
+	public static void function() {
+	}
+}
@@ -0,0 +1,9 @@
+package test;
+
+import lib.Dependent;
+
+public class Consumer {
+	public static void main(String[] args) {
+		Dependent.function();
+	}
+}
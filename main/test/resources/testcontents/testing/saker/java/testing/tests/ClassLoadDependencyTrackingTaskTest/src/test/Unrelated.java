@@ -0,0 +1,6 @@
+package test;
+
+public class Unrelated {
+	public static void main(String[] args) {
+	}
+}
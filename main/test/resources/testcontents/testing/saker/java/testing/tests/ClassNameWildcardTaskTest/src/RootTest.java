@@ -0,0 +1,4 @@
+public class RootTest {
+	public static void main(String[] args) {
+	}
+}
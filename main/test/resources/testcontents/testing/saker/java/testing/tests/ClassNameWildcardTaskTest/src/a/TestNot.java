@@ -0,0 +1,7 @@
+package a;
+
+public class TestNot {
+	public static void main(String[] args) {
+		throw new RuntimeException("failed");
+	}
+}
@@ -0,0 +1,6 @@
+package a.b;
+
+public class DeepTest {
+	public static void main(String[] args) {
+	}
+}
@@ -0,0 +1,7 @@
+package a.b;
+
+public class FlakyTest {
+	public static void main(String[] args) {
+		throw new RuntimeException("failed");
+	}
+}
@@ -0,0 +1,7 @@
+package a.b;
+
+public class Helper {
+	public static void main(String[] args) {
+		throw new RuntimeException("failed");
+	}
+}
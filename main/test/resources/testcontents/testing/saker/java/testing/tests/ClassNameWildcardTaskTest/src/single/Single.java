@@ -0,0 +1,7 @@
+package single;
+
+public class Single {
+	public static void main(String[] args) {
+		throw new RuntimeException("failed");
+	}
+}
@@ -0,0 +1,6 @@
+package excluded;
+
+public class Helper {
+	public static void function() {
+	}
+}
@@ -0,0 +1,10 @@
+package test;
+
+import excluded.Helper;
+
+public class Consumer {
+	public static void main(String[] args) {
+		Dependent.function();
+		Helper.function();
+	}
+}
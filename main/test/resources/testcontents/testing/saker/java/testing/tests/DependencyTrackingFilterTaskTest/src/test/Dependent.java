@@ -0,0 +1,6 @@
+package test;
+
+public class Dependent {
+	public static void function() {
+	}
+}
@@ -0,0 +1,11 @@
+package test;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+public class ReaderA {
+	public static void main(String[] args) throws Throwable {
+		Files.readAllBytes(Paths.get("input.txt"));
+		Files.readAllBytes(Paths.get("other.txt"));
+	}
+}
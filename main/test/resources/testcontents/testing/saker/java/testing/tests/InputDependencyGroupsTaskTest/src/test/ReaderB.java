@@ -0,0 +1,10 @@
+package test;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+public class ReaderB {
+	public static void main(String[] args) throws Throwable {
+		Files.readAllBytes(Paths.get("input.txt"));
+	}
+}
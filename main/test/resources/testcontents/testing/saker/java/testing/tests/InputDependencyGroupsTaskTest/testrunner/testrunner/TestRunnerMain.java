@@ -0,0 +1,16 @@
+package testrunner;
+
+import java.lang.reflect.Method;
+
+public class TestRunnerMain {
+	public static void main(String[] args) throws Throwable {
+		for (String cname : args) {
+			Class<?> clazz = Class.forName(cname, false, Thread.currentThread().getContextClassLoader());
+			try {
+				Method method = clazz.getMethod("main", String[].class);
+				method.invoke(null, (Object) new String[] {});
+			} catch (NoSuchMethodException e) {
+			}
+		}
+	}
+}
@@ -0,0 +1,9 @@
+package test;
+
+import lib.Util;
+
+public class UsesA {
+	public static void main(String[] args) {
+		Util.a();
+	}
+}
@@ -0,0 +1,9 @@
+package lib;
+
+public class Util {
+	public static void a() {
+	}
+
+	public static void b() {
+	}
+}
@@ -0,0 +1,17 @@
+package test;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import lib.Util;
+
+public class ReadsInput {
+	public static void main(String[] args) throws Throwable {
+		Util.a();
+		//read through an absolute path
+		String content = new String(Files.readAllBytes(Paths.get("input.txt").toAbsolutePath()));
+		if (!content.startsWith("input")) {
+			throw new RuntimeException("failed: " + content);
+		}
+	}
+}
\ No newline at end of file
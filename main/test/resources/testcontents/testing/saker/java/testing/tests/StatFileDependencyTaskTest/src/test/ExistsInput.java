@@ -0,0 +1,11 @@
+package test;
+
+import java.io.File;
+
+public class ExistsInput {
+	public static void main(String[] args) throws Throwable {
+		if (!new File("input.txt").exists()) {
+			throw new RuntimeException("input.txt doesn't exist");
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,12 @@
+package test;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+public class ReadsInput {
+	public static void main(String[] args) throws Throwable {
+		if (Files.exists(Paths.get("input.txt"))) {
+			Files.readAllBytes(Paths.get("input.txt"));
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,11 @@
+package test;
+
+import java.util.Arrays;
+
+public class SpecialTest {
+	public static void main(String[] args) {
+		if (!Arrays.equals(args, new String[] { "special" })) {
+			throw new AssertionError(Arrays.toString(args));
+		}
+	}
+}
@@ -0,0 +1,14 @@
+package testrunner;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+public class TestRunnerMain {
+	public static void main(String[] args) throws Throwable {
+		//the test class name is the last argument, the prefix arguments are passed to the test
+		String cname = args[args.length - 1];
+		Class<?> clazz = Class.forName(cname, false, Thread.currentThread().getContextClassLoader());
+		Method method = clazz.getMethod("main", String[].class);
+		method.invoke(null, (Object) Arrays.copyOf(args, args.length - 1));
+	}
+}
@@ -0,0 +1,6 @@
+package lib;
+
+public class Alpha {
+	public static void function() {
+	}
+}
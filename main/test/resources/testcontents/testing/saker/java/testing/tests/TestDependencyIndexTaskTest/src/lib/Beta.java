@@ -0,0 +1,6 @@
+package lib;
+
+public class Beta {
+	public static void function() {
+	}
+}
@@ -0,0 +1,6 @@
+package lib;
+
+public class Shared {
+	public static void function() {
+	}
+}
@@ -0,0 +1,11 @@
+package test;
+
+import lib.Alpha;
+import lib.Shared;
+
+public class AlphaTest {
+	public static void main(String[] args) {
+		Alpha.function();
+		Shared.function();
+	}
+}
@@ -0,0 +1,9 @@
+package test;
+
+import lib.Beta;
+
+public class BetaTest {
+	public static void main(String[] args) {
+		Beta.function();
+	}
+}
@@ -0,0 +1,9 @@
+package test;
+
+import lib.Shared;
+
+public class SharedTest {
+	public static void main(String[] args) {
+		Shared.function();
+	}
+}
@@ -0,0 +1,11 @@
+package test;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+public class DotSegmentsRead {
+	public static void main(String[] args) throws Throwable {
+		Files.readAllBytes(Paths.get("data/nested/../../input.txt"));
+		Files.readAllBytes(Paths.get("./data/./nested/deep.txt"));
+	}
+}
@@ -0,0 +1,15 @@
+package test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+public class IgnoredRead {
+	public static void main(String[] args) throws Throwable {
+		try {
+			Files.readAllBytes(Paths.get("data/../ignored/ignored.txt"));
+			throw new AssertionError("The file shouldn't be present as it was explicitly ignored.");
+		} catch (IOException e) {
+		}
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.java.testing.agent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import saker.build.thirdparty.saker.util.io.StreamUtils;
+import saker.java.testing.agent.thirdparty.org.objectweb.asm.ClassReader;
+
+/**
+ * Scans the constant pool of class files to determine if the call site transformations of the agent would modify
+ * them.
+ * <p>
+ * The scan is conservative, it may report classes that are unmodified by the transformation, but never omits a
+ * class that would be modified.
+ */
+class ClassTransformationScanner {
+	private static final int CONSTANT_METHODREF_TAG = 10;
+
+	private ClassTransformationScanner() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Checks if the loaded class needs to be retransformed to have its call sites delegated.
+	 * <p>
+	 * Only the classes defined by the system class loaders are checked, as other classes are subject to more
+	 * transformations. The class file is read from the defining class loader. If it cannot be read,
+	 * <code>true</code> is returned.
+	 *
+	 * @param c
+	 *            The class.
+	 * @return <code>true</code> if the class should be retransformed.
+	 */
+	public static boolean isRetransformationRequired(Class<?> c) {
+		if (!UserClassFileTransformer.isSystemClassLoader(c.getClassLoader())) {
+			//other transformations may apply
+			return true;
+		}
+		String internalname = c.getName().replace('.', '/');
+		if (InstrumentingClassVisitor.isConstructorDelegatedClass(internalname)) {
+			return true;
+		}
+		byte[] bytes;
+		try (InputStream is = c.getResourceAsStream("/" + internalname + ".class")) {
+			if (is == null) {
+				//the class file is not available. e.g. generated classes
+				return true;
+			}
+			ByteArrayOutputStream baos = new ByteArrayOutputStream();
+			StreamUtils.copyStream(is, baos);
+			bytes = baos.toByteArray();
+		} catch (IOException | RuntimeException e) {
+			return true;
+		}
+		try {
+			return isCallSiteTransformationRequired(new ClassReader(bytes), false);
+		} catch (RuntimeException e) {
+			//failed to parse
+			return true;
+		}
+	}
+
+	/**
+	 * Checks if the class contains any call sites that are modified by the agent transformations.
+	 * <p>
+	 * The dependency tracking markers and constructor delegations are not taken into account.
+	 *
+	 * @param cr
+	 *            The class reader.
+	 * @param exitcalls
+	 *            <code>true</code> if the exit calls are rewritten for the class.
+	 * @return <code>true</code> if the class contains at least one such call site.
+	 */
+	public static boolean isCallSiteTransformationRequired(ClassReader cr, boolean exitcalls) {
+		int itemcount = cr.getItemCount();
+		char[] buf = null;
+		for (int i = 1; i < itemcount; i++) {
+			int offset = cr.getItem(i);
+			if (offset == 0 || cr.readByte(offset - 1) != CONSTANT_METHODREF_TAG) {
+				continue;
+			}
+			if (buf == null) {
+				buf = new char[cr.getMaxStringLength()];
+			}
+			String owner = cr.readClass(offset, buf);
+			if (isDelegatedOwner(owner)) {
+				return true;
+			}
+			String name = cr.readUTF8(cr.getItem(cr.readUnsignedShort(offset + 2)), buf);
+			if (InstrumentingClassVisitor.isClassLoaderResourceMethod(owner, name)) {
+				return true;
+			}
+			if (exitcalls && InstrumentingClassVisitor.isExitMethod(owner, name)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isDelegatedOwner(String owner) {
+		return InstrumentingClassVisitor.FILESYSTEMPROVIDER_INTERNAL_NAME.equals(owner)
+				|| InstrumentingClassVisitor.IOFILESYSTEM_INTERNAL_NAME.equals(owner);
+	}
+}
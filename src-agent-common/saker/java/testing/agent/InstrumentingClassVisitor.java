@@ -0,0 +1,480 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.java.testing.agent;
+
+import java.nio.file.spi.FileSystemProvider;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import saker.java.testing.agent.thirdparty.org.objectweb.asm.ClassVisitor;
+import saker.java.testing.agent.thirdparty.org.objectweb.asm.Handle;
+import saker.java.testing.agent.thirdparty.org.objectweb.asm.Label;
+import saker.java.testing.agent.thirdparty.org.objectweb.asm.MethodVisitor;
+import saker.java.testing.agent.thirdparty.org.objectweb.asm.Opcodes;
+import saker.java.testing.agent.thirdparty.org.objectweb.asm.Type;
+import saker.java.testing.bootstrapagent.InstrumentationData;
+import saker.java.testing.bootstrapagent.NioFileSystemProviderSakerProxy;
+import saker.java.testing.bootstrapagent.TestFileRequestor;
+
+/**
+ * Class visitor that performs all bytecode transformations of the agent in a single pass.
+ * <p>
+ * The visitor performs the following transformations:
+ * <ul>
+ * <li>Delegates the calls to {@link FileSystemProvider} and <code>java.io.FileSystem</code> to the proxies of the
+ * agent.</li>
+ * <li>Reports the class loader resource requests to the {@link TestFileRequestor}.</li>
+ * <li>Replaces the <code>System.exit</code> and <code>Runtime.exit/halt</code> calls with an exit request.</li>
+ * <li>Inserts the used class markers for dependency tracking.</li>
+ * <li>Delegates the file accessing constructors of the JDK classes to the <code>java.io.FileSystem</code> proxy.</li>
+ * </ul>
+ * The transformations are applied in the same order as if they were separate visitors chained after each other.
+ */
+class InstrumentingClassVisitor extends ClassVisitor {
+	/**
+	 * System property to disable the invokedynamic based markers by setting it to <code>false</code>.
+	 */
+	public static final String PROPERTY_INVOKEDYNAMIC_MARKERS = "saker.java.testing.agent.marker.indy";
+	public static final boolean INVOKEDYNAMIC_MARKERS = !"false"
+			.equalsIgnoreCase(System.getProperty(PROPERTY_INVOKEDYNAMIC_MARKERS));
+
+	static final String FILESYSTEMPROVIDER_INTERNAL_NAME = Type.getInternalName(FileSystemProvider.class);
+	private static final String FILESYSTEMPROVIDER_DESCRIPTOR = "L" + FILESYSTEMPROVIDER_INTERNAL_NAME + ";";
+	private static final String FILESYSTEMPROVIDER_PROXY_INTERNAL_NAME = Type
+			.getInternalName(NioFileSystemProviderSakerProxy.class);
+
+	static final String IOFILESYSTEM_INTERNAL_NAME = "java/io/FileSystem";
+	private static final String IOFILESYSTEM_ARGUMENT_INTERNAL_NAME = TestingInstrumentationAgent.JAVA_IO_FILESYSTEM_PROXY_ARGUMENT_INTERNAL_NAME;
+	private static final String IOFILESYSTEM_ARGUMENT_DESCRIPTOR = "L" + IOFILESYSTEM_ARGUMENT_INTERNAL_NAME + ";";
+	private static final String IOFILESYSTEM_PROXY_INTERNAL_NAME = TestingInstrumentationAgent.JAVA_IO_FILESYSTEM_PROXY_INTERNAL_NAME;
+
+	private static final String INSTRUMENTATIONDATA_INTERNAL_NAME = Type.getInternalName(InstrumentationData.class);
+	private static final String TESTFILEREQUESTOR_INTERNAL_NAME = Type.getInternalName(TestFileRequestor.class);
+	private static final String CLASS_INTERNAL_NAME = "java/lang/Class";
+	private static final String CLASSLOADER_INTERNAL_NAME = "java/lang/ClassLoader";
+	private static final String MODULE_INTERNAL_NAME = "java/lang/Module";
+	private static final String SYSTEM_INTERNAL_NAME = "java/lang/System";
+	private static final String RUNTIME_INTERNAL_NAME = "java/lang/Runtime";
+
+	private static final Handle USED_INDEX_MARKER_BOOTSTRAP_HANDLE = new Handle(Opcodes.H_INVOKESTATIC,
+			INSTRUMENTATIONDATA_INTERNAL_NAME, "bootstrapUsedIndexMarker",
+			"(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;I)Ljava/lang/invoke/CallSite;",
+			false);
+
+	private final String className;
+	private final boolean preventExit;
+	private final boolean delegateFileSystemProvider;
+	private final boolean delegateIoFileSystem;
+	private final ConstructorDelegate constructorDelegate;
+	private final boolean logInvocations;
+	private final boolean trackMethods;
+	private final Set<String> trackedPackages;
+	private final int classIndex;
+	private final Map<Integer, String> embeddedClassIndices = new HashMap<>();
+	private boolean invokeDynamicMarkers;
+
+	public InstrumentingClassVisitor(ClassVisitor cv, String className, boolean logInvocations, boolean trackMethods,
+			Set<String> trackedPackages, boolean preventExit) {
+		super(UserClassFileTransformer.ASM_API, cv);
+		this.className = className;
+		this.preventExit = preventExit;
+		this.delegateFileSystemProvider = !FILESYSTEMPROVIDER_PROXY_INTERNAL_NAME.equals(className);
+		this.delegateIoFileSystem = !IOFILESYSTEM_PROXY_INTERNAL_NAME.equals(className);
+		this.constructorDelegate = getConstructorDelegate(className);
+		if (logInvocations) {
+			this.classIndex = InstrumentationData.getClassIndex(className);
+			this.logInvocations = classIndex >= 0;
+		} else {
+			this.classIndex = -1;
+			this.logInvocations = false;
+		}
+		this.trackMethods = this.logInvocations && trackMethods;
+		this.trackedPackages = trackedPackages;
+	}
+
+	@Override
+	public void visit(int version, int access, String name, String signature, String superName,
+			String[] interfaces) {
+		//invokedynamic is available since Java 7 class files
+		invokeDynamicMarkers = INVOKEDYNAMIC_MARKERS && (version & 0xFFFF) >= Opcodes.V1_7;
+		super.visit(version, access, name, signature, superName, interfaces);
+	}
+
+	@Override
+	public MethodVisitor visitMethod(int access, String name, String descriptor, String signature,
+			String[] exceptions) {
+		MethodVisitor mv = super.visitMethod(access, name, descriptor, signature, exceptions);
+		ConstructorDelegate cdelegate = null;
+		if (constructorDelegate != null && "<init>".equals(name)
+				&& constructorDelegate.methodDescriptor.equals(descriptor)) {
+			cdelegate = constructorDelegate;
+		}
+		return new InstrumentingMethodVisitor(api, mv, name + descriptor, cdelegate);
+	}
+
+	/**
+	 * Gets the class indices and method markers that were embedded in the transformed class by the dependency
+	 * tracking markers.
+	 * 
+	 * @return The class indices mapped to their class names, and the method markers mapped to their method keys.
+	 * @see InstrumentationData#getMethodMarker(String)
+	 */
+	public Map<Integer, String> getEmbeddedClassIndices() {
+		return embeddedClassIndices;
+	}
+
+	static boolean isConstructorDelegatedClass(String classname) {
+		return getConstructorDelegate(classname) != null;
+	}
+
+	static boolean isExitMethod(String owner, String name) {
+		return (SYSTEM_INTERNAL_NAME.equals(owner) || RUNTIME_INTERNAL_NAME.equals(owner))
+				&& ("halt".equals(name) || "exit".equals(name));
+	}
+
+	static boolean isClassLoaderResourceMethod(String owner, String name) {
+		switch (owner) {
+			case CLASSLOADER_INTERNAL_NAME: {
+				//resources introduced in JDK9
+				return "getResource".equals(name) || "getResources".equals(name)
+						|| "getResourceAsStream".equals(name) || "resources".equals(name);
+			}
+			case MODULE_INTERNAL_NAME: {
+				return "getResourceAsStream".equals(name);
+			}
+			case CLASS_INTERNAL_NAME: {
+				return "getResource".equals(name) || "getResourceAsStream".equals(name);
+			}
+			default: {
+				return false;
+			}
+		}
+	}
+
+	private static ConstructorDelegate getConstructorDelegate(String classname) {
+		switch (classname) {
+			case "java/io/FileOutputStream": {
+				return new ConstructorDelegate("(Ljava/io/File;Z)V", "newFileOutputStream",
+						new int[] { Opcodes.ALOAD, Opcodes.ILOAD });
+			}
+			case "java/io/FileInputStream": {
+				return new ConstructorDelegate("(Ljava/io/File;)V", "newFileInputStream",
+						new int[] { Opcodes.ALOAD });
+			}
+			case "java/util/zip/ZipFile": {
+				return new ConstructorDelegate("(Ljava/io/File;ILjava/nio/charset/Charset;)V", "newZipFile",
+						new int[] { Opcodes.ALOAD, Opcodes.ILOAD, Opcodes.ALOAD });
+			}
+			case "java/io/RandomAccessFile": {
+				return new ConstructorDelegate("(Ljava/io/File;Ljava/lang/String;)V", "newRandomAccessFile",
+						new int[] { Opcodes.ALOAD, Opcodes.ALOAD });
+			}
+			default: {
+				return null;
+			}
+		}
+	}
+
+	private static boolean isIgnoredObjectMethod(String name, String descriptor) {
+		switch (name) {
+			case "hashCode": {
+				return "()I".equals(descriptor);
+			}
+			case "toString": {
+				return "()Ljava/lang/String;".equals(descriptor);
+			}
+			case "getClass": {
+				return "()Ljava/lang/Class;".equals(descriptor);
+			}
+			case "equals": {
+				return "(Ljava/lang/Object;)Z".equals(descriptor);
+			}
+			case "clone": {
+				return "()Ljava/lang/Object;".equals(descriptor);
+			}
+			case "notify":
+			case "notifyAll": {
+				return "()V".equals(descriptor);
+			}
+			case "wait": {
+				return "()V".equals(descriptor) || "(J)V".equals(descriptor) || "(JI)V".equals(descriptor);
+			}
+			case "finalize": {
+				return "()V".equals(descriptor);
+			}
+		}
+		return false;
+	}
+
+	private static class ConstructorDelegate {
+		protected final String methodDescriptor;
+		protected final String targetMethodName;
+		protected final int[] argumentOpcodes;
+
+		public ConstructorDelegate(String methodDescriptor, String targetMethodName, int[] argumentOpcodes) {
+			this.methodDescriptor = methodDescriptor;
+			this.targetMethodName = targetMethodName;
+			this.argumentOpcodes = argumentOpcodes;
+		}
+	}
+
+	private class InstrumentingMethodVisitor extends MethodVisitor {
+		private final String methodNameDescriptor;
+		private final ConstructorDelegate constructorDelegate;
+		/**
+		 * The class indices that were already marked in the current basic block.
+		 * <p>
+		 * The markers that are dominated by a previous marker with the same index are omitted. As labels are the
+		 * only possible join points, the set is cleared at each visited label.
+		 */
+		private final Set<Integer> blockMarkedIndices = new HashSet<>();
+
+		public InstrumentingMethodVisitor(int api, MethodVisitor mv, String methodNameDescriptor,
+				ConstructorDelegate constructorDelegate) {
+			super(api, mv);
+			this.methodNameDescriptor = methodNameDescriptor;
+			this.constructorDelegate = constructorDelegate;
+		}
+
+		@Override
+		public void visitCode() {
+			super.visitCode();
+			if (logInvocations) {
+				//the method entry marker dominates all other markers of the declaring class
+				putMarkerInstructions(classIndex, className);
+				if (trackMethods) {
+					String methodkey = className + ";" + methodNameDescriptor;
+					putMarkerInstructions(InstrumentationData.getMethodMarker(methodkey), methodkey);
+				}
+			}
+			if (constructorDelegate != null) {
+				int[] argopcodes = constructorDelegate.argumentOpcodes;
+				for (int i = 0; i < argopcodes.length; i++) {
+					//load the parameters
+					mv.visitVarInsn(argopcodes[i], i + 1);
+				}
+				mv.visitMethodInsn(Opcodes.INVOKESTATIC, IOFILESYSTEM_PROXY_INTERNAL_NAME,
+						constructorDelegate.targetMethodName, constructorDelegate.methodDescriptor, false);
+			}
+		}
+
+		@Override
+		public void visitLabel(Label label) {
+			blockMarkedIndices.clear();
+			super.visitLabel(label);
+		}
+
+		@Override
+		public void visitFieldInsn(int opcode, String owner, String name, String descriptor) {
+			if (logInvocations && !owner.equals(className)) {
+				//if we are setting or reading a field from another class
+				putMarkerInstructions(owner);
+			}
+			super.visitFieldInsn(opcode, owner, name, descriptor);
+		}
+
+		@Override
+		public void visitLdcInsn(Object value) {
+			super.visitLdcInsn(value);
+			if (logInvocations && value instanceof Type) {
+				handleLdcType((Type) value);
+			}
+		}
+
+		@Override
+		public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+			if (opcode == Opcodes.INVOKEVIRTUAL) {
+				if (delegateIoFileSystem && IOFILESYSTEM_INTERNAL_NAME.equals(owner)
+						&& !isIgnoredObjectMethod(name, descriptor)) {
+					mv.visitMethodInsn(Opcodes.INVOKESTATIC, IOFILESYSTEM_PROXY_INTERNAL_NAME, name,
+							"(" + IOFILESYSTEM_ARGUMENT_DESCRIPTOR + descriptor.substring(1), false);
+					return;
+				}
+				if (isClassLoaderResourceMethod(owner, name)) {
+					putResourceRequestInstructions(owner);
+				} else if (delegateFileSystemProvider && FILESYSTEMPROVIDER_INTERNAL_NAME.equals(owner)
+						&& !isIgnoredObjectMethod(name, descriptor)) {
+					mv.visitMethodInsn(Opcodes.INVOKESTATIC, FILESYSTEMPROVIDER_PROXY_INTERNAL_NAME, name,
+							"(" + FILESYSTEMPROVIDER_DESCRIPTOR + descriptor.substring(1), false);
+					return;
+				}
+			}
+			if (preventExit && "(I)V".equals(descriptor) && isExitMethod(owner, name)) {
+				mv.visitMethodInsn(Opcodes.INVOKESTATIC, INSTRUMENTATIONDATA_INTERNAL_NAME, "exitRequest", "(I)V",
+						false);
+				if (opcode == Opcodes.INVOKEVIRTUAL || opcode == Opcodes.INVOKEINTERFACE) {
+					//pop the unused instance of Runtime if present
+					mv.visitInsn(Opcodes.POP);
+				}
+				return;
+			}
+			if (logInvocations) {
+				putUsedClassInstructions(opcode, owner, name, descriptor);
+			}
+			super.visitMethodInsn(opcode, owner, name, descriptor, isInterface);
+		}
+
+		private void putResourceRequestInstructions(String owner) {
+			switch (owner) {
+				case CLASSLOADER_INTERNAL_NAME: {
+					mv.visitInsn(Opcodes.DUP);
+					mv.visitMethodInsn(Opcodes.INVOKESTATIC, TESTFILEREQUESTOR_INTERNAL_NAME,
+							"requestClassLoaderResource", "(Ljava/lang/String;)V", false);
+					break;
+				}
+				case MODULE_INTERNAL_NAME: {
+					mv.visitInsn(Opcodes.DUP);
+					mv.visitMethodInsn(Opcodes.INVOKESTATIC, TESTFILEREQUESTOR_INTERNAL_NAME,
+							"requestClassLoaderResourceFromModule", "(Ljava/lang/String;)V", false);
+					break;
+				}
+				case CLASS_INTERNAL_NAME: {
+					mv.visitInsn(Opcodes.DUP2);
+					mv.visitMethodInsn(Opcodes.INVOKESTATIC, TESTFILEREQUESTOR_INTERNAL_NAME,
+							"requestClassLoaderResourceFromClass", "(Ljava/lang/Class;Ljava/lang/String;)V", false);
+					break;
+				}
+				default: {
+					break;
+				}
+			}
+		}
+
+		private void putUsedClassInstructions(int opcode, String owner, String name, String descriptor) {
+			switch (owner) {
+				case CLASS_INTERNAL_NAME: {
+					if (opcode != Opcodes.INVOKESTATIC || !"forName".equals(name)) {
+						break;
+					}
+					switch (descriptor) {
+						case "(Ljava/lang/String;)Ljava/lang/Class;":
+						case "(Ljava/lang/Module;Ljava/lang/String;)Ljava/lang/Class;": {
+							mv.visitInsn(Opcodes.DUP);
+							putAddUsedClassCall();
+							break;
+						}
+						case "(Ljava/lang/String;ZLjava/lang/ClassLoader;)Ljava/lang/Class;": {
+							//str - bool - cl
+							mv.visitInsn(Opcodes.DUP_X2);
+							//cl - str - bool - cl
+							mv.visitInsn(Opcodes.POP);
+							//cl - str - bool 
+							mv.visitInsn(Opcodes.DUP_X2);
+							//bool - cl - str - bool
+							mv.visitInsn(Opcodes.POP);
+							//bool - cl - str
+							mv.visitInsn(Opcodes.DUP_X2);
+							//str - bool - cl - str
+							putAddUsedClassCall();
+							break;
+						}
+						default: {
+							//unknown forname call
+							break;
+						}
+					}
+					break;
+				}
+				case CLASSLOADER_INTERNAL_NAME: {
+					if (opcode != Opcodes.INVOKEVIRTUAL || !"loadClass".equals(name)) {
+						break;
+					}
+					switch (descriptor) {
+						case "(Ljava/lang/String;)Ljava/lang/Class;": {
+							mv.visitInsn(Opcodes.DUP);
+							putAddUsedClassCall();
+							break;
+						}
+						case "(Ljava/lang/String;Z)Ljava/lang/Class;": {
+							mv.visitInsn(Opcodes.SWAP);
+							mv.visitInsn(Opcodes.DUP);
+							putAddUsedClassCall();
+							mv.visitInsn(Opcodes.SWAP);
+							break;
+						}
+						default: {
+							//unknown loadclass call
+							break;
+						}
+					}
+					break;
+				}
+				default: {
+					break;
+				}
+			}
+		}
+
+		private void putAddUsedClassCall() {
+			mv.visitMethodInsn(Opcodes.INVOKESTATIC, INSTRUMENTATIONDATA_INTERNAL_NAME, "addUsedClass",
+					"(Ljava/lang/String;)V", false);
+		}
+
+		private void handleLdcType(Type t) {
+			if (t == null) {
+				return;
+			}
+			switch (t.getSort()) {
+				case Type.ARRAY: {
+					handleLdcType(t.getElementType());
+					break;
+				}
+				case Type.OBJECT: {
+					putMarkerInstructions(t.getInternalName());
+					break;
+				}
+				case Type.METHOD: {
+					//better handle the return types and the argument types than be sorry
+					handleLdcType(t.getReturnType());
+					for (Type atype : t.getArgumentTypes()) {
+						handleLdcType(atype);
+					}
+					break;
+				}
+				default: {
+					//primitive or unknown type, unhandled
+					break;
+				}
+			}
+		}
+
+		private void putMarkerInstructions(String classname) {
+			if (!InstrumentationData.isClassInPackages(trackedPackages, classname)) {
+				//changes of the class can't cause the test to be rerun, don't assign an index to it
+				return;
+			}
+			int classindex = InstrumentationData.getClassIndex(classname);
+			if (classindex == classIndex || !blockMarkedIndices.add(classindex)) {
+				return;
+			}
+			putMarkerInstructions(classindex, classname);
+		}
+
+		//the marker is either a class index or a (negative) method marker
+		private void putMarkerInstructions(int marker, String name) {
+			embeddedClassIndices.put(marker, name);
+			if (invokeDynamicMarkers) {
+				mv.visitInvokeDynamicInsn("usedIndex", "()V", USED_INDEX_MARKER_BOOTSTRAP_HANDLE, marker);
+				return;
+			}
+			mv.visitLdcInsn(marker);
+			mv.visitMethodInsn(Opcodes.INVOKESTATIC, INSTRUMENTATIONDATA_INTERNAL_NAME,
+					marker < 0 ? "setUsedMethodMarker" : "setUsedIndex", "(I)V", false);
+		}
+	}
+}
@@ -0,0 +1,498 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.java.testing.agent;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import saker.java.testing.agent.thirdparty.org.objectweb.asm.ClassReader;
+import saker.java.testing.bootstrapagent.InstrumentationData;
+
+/**
+ * Persistent cache of transformed class bytes that is shared between the testing JVMs.
+ * <p>
+ * The cache consists of an append-only index file and an append-only blob file in the configured directory. The
+ * entries are keyed by the SHA-1 hash of the input class bytes and the transformation configuration. The agent
+ * version is expected to be part of the directory path.
+ * <p>
+ * The index is read when the cache is opened, and the records appended by other processes are read when a lookup
+ * misses, so the JVMs running at the same time can use the entries of each other.
+ * <p>
+ * As the class indices and method markers that are embedded by the {@link InstrumentingClassVisitor} are specific to
+ * the JVM, the cached entries store the locations of the corresponding constant pool entries, and they are patched
+ * when the entry is retrieved.
+ */
+class TransformedClassCache {
+	public static final String PROPERTY_DIRECTORY = "saker.java.testing.agent.transform.cache.dir";
+	public static final String PROPERTY_MAX_SIZE = "saker.java.testing.agent.transform.cache.max.size";
+	public static final String PROPERTY_PRINT_STATISTICS = "saker.java.testing.agent.transform.cache.stats";
+
+	private static final long DEFAULT_MAX_SIZE = 256L * 1024 * 1024;
+
+	private static final int FORMAT_VERSION = 2;
+	private static final int KEY_LENGTH = 20;
+	//key, blob offset, blob length
+	private static final int INDEX_RECORD_LENGTH = KEY_LENGTH + 8 + 4;
+
+	private static final int CONSTANT_INTEGER_TAG = 3;
+
+	private static final String INDEX_FILE_NAME = "index";
+	private static final String BLOB_FILE_NAME = "blob";
+
+	private static final ThreadLocal<MessageDigest> DIGESTS = ThreadLocal.withInitial(() -> {
+		try {
+			return MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new AssertionError(e);
+		}
+	});
+
+	private final FileChannel indexChannel;
+	private final FileChannel blobChannel;
+	private final long maxSize;
+
+	private final Map<ByteBuffer, long[]> entries = new ConcurrentHashMap<>();
+	/**
+	 * The digests of the tracked package sets of the class loaders that are part of the keys.
+	 * <p>
+	 * Keyed by the class loaders, so the package sets aren't hashed for each transformed class.
+	 */
+	private final Map<ClassLoader, TrackedPackagesDigest> trackedPackagesDigests = Collections
+			.synchronizedMap(new WeakHashMap<>());
+	private long indexReadPosition;
+	private MappedByteBuffer blobMap;
+	private int blobMapSize;
+
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder storeCount = new LongAdder();
+
+	private TransformedClassCache(FileChannel indexChannel, FileChannel blobChannel, long maxSize) {
+		this.indexChannel = indexChannel;
+		this.blobChannel = blobChannel;
+		this.maxSize = maxSize;
+	}
+
+	public static TransformedClassCache openFromSystemProperties() {
+		String dir = System.getProperty(PROPERTY_DIRECTORY);
+		if (dir == null || dir.isEmpty()) {
+			return null;
+		}
+		long maxsize = DEFAULT_MAX_SIZE;
+		String maxsizeprop = System.getProperty(PROPERTY_MAX_SIZE);
+		if (maxsizeprop != null) {
+			try {
+				maxsize = Long.parseLong(maxsizeprop);
+			} catch (NumberFormatException e) {
+				System.err.println("Invalid transformed class cache size: " + maxsizeprop);
+			}
+		}
+		if (maxsize <= 0) {
+			return null;
+		}
+		TransformedClassCache result = open(Paths.get(dir), maxsize);
+		if (result != null && Boolean.getBoolean(PROPERTY_PRINT_STATISTICS)) {
+			Runtime.getRuntime().addShutdownHook(new Thread(result::printStatistics, "Transform cache statistics"));
+		}
+		return result;
+	}
+
+	public static TransformedClassCache open(Path directory, long maxsize) {
+		try {
+			Files.createDirectories(directory);
+			Path indexpath = directory.resolve(INDEX_FILE_NAME);
+			Path blobpath = directory.resolve(BLOB_FILE_NAME);
+			FileChannel indexchannel = openChannel(indexpath);
+			FileChannel blobchannel;
+			try {
+				blobchannel = openChannel(blobpath);
+				if (blobchannel.size() >= maxsize) {
+					//the cache is full, start over
+					//    the files are deleted instead of truncating them, as other processes may still use them
+					blobchannel.close();
+					indexchannel.close();
+					try {
+						Files.deleteIfExists(blobpath);
+						Files.deleteIfExists(indexpath);
+					} catch (IOException e) {
+						//failed to delete, probably in use on an OS that doesn't allow it. continue with the current one
+					}
+					indexchannel = openChannel(indexpath);
+					blobchannel = openChannel(blobpath);
+				}
+			} catch (Throwable e) {
+				indexchannel.close();
+				throw e;
+			}
+			try {
+				TransformedClassCache result = new TransformedClassCache(indexchannel, blobchannel, maxsize);
+				result.initialize();
+				//load the classes used for the key creation before the transformer is installed
+				result.createKey("", 0, TransformedClassCache.class.getClassLoader(), Collections.emptySet(),
+						new byte[0]);
+				return result;
+			} catch (Throwable e) {
+				indexchannel.close();
+				blobchannel.close();
+				throw e;
+			}
+		} catch (Throwable e) {
+			//the cache is optional, continue without it
+			System.err.println("Failed to open transformed class cache at " + directory + " (" + e + ")");
+			return null;
+		}
+	}
+
+	/**
+	 * Creates the cache key for the given transformation.
+	 *
+	 * @param className
+	 *            The internal name of the transformed class.
+	 * @param configuration
+	 *            The bit flags that affect the transformation.
+	 * @param loader
+	 *            The class loader that defines the class.
+	 * @param trackedPackages
+	 *            The packages that the dependency tracking markers are restricted to, or <code>null</code> if not
+	 *            restricted.
+	 * @param classbytes
+	 *            The input class bytes.
+	 * @return The key.
+	 */
+	public byte[] createKey(String className, int configuration, ClassLoader loader, Set<String> trackedPackages,
+			byte[] classbytes) {
+		byte[] packagesdigest = trackedPackages == null ? null : getTrackedPackagesDigest(loader, trackedPackages);
+		MessageDigest digest = DIGESTS.get();
+		digest.reset();
+		digest.update((byte) FORMAT_VERSION);
+		digest.update((byte) (configuration >>> 24));
+		digest.update((byte) (configuration >>> 16));
+		digest.update((byte) (configuration >>> 8));
+		digest.update((byte) configuration);
+		if (packagesdigest == null) {
+			digest.update((byte) 0);
+		} else {
+			digest.update((byte) 1);
+			digest.update(packagesdigest);
+		}
+		digest.update(className.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+		digest.update(classbytes);
+		return digest.digest();
+	}
+
+	private byte[] getTrackedPackagesDigest(ClassLoader loader, Set<String> packages) {
+		TrackedPackagesDigest cached = trackedPackagesDigests.get(loader);
+		//the packages are set before the class loader defines any classes, but check if they were replaced
+		if (cached != null && cached.packages == packages) {
+			return cached.digest;
+		}
+		MessageDigest digest = DIGESTS.get();
+		digest.reset();
+		for (String pkg : new TreeSet<>(packages)) {
+			digest.update(pkg.getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+		}
+		byte[] result = digest.digest();
+		trackedPackagesDigests.put(loader, new TrackedPackagesDigest(packages, result));
+		return result;
+	}
+
+	public byte[] get(byte[] key) {
+		ByteBuffer keybuf = ByteBuffer.wrap(key);
+		long[] location = entries.get(keybuf);
+		if (location == null) {
+			//the entry may have been stored by an other process since the index was read
+			location = getWithNewIndexRecords(keybuf);
+			if (location == null) {
+				missCount.increment();
+				return null;
+			}
+		}
+		try {
+			byte[] result = decodeRecord(readBlob(location[0], (int) location[1]));
+			hitCount.increment();
+			return result;
+		} catch (IOException e) {
+			missCount.increment();
+			return null;
+		}
+	}
+
+	/**
+	 * Stores the transformation result.
+	 *
+	 * @param key
+	 *            The key created by {@link #createKey(String, int, ClassLoader, Set, byte[])}.
+	 * @param input
+	 *            The reader of the input class bytes.
+	 * @param output
+	 *            The transformed class bytes.
+	 * @param embeddedclassindices
+	 *            The class indices that are present in the transformed class bytes mapped to their class names.
+	 */
+	public void put(byte[] key, ClassReader input, byte[] output, Map<Integer, String> embeddedclassindices) {
+		byte[] record;
+		try {
+			record = encodeRecord(input, output, embeddedclassindices);
+		} catch (IOException e) {
+			return;
+		}
+		if (record == null) {
+			return;
+		}
+		ByteBuffer keybuf = ByteBuffer.wrap(key);
+		if (entries.containsKey(keybuf)) {
+			return;
+		}
+		synchronized (this) {
+			try (FileLock lock = indexChannel.lock()) {
+				readNewIndexRecords();
+				if (entries.containsKey(keybuf)) {
+					//added by an other process
+					return;
+				}
+				long blobpos = blobChannel.size();
+				if (blobpos >= maxSize) {
+					//full
+					return;
+				}
+				writeFully(blobChannel, ByteBuffer.wrap(record), blobpos);
+
+				ByteBuffer indexrecord = ByteBuffer.allocate(INDEX_RECORD_LENGTH);
+				indexrecord.put(key);
+				indexrecord.putLong(blobpos);
+				indexrecord.putInt(record.length);
+				indexrecord.flip();
+				writeFully(indexChannel, indexrecord, indexReadPosition);
+				indexReadPosition += INDEX_RECORD_LENGTH;
+
+				entries.put(keybuf, new long[] { blobpos, record.length });
+				storeCount.increment();
+			} catch (IOException e) {
+				//failed to store, ignore
+			}
+		}
+	}
+
+	public long getHitCount() {
+		return hitCount.sum();
+	}
+
+	public long getMissCount() {
+		return missCount.sum();
+	}
+
+	public long getStoreCount() {
+		return storeCount.sum();
+	}
+
+	private void printStatistics() {
+		System.err.println("Transformed class cache: hits: " + getHitCount() + " misses: " + getMissCount()
+				+ " stored: " + getStoreCount());
+	}
+
+	private void initialize() throws IOException {
+		try (FileLock lock = indexChannel.lock()) {
+			readNewIndexRecords();
+			long blobsize = blobChannel.size();
+			if (blobsize > 0) {
+				blobMapSize = (int) Math.min(blobsize, Integer.MAX_VALUE);
+				blobMap = blobChannel.map(FileChannel.MapMode.READ_ONLY, 0, blobMapSize);
+			}
+		}
+	}
+
+	/**
+	 * Reads the index records that were appended since the last read, and looks up the entry again.
+	 */
+	private long[] getWithNewIndexRecords(ByteBuffer keybuf) {
+		synchronized (this) {
+			try {
+				if (indexChannel.size() - indexReadPosition < INDEX_RECORD_LENGTH) {
+					//no new records
+					return null;
+				}
+				try (FileLock lock = indexChannel.lock(0, Long.MAX_VALUE, true)) {
+					readNewIndexRecords();
+				}
+			} catch (IOException e) {
+				return null;
+			}
+		}
+		return entries.get(keybuf);
+	}
+
+	private void readNewIndexRecords() throws IOException {
+		long size = indexChannel.size();
+		//ignore the torn record at the end if any. it is overwritten by the next append
+		long end = size - size % INDEX_RECORD_LENGTH;
+		if (end <= indexReadPosition) {
+			return;
+		}
+		ByteBuffer buf = ByteBuffer.allocate((int) (end - indexReadPosition));
+		readFully(indexChannel, buf, indexReadPosition);
+		buf.flip();
+		long blobsize = blobChannel.size();
+		while (buf.hasRemaining()) {
+			byte[] key = new byte[KEY_LENGTH];
+			buf.get(key);
+			long offset = buf.getLong();
+			int length = buf.getInt();
+			if (offset < 0 || length <= 0 || offset + length > blobsize) {
+				continue;
+			}
+			entries.putIfAbsent(ByteBuffer.wrap(key), new long[] { offset, length });
+		}
+		indexReadPosition = end;
+	}
+
+	private byte[] readBlob(long offset, int length) throws IOException {
+		byte[] result = new byte[length];
+		if (offset + length <= blobMapSize) {
+			ByteBuffer buf = blobMap.duplicate();
+			buf.position((int) offset);
+			buf.get(result);
+		} else {
+			readFully(blobChannel, ByteBuffer.wrap(result), offset);
+		}
+		return result;
+	}
+
+	private static byte[] encodeRecord(ClassReader input, byte[] output, Map<Integer, String> embeddedclassindices)
+			throws IOException {
+		List<Integer> reloffsets = new ArrayList<>();
+		List<String> relnames = new ArrayList<>();
+		if (embeddedclassindices != null && !embeddedclassindices.isEmpty()) {
+			int itemcount = input.getItemCount();
+			for (int i = 1; i < itemcount; i++) {
+				int offset = input.getItem(i);
+				if (offset != 0 && input.readByte(offset - 1) == CONSTANT_INTEGER_TAG
+						&& embeddedclassindices.containsKey(input.readInt(offset))) {
+					//the class index is shared with an integer constant of the class itself
+					//    it cannot be relocated, so don't cache the class
+					return null;
+				}
+			}
+			ClassReader outreader = new ClassReader(output);
+			itemcount = outreader.getItemCount();
+			for (int i = 1; i < itemcount; i++) {
+				int offset = outreader.getItem(i);
+				if (offset == 0 || outreader.readByte(offset - 1) != CONSTANT_INTEGER_TAG) {
+					continue;
+				}
+				String name = embeddedclassindices.get(outreader.readInt(offset));
+				if (name != null) {
+					reloffsets.add(offset);
+					relnames.add(name);
+				}
+			}
+			if (reloffsets.size() != embeddedclassindices.size()) {
+				return null;
+			}
+		}
+		ByteArrayOutputStream baos = new ByteArrayOutputStream(output.length + reloffsets.size() * 32 + 4);
+		try (DataOutputStream out = new DataOutputStream(baos)) {
+			int size = reloffsets.size();
+			out.writeInt(size);
+			for (int i = 0; i < size; i++) {
+				out.writeInt(reloffsets.get(i));
+				out.writeUTF(relnames.get(i));
+			}
+			out.write(output);
+		}
+		return baos.toByteArray();
+	}
+
+	private static byte[] decodeRecord(byte[] record) throws IOException {
+		ByteArrayInputStream bais = new ByteArrayInputStream(record);
+		DataInputStream in = new DataInputStream(bais);
+		int count = in.readInt();
+		int[] offsets = new int[count];
+		String[] names = new String[count];
+		for (int i = 0; i < count; i++) {
+			offsets[i] = in.readInt();
+			names[i] = in.readUTF();
+		}
+		byte[] result = new byte[bais.available()];
+		in.readFully(result);
+		for (int i = 0; i < count; i++) {
+			String name = names[i];
+			//method keys contain a semicolon, that is not allowed in class names
+			int idx = name.indexOf(';') < 0 ? InstrumentationData.getClassIndex(name)
+					: InstrumentationData.getMethodMarker(name);
+			int offset = offsets[i];
+			result[offset] = (byte) (idx >>> 24);
+			result[offset + 1] = (byte) (idx >>> 16);
+			result[offset + 2] = (byte) (idx >>> 8);
+			result[offset + 3] = (byte) idx;
+		}
+		return result;
+	}
+
+	private static FileChannel openChannel(Path path) throws IOException {
+		return FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+		while (buf.hasRemaining()) {
+			int read = channel.read(buf, position);
+			if (read < 0) {
+				throw new IOException("Unexpected end of file.");
+			}
+			position += read;
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+		while (buf.hasRemaining()) {
+			position += channel.write(buf, position);
+		}
+	}
+
+	private static final class TrackedPackagesDigest {
+		protected final Set<String> packages;
+		protected final byte[] digest;
+
+		public TrackedPackagesDigest(Set<String> packages, byte[] digest) {
+			this.packages = packages;
+			this.digest = digest;
+		}
+	}
+}
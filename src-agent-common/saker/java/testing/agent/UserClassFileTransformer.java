@@ -16,29 +16,27 @@
 package saker.java.testing.agent;
 
 import java.lang.instrument.ClassFileTransformer;
-import java.nio.file.spi.FileSystemProvider;
+import java.lang.instrument.Instrumentation;
 import java.security.ProtectionDomain;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
 
 import saker.java.testing.agent.thirdparty.org.objectweb.asm.ClassReader;
-import saker.java.testing.agent.thirdparty.org.objectweb.asm.ClassVisitor;
 import saker.java.testing.agent.thirdparty.org.objectweb.asm.ClassWriter;
 import saker.java.testing.agent.thirdparty.org.objectweb.asm.Opcodes;
-import saker.java.testing.agent.thirdparty.org.objectweb.asm.Type;
-import saker.java.testing.bootstrapagent.NioFileSystemProviderSakerProxy;
+import saker.java.testing.bootstrapagent.InstrumentationData;
 
 class UserClassFileTransformer implements ClassFileTransformer {
 	public static final int ASM_API = Opcodes.ASM9;
-	private static final String FILESYSTEMPROVIDER_INTERNAL_NAME = Type.getInternalName(FileSystemProvider.class);
-	private static final String FILESYSTEMPROVIDER_DESCRIPTOR = "L" + FILESYSTEMPROVIDER_INTERNAL_NAME + ";";
-	private static final String FILESYSTEMPROVIDER_PROXY_INTERNAL_NAME = Type
-			.getInternalName(NioFileSystemProviderSakerProxy.class);
-
-	private static final String IOFILESYSTEM_INTERNAL_NAME = "java/io/FileSystem";
-	private static final String IOFILESYSTEM_ARGUMENT_INTERNAL_NAME = TestingInstrumentationAgent.JAVA_IO_FILESYSTEM_PROXY_ARGUMENT_INTERNAL_NAME;
-	private static final String IOFILESYSTEM_ARGUMENT_DESCRIPTOR = "L" + IOFILESYSTEM_ARGUMENT_INTERNAL_NAME + ";";
-	private static final String IOFILESYSTEM_PROXY_INTERNAL_NAME = TestingInstrumentationAgent.JAVA_IO_FILESYSTEM_PROXY_INTERNAL_NAME;
+	/**
+	 * System property to retransform all modifiable classes at startup instead of only the ones that contain
+	 * delegated call sites.
+	 */
+	public static final String PROPERTY_RETRANSFORM_ALL_LOADED_CLASSES = "saker.java.testing.agent.retransform.all";
+	public static final String PROPERTY_PRINT_STATISTICS = "saker.java.testing.agent.stats";
 
 	private static final Set<ClassLoader> systemClassLoaders = new HashSet<>();
 	{
@@ -49,54 +47,78 @@ class UserClassFileTransformer implements ClassFileTransformer {
 		}
 	}
 
+	private final TransformedClassCache transformCache;
+	private final TransformStatistics statistics;
+
+	public UserClassFileTransformer(TransformedClassCache transformCache) {
+		this.transformCache = transformCache;
+		if (Boolean.getBoolean(PROPERTY_PRINT_STATISTICS)) {
+			TransformStatistics stats = new TransformStatistics();
+			this.statistics = stats;
+			Runtime.getRuntime().addShutdownHook(new Thread(stats::print, "Transform statistics printer"));
+		} else {
+			this.statistics = null;
+		}
+	}
+
 	@Override
 	public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined,
 			ProtectionDomain protectionDomain, byte[] classfileBuffer) {
 		if (className == null) {
 			return null;
 		}
+		long start = statistics == null ? 0 : System.nanoTime();
 		try {
 			//do not transform bootstrap classes 
 			//do not transform classes on the classpath e.g. saker classes
-			boolean loginvocations = loader != null && !systemClassLoaders.contains(loader);
-			boolean preventexit = loader != null && !systemClassLoaders.contains(loader);
-			ClassReader cr = new ClassReader(classfileBuffer);
-			ClassWriter cw = new ClassWriter(cr, ClassWriter.COMPUTE_MAXS);
-			ClassVisitor lastcv = cw;
-			if (loginvocations) {
-				lastcv = new MethodInvocationLoggerClassVisitor(lastcv, className);
+			boolean userclass = loader != null && !systemClassLoaders.contains(loader);
+			if (userclass && classBeingRedefined == null) {
+				InstrumentationData.classDefined(loader, className);
 			}
-			if (preventexit) {
-				lastcv = new ExitCallDisablerClassVisitor(lastcv);
+			boolean loginvocations = userclass && InstrumentationData.isDependencyTrackingEnabled(loader, className);
+			boolean trackmethods = loginvocations && InstrumentationData.isMethodDependencyTrackingEnabled(loader);
+			Set<String> trackedpackages = loginvocations ? InstrumentationData.getTrackedPackages(loader) : null;
+			boolean preventexit = userclass;
+			ClassReader cr = null;
+			if (!loginvocations && !InstrumentingClassVisitor.isConstructorDelegatedClass(className)) {
+				//only call sites may be modified, check if there are any before doing the transformation
+				cr = new ClassReader(classfileBuffer);
+				if (!ClassTransformationScanner.isCallSiteTransformationRequired(cr, preventexit)) {
+					if (statistics != null) {
+						statistics.skipped(classfileBuffer.length, System.nanoTime() - start);
+					}
+					return null;
+				}
 			}
-			if (!FILESYSTEMPROVIDER_PROXY_INTERNAL_NAME.equals(className)) {
-				lastcv = new ClassMethodDelegateClassVisitor(lastcv, FILESYSTEMPROVIDER_DESCRIPTOR,
-						FILESYSTEMPROVIDER_INTERNAL_NAME, FILESYSTEMPROVIDER_PROXY_INTERNAL_NAME);
+			byte[] cachekey = null;
+			if (transformCache != null) {
+				int configuration = (loginvocations ? 1 : 0) | (preventexit ? 2 : 0)
+						| (InstrumentingClassVisitor.INVOKEDYNAMIC_MARKERS ? 4 : 0) | (trackmethods ? 8 : 0);
+				cachekey = transformCache.createKey(className, configuration, loader, trackedpackages,
+						classfileBuffer);
+				byte[] cached = transformCache.get(cachekey);
+				if (cached != null) {
+					if (statistics != null) {
+						statistics.cached(classfileBuffer.length, cached.length, System.nanoTime() - start);
+					}
+					return cached;
+				}
 			}
-			lastcv = new ClassLoaderResourceDelegateClassVisitor(lastcv);
-//			lastcv = new ClassMethodDelegateClassVisitor(lastcv, NIOFILESYSTEM_SIGNATURE, NIOFILESYSTEM_DESCRIPTOR, NIOFILESYSTEM_PROXY_DESCRIPTOR);
-			if (!IOFILESYSTEM_PROXY_INTERNAL_NAME.equals(className)) {
-				lastcv = new ClassMethodDelegateClassVisitor(lastcv, IOFILESYSTEM_ARGUMENT_DESCRIPTOR,
-						IOFILESYSTEM_INTERNAL_NAME, IOFILESYSTEM_PROXY_INTERNAL_NAME);
+			if (cr == null) {
+				cr = new ClassReader(classfileBuffer);
+			}
+			ClassWriter cw = new ClassWriter(cr, ClassWriter.COMPUTE_MAXS);
+			InstrumentingClassVisitor instrumentingcv = new InstrumentingClassVisitor(cw, className, loginvocations,
+					trackmethods, trackedpackages, preventexit);
+			cr.accept(instrumentingcv, 0);
+			byte[] result = cw.toByteArray();
+			if (cachekey != null) {
+				transformCache.put(cachekey, cr, result, instrumentingcv.getEmbeddedClassIndices());
 			}
-			if ("java/io/FileOutputStream".equals(className)) {
-				lastcv = new ConstructorDelegateClassVisitor(lastcv, "(Ljava/io/File;Z)V",
-						IOFILESYSTEM_PROXY_INTERNAL_NAME, "newFileOutputStream",
-						new int[] { Opcodes.ALOAD, Opcodes.ILOAD });
-			} else if ("java/io/FileInputStream".equals(className)) {
-				lastcv = new ConstructorDelegateClassVisitor(lastcv, "(Ljava/io/File;)V",
-						IOFILESYSTEM_PROXY_INTERNAL_NAME, "newFileInputStream", new int[] { Opcodes.ALOAD });
-			} else if ("java/util/zip/ZipFile".equals(className)) {
-				lastcv = new ConstructorDelegateClassVisitor(lastcv, "(Ljava/io/File;ILjava/nio/charset/Charset;)V",
-						IOFILESYSTEM_PROXY_INTERNAL_NAME, "newZipFile",
-						new int[] { Opcodes.ALOAD, Opcodes.ILOAD, Opcodes.ALOAD });
-			} else if ("java/io/RandomAccessFile".equals(className)) {
-				lastcv = new ConstructorDelegateClassVisitor(lastcv, "(Ljava/io/File;Ljava/lang/String;)V",
-						IOFILESYSTEM_PROXY_INTERNAL_NAME, "newRandomAccessFile",
-						new int[] { Opcodes.ALOAD, Opcodes.ALOAD });
+			if (statistics != null) {
+				statistics.transformed(classfileBuffer.length, result.length, System.nanoTime() - start);
 			}
-			cr.accept(lastcv, 0);
-			return cw.toByteArray();
+			return result;
 		} catch (Throwable e) {
 			System.err.println("Failed to transform class bytes for " + className);
 			System.err.println("Exiting...");
@@ -108,4 +130,89 @@ class UserClassFileTransformer implements ClassFileTransformer {
 		}
 		return null;
 	}
+
+	static void retransformLoadedClasses(Instrumentation inst) {
+		long start = System.nanoTime();
+		boolean all = Boolean.getBoolean(PROPERTY_RETRANSFORM_ALL_LOADED_CLASSES);
+		Class<?>[] loadedclasses = inst.getAllLoadedClasses();
+		List<Class<?>> retransformclasses = new ArrayList<>();
+		for (Class<?> c : loadedclasses) {
+			if (!inst.isModifiableClass(c)) {
+				continue;
+			}
+			if (all || ClassTransformationScanner.isRetransformationRequired(c)) {
+				retransformclasses.add(c);
+			}
+		}
+		if (!retransformclasses.isEmpty()) {
+			try {
+				inst.retransformClasses(retransformclasses.toArray(new Class<?>[retransformclasses.size()]));
+			} catch (Throwable e) {
+				//none of the classes were retransformed if the batched call fails
+				//    retransform them one by one so a failure doesn't affect the others
+				for (Class<?> c : retransformclasses) {
+					try {
+						inst.retransformClasses(c);
+					} catch (Throwable e2) {
+						e2.printStackTrace();
+					}
+				}
+			}
+		}
+		if (Boolean.getBoolean(PROPERTY_PRINT_STATISTICS)) {
+			System.err.println("Retransformed " + retransformclasses.size() + " of " + loadedclasses.length
+					+ " loaded classes in " + (System.nanoTime() - start) / 1_000_000 + " ms"
+					+ (all ? " (all)" : ""));
+		}
+	}
+
+	static boolean isSystemClassLoader(ClassLoader cl) {
+		return cl == null || systemClassLoaders.contains(cl);
+	}
+
+	private static final class TransformStatistics {
+		private final LongAdder skippedCount = new LongAdder();
+		private final LongAdder cachedCount = new LongAdder();
+		private final LongAdder transformedCount = new LongAdder();
+		private final LongAdder skippedNanos = new LongAdder();
+		private final LongAdder cachedNanos = new LongAdder();
+		private final LongAdder transformedNanos = new LongAdder();
+		private final LongAdder inputBytes = new LongAdder();
+		private final LongAdder outputBytes = new LongAdder();
+
+		public void skipped(int inputlength, long nanos) {
+			skippedCount.increment();
+			skippedNanos.add(nanos);
+			inputBytes.add(inputlength);
+		}
+
+		public void cached(int inputlength, int outputlength, long nanos) {
+			cachedCount.increment();
+			cachedNanos.add(nanos);
+			inputBytes.add(inputlength);
+			outputBytes.add(outputlength);
+		}
+
+		public void transformed(int inputlength, int outputlength, long nanos) {
+			transformedCount.increment();
+			transformedNanos.add(nanos);
+			inputBytes.add(inputlength);
+			outputBytes.add(outputlength);
+		}
+
+		public void print() {
+			long modified = cachedCount.sum() + transformedCount.sum();
+			System.err.println("Class transformation statistics:");
+			System.err.println("    Skipped: " + format(skippedCount.sum(), skippedNanos.sum()));
+			System.err.println("    Cached: " + format(cachedCount.sum(), cachedNanos.sum()));
+			System.err.println("    Transformed: " + format(transformedCount.sum(), transformedNanos.sum()));
+			System.err.println("    Input bytes: " + inputBytes.sum() + ", output bytes: " + outputBytes.sum()
+					+ (modified == 0 ? "" : " (" + outputBytes.sum() / modified + " bytes per modified class)"));
+		}
+
+		private static String format(long count, long nanos) {
+			return count + " classes in " + nanos / 1_000_000 + " ms"
+					+ (count == 0 ? "" : " (" + nanos / count / 1_000 + " us per class)");
+		}
+	}
 }
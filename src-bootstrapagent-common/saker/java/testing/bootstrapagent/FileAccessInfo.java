@@ -25,8 +25,21 @@ public class FileAccessInfo {
 	private static final int FLAG_READ = 1 << 0;
 	private static final int FLAG_WRITTEN = 1 << 1;
 	private static final int FLAG_LISTED = 1 << 2;
+	/**
+	 * Only the attributes of the file were queried. (E.g. existence check)
+	 * <p>
+	 * The flag is not set if the file is read, as the read dependency includes the stat dependency.
+	 */
+	private static final int FLAG_STAT = 1 << 3;
 
 	private volatile int accessFlags = 0;
+	/**
+	 * The flags of the blocking requests that have completed. ({@link #FLAG_READ}, {@link #FLAG_STAT} and
+	 * {@link #FLAG_LISTED})
+	 * <p>
+	 * Other threads that access the file need to wait for them, as the file may be synchronized during the request.
+	 */
+	private volatile int doneFlags = 0;
 	private String path;
 
 	public FileAccessInfo(String path) {
@@ -34,24 +47,83 @@ public class FileAccessInfo {
 	}
 
 	private void addFlags(final int additionalflags) {
-		if (((additionalflags & FLAG_READ) == FLAG_READ)) {
-			TestFileRequestor.requestReadFile(path);
-		}
-		if (((additionalflags & FLAG_LISTED) == FLAG_LISTED)) {
-			TestFileRequestor.requestListFile(path);
-		}
-		if (((additionalflags & FLAG_WRITTEN) == FLAG_WRITTEN)) {
-			TestFileRequestor.requestWriteFile(path);
-		}
+		int addedflags;
 		while (true) {
 			int flags = accessFlags;
-			if (((flags & additionalflags) == additionalflags)) {
-				//already has all flags that needs to be set
+			addedflags = additionalflags & ~flags;
+			if (addedflags == 0) {
+				//already has all flags that needs to be set, the requests were made by a previous call
+				waitRequests(additionalflags & (FLAG_READ | FLAG_STAT | FLAG_LISTED));
 				return;
 			}
 			if (AIFU_accessFlags.compareAndSet(this, flags, flags | additionalflags)) {
-				return;
+				break;
+			}
+		}
+		//only the flags that this call added are requested
+		if (((addedflags & FLAG_STAT) == FLAG_STAT)) {
+			try {
+				TestFileRequestor.requestStatFile(path);
+			} finally {
+				requestDone(FLAG_STAT);
 			}
+			return;
+		}
+		boolean blockingread = false;
+		if (((addedflags & FLAG_READ) == FLAG_READ)) {
+			try {
+				if (((additionalflags & FLAG_WRITTEN) == 0) && TestFileRequestor.isOptimisticReadPath(path)) {
+					//the contents of the file are validated at the end of the test
+					TestFileRequestor.requestReadFileOptimistic(path);
+				} else {
+					TestFileRequestor.requestReadFile(path);
+					blockingread = true;
+				}
+			} finally {
+				requestDone(FLAG_READ);
+			}
+		} else if (((additionalflags & FLAG_READ) == FLAG_READ)) {
+			waitRequests(FLAG_READ);
+		}
+		if (((addedflags & FLAG_LISTED) == FLAG_LISTED)) {
+			try {
+				TestFileRequestor.requestListFile(path);
+			} finally {
+				requestDone(FLAG_LISTED);
+			}
+		} else if (((additionalflags & FLAG_LISTED) == FLAG_LISTED)) {
+			waitRequests(FLAG_LISTED);
+		}
+		if (((addedflags & FLAG_WRITTEN) == FLAG_WRITTEN)) {
+			if (!blockingread && TestFileRequestor.isOptimisticReadPath(path)) {
+				//the file was read optimistically, make sure it is synchronized before the test modifies it
+				TestFileRequestor.requestReadFile(path);
+			}
+			TestFileRequestor.requestWriteFile(path);
+		}
+	}
+
+	private synchronized void requestDone(int flag) {
+		doneFlags |= flag;
+		notifyAll();
+	}
+
+	private void waitRequests(int flags) {
+		if (((doneFlags & flags) == flags)) {
+			return;
+		}
+		boolean interrupted = false;
+		synchronized (this) {
+			while (((doneFlags & flags) != flags)) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
 		}
 	}
 
@@ -63,6 +135,10 @@ public class FileAccessInfo {
 		return ((accessFlags & FLAG_WRITTEN) == FLAG_WRITTEN);
 	}
 
+	public boolean isStat() {
+		return ((accessFlags & FLAG_STAT) == FLAG_STAT);
+	}
+
 	public boolean isDirectoryListed() {
 		return ((accessFlags & FLAG_LISTED) == FLAG_LISTED);
 	}
@@ -71,6 +147,15 @@ public class FileAccessInfo {
 		addFlags(FLAG_READ);
 	}
 
+	public void setStat() {
+		if (((accessFlags & FLAG_READ) == FLAG_READ)) {
+			//the read request includes the attributes of the file
+			waitRequests(FLAG_READ);
+			return;
+		}
+		addFlags(FLAG_STAT);
+	}
+
 //	public void setWritten() {
 //		addFlags(FLAG_WRITTEN);
 //	}
@@ -87,6 +172,10 @@ public class FileAccessInfo {
 		getFileAccessInfoFromMap(file, map).setRead();
 	}
 
+	public static <T> void addStat(T file, Map<T, FileAccessInfo> map) {
+		getFileAccessInfoFromMap(file, map).setStat();
+	}
+
 //	public static <T> void addWritten(T file, Map<T, FileAccessInfo> map) {
 //		getFileAccessInfoFromMap(file, map).setWritten();
 //	}
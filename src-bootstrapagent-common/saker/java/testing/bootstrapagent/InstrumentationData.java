@@ -15,22 +15,49 @@
  */
 package saker.java.testing.bootstrapagent;
 
-import java.util.Arrays;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+import java.lang.invoke.SwitchPoint;
+import java.util.Collections;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.TreeSet;
-import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.WeakHashMap;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
 
 public class InstrumentationData {
 	public static final Object TESTING_INSTRUMENTATION_LOCK = new Object();
 
 	private static final int CLASSES_INITIAL_SIZE = 1024 * 4;
-	private static volatile boolean[] marker_inclusions = new boolean[CLASSES_INITIAL_SIZE];
+	private static final UsedIndexSet USED_CLASS_INDICES = new UsedIndexSet(CLASSES_INITIAL_SIZE);
+	private static final NameIndexTable CLASSNAME_INDICES = new NameIndexTable(USED_CLASS_INDICES);
 
-	private static volatile int currentClassesSize = 0;
+	private static final UsedIndexSet USED_METHOD_INDICES = new UsedIndexSet(CLASSES_INITIAL_SIZE);
+	private static final NameIndexTable METHODKEY_INDICES = new NameIndexTable(USED_METHOD_INDICES);
 
-	private static volatile String[] referenced_classes = new String[InstrumentationData.CLASSES_INITIAL_SIZE];
-	private static final Map<String, Integer> CLASSNAME_INDICES = new ConcurrentSkipListMap<>();
+	/**
+	 * The switch point that is invalidated when the class logger instrumentation is reset.
+	 * <p>
+	 * The invokedynamic based markers are bound to a no-op after their first invocation, guarded by this switch
+	 * point.
+	 */
+	private static volatile SwitchPoint markerSwitchPoint = new SwitchPoint();
+
+	private static final Map<ClassLoader, Predicate<? super String>> CLASSLOADER_DEPENDENCY_TRACKING_FILTERS = Collections
+			.synchronizedMap(new WeakHashMap<>());
+	private static final Map<ClassLoader, Predicate<? super String>> CLASSLOADER_CLASS_LOAD_TRACKING_FILTERS = Collections
+			.synchronizedMap(new WeakHashMap<>());
+	private static final Set<ClassLoader> CLASSLOADER_METHOD_DEPENDENCY_TRACKING = Collections
+			.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+	private static final Map<ClassLoader, Set<String>> CLASSLOADER_TRACKED_PACKAGES = Collections
+			.synchronizedMap(new WeakHashMap<>());
 
 	public static void addUsedClass(Class<?> c) {
 		if (c == null) {
@@ -44,77 +71,246 @@ public class InstrumentationData {
 		if (cname == null) {
 			return;
 		}
-		cname = cname.replace('.', '/');
-		int index = getClassIndex(cname);
-		setUsedIndex(index);
+		//the table handles the binary names without converting them
+		setUsedIndex(CLASSNAME_INDICES.getIndex(cname));
+	}
+
+	/**
+	 * Marks the method as used.
+	 * <p>
+	 * The argument is a method marker, that is the bitwise complement of the method index. The method markers are
+	 * negative, so they can be distinguished from the class indices.
+	 * 
+	 * @param marker
+	 *            The method marker.
+	 * @see #getMethodMarker(String)
+	 */
+	public static void setUsedMethodMarker(int marker) {
+		USED_METHOD_INDICES.set(~marker);
 	}
 
 	public static void setUsedIndex(int idx) {
-		boolean[] inclusions = marker_inclusions;
-		while (true) {
-			inclusions[idx] = true;
-			boolean[] ninclusions = marker_inclusions;
-			if (inclusions == ninclusions) {
-				//the array wasn't changed between updates
-				break;
-			}
-			//set the used index in the new array
-			inclusions = ninclusions;
+		USED_CLASS_INDICES.set(idx);
+	}
+
+	/**
+	 * Sets the filter that determines which classes defined by the given class loader should be instrumented for
+	 * dependency tracking.
+	 * <p>
+	 * The filter is called with the internal name of the class. It should only be set before the class loader defines
+	 * any classes, as already instrumented classes are not affected.
+	 * 
+	 * @param cl
+	 *            The class loader.
+	 * @param filter
+	 *            The filter or <code>null</code> to track all classes.
+	 */
+	public static void setDependencyTrackingFilter(ClassLoader cl, Predicate<? super String> filter) {
+		if (cl == null) {
+			return;
+		}
+		if (filter == null) {
+			CLASSLOADER_DEPENDENCY_TRACKING_FILTERS.remove(cl);
+		} else {
+			CLASSLOADER_DEPENDENCY_TRACKING_FILTERS.put(cl, filter);
 		}
 	}
 
-	//takes the / separated name of the class (internal name)
+	/**
+	 * Sets whether the methods executed by the classes of the given class loader should be tracked.
+	 * <p>
+	 * If enabled, the executed methods are reported in addition to the used classes. Should only be set before the
+	 * class loader defines any classes.
+	 * 
+	 * @param cl
+	 *            The class loader.
+	 * @param enabled
+	 *            <code>true</code> to enable method level dependency tracking.
+	 */
+	public static void setMethodDependencyTracking(ClassLoader cl, boolean enabled) {
+		if (cl == null) {
+			return;
+		}
+		if (enabled) {
+			CLASSLOADER_METHOD_DEPENDENCY_TRACKING.add(cl);
+		} else {
+			CLASSLOADER_METHOD_DEPENDENCY_TRACKING.remove(cl);
+		}
+	}
+
+	public static boolean isMethodDependencyTrackingEnabled(ClassLoader cl) {
+		return CLASSLOADER_METHOD_DEPENDENCY_TRACKING.contains(cl);
+	}
+
+	/**
+	 * Sets the packages of the classes that can be recorded as dependencies by the classes of the given class loader.
+	 * <p>
+	 * The dependency tracking markers are only put for the classes in the given packages, other classes don't get a
+	 * class index. Should only be set before the class loader defines any classes.
+	 * 
+	 * @param cl
+	 *            The class loader.
+	 * @param packages
+	 *            The internal (<code>/</code> separated) names of the packages, or <code>null</code> to track the
+	 *            classes in all packages.
+	 * @see #isClassInPackages(Set, String)
+	 */
+	public static void setTrackedPackages(ClassLoader cl, Set<String> packages) {
+		if (cl == null) {
+			return;
+		}
+		if (packages == null) {
+			CLASSLOADER_TRACKED_PACKAGES.remove(cl);
+		} else {
+			CLASSLOADER_TRACKED_PACKAGES.put(cl, packages);
+		}
+	}
+
+	public static Set<String> getTrackedPackages(ClassLoader cl) {
+		return CLASSLOADER_TRACKED_PACKAGES.get(cl);
+	}
+
+	/**
+	 * Checks if the package of the class is in the given set.
+	 * 
+	 * @param packages
+	 *            The internal names of the packages, or <code>null</code> to include all classes.
+	 * @param classname
+	 *            The internal or binary name of the class.
+	 * @return <code>true</code> if the class is included.
+	 */
+	public static boolean isClassInPackages(Set<String> packages, String classname) {
+		if (packages == null) {
+			return true;
+		}
+		int idx = Math.max(classname.lastIndexOf('/'), classname.lastIndexOf('.'));
+		if (idx < 0) {
+			return packages.contains("");
+		}
+		return packages.contains(classname.substring(0, idx).replace('.', '/'));
+	}
+
+	public static boolean isDependencyTrackingEnabled(ClassLoader cl, String internalname) {
+		if (CLASSLOADER_CLASS_LOAD_TRACKING_FILTERS.containsKey(cl)) {
+			//the classes are tracked when they are defined, no need for markers
+			return false;
+		}
+		Predicate<? super String> filter = CLASSLOADER_DEPENDENCY_TRACKING_FILTERS.get(cl);
+		return filter == null || filter.test(internalname);
+	}
+
+	/**
+	 * Sets the class load based dependency tracking for the given class loader.
+	 * <p>
+	 * If set, the classes defined by the class loader are not instrumented with dependency tracking markers, but are
+	 * recorded as used when they are defined. The filter is called with the internal name of the class. It should
+	 * only be set before the class loader defines any classes.
+	 * 
+	 * @param cl
+	 *            The class loader.
+	 * @param filter
+	 *            The filter for the recorded classes or <code>null</code> to disable class load tracking.
+	 */
+	public static void setClassLoadDependencyTracking(ClassLoader cl, Predicate<? super String> filter) {
+		if (cl == null) {
+			return;
+		}
+		if (filter == null) {
+			CLASSLOADER_CLASS_LOAD_TRACKING_FILTERS.remove(cl);
+		} else {
+			CLASSLOADER_CLASS_LOAD_TRACKING_FILTERS.put(cl, filter);
+		}
+	}
+
+	//called by the agent when a class is defined
+	public static void classDefined(ClassLoader cl, String internalname) {
+		Predicate<? super String> filter = CLASSLOADER_CLASS_LOAD_TRACKING_FILTERS.get(cl);
+		if (filter != null && filter.test(internalname)) {
+			setUsedIndex(getClassIndex(internalname));
+		}
+	}
+
+	/**
+	 * Bootstrap method for the invokedynamic based used class markers.
+	 * <p>
+	 * The returned call site marks the class index as used on the first invocation, and becomes a no-op until the
+	 * next {@link #resetClassLoggerInstrumentation()} call.
+	 */
+	public static CallSite bootstrapUsedIndexMarker(MethodHandles.Lookup caller, String name, MethodType type,
+			int classindex) {
+		//the argument is a method marker if negative
+		return new UsedIndexMarkerCallSite(classindex);
+	}
+
+	/**
+	 * Gets the marker for the given method.
+	 * <p>
+	 * The method key is the internal name of the declaring class, a semicolon, and the name and descriptor of the
+	 * method. E.g. <code>java/lang/Object;toString()Ljava/lang/String;</code>
+	 * 
+	 * @param methodkey
+	 *            The method key.
+	 * @return The method marker.
+	 * @see #setUsedMethodMarker(int)
+	 */
+	public static int getMethodMarker(String methodkey) {
+		return ~METHODKEY_INDICES.getIndex(methodkey);
+	}
+
+	//takes the / separated name of the class (internal name), binary names are handled the same way
 	public static int getClassIndex(String classname) {
 		if (classname == null) {
 			return -1;
 		}
-		Integer got = CLASSNAME_INDICES.get(classname);
-		if (got != null) {
-			return got;
-		}
-		synchronized (InstrumentationData.class) {
-			int index = currentClassesSize++;
-			String[] refclasses = referenced_classes;
-			if (index >= refclasses.length) {
-				int nlen = refclasses.length * 2;
-				refclasses = Arrays.copyOf(refclasses, nlen);
-
-				boolean[] prevmi = InstrumentationData.marker_inclusions;
-				boolean[] newmi = new boolean[nlen];
-				InstrumentationData.marker_inclusions = newmi;
-				for (int i = 0; i < prevmi.length; i++) {
-					//update the inclusions after setting the static field
-					//this is in order to avoid concurrency issues
-					if (prevmi[i]) {
-						newmi[i] = true;
-					}
-				}
-				referenced_classes = refclasses;
-			}
-			refclasses[index] = classname.replace('/', '.');
-			CLASSNAME_INDICES.put(classname, index);
-			return index;
-		}
+		return CLASSNAME_INDICES.getIndex(classname);
 	}
 
 	public static void resetClassLoggerInstrumentation() {
-		boolean[] inclusions = InstrumentationData.marker_inclusions;
-		int len = currentClassesSize;
-		for (int i = 0; i < len; i++) {
-			inclusions[i] = false;
-		}
+		//only clears the indices that were used since the last reset
+		USED_CLASS_INDICES.clear();
+		USED_METHOD_INDICES.clear();
+		//rearm the invokedynamic markers after the inclusions are cleared
+		SwitchPoint prevswitchpoint = markerSwitchPoint;
+		markerSwitchPoint = new SwitchPoint();
+		SwitchPoint.invalidateAll(new SwitchPoint[] { prevswitchpoint });
 	}
 
 	public static Set<String> getDependentClasses() {
 		Set<String> result = new TreeSet<>();
-		boolean[] inclusions = InstrumentationData.marker_inclusions;
-		String[] classnames = referenced_classes;
-		int len = currentClassesSize;
-		for (int i = 0; i < len; i++) {
-			if (inclusions[i]) {
-				result.add(classnames[i]);
-			}
-		}
+		USED_CLASS_INDICES.forEach(i -> result.add(CLASSNAME_INDICES.getBinaryName(i)));
+		return result;
+	}
+
+	/**
+	 * Calls the argument consumer for the indices of the classes that were used since the last reset.
+	 * <p>
+	 * The indices can be converted to class names using {@link #getClassBinaryName(int)}. They are unique for the
+	 * lifetime of the JVM.
+	 * 
+	 * @param consumer
+	 *            The consumer.
+	 */
+	public static void forEachDependentClassIndex(IntConsumer consumer) {
+		USED_CLASS_INDICES.forEach(consumer);
+	}
+
+	public static String getClassBinaryName(int classindex) {
+		return CLASSNAME_INDICES.getBinaryName(classindex);
+	}
+
+	/**
+	 * Gets the executed methods that were tracked since the last reset.
+	 * 
+	 * @return The dot separated names of the declaring classes mapped to the executed method names and descriptors.
+	 */
+	public static NavigableMap<String, NavigableSet<String>> getDependentMethods() {
+		NavigableMap<String, NavigableSet<String>> result = new TreeMap<>();
+		USED_METHOD_INDICES.forEach(i -> {
+			String key = METHODKEY_INDICES.getName(i);
+			int sepidx = key.indexOf(';');
+			result.computeIfAbsent(key.substring(0, sepidx).replace('/', '.'), x -> new TreeSet<>())
+					.add(key.substring(sepidx + 1));
+		});
 		return result;
 	}
 
@@ -122,4 +318,43 @@ public class InstrumentationData {
 		throw new InstrumentationProcessExitRequestedException(exitcode);
 	}
 
+	private static final class UsedIndexMarkerCallSite extends MutableCallSite {
+		private static final MethodType VOID_METHOD_TYPE = MethodType.methodType(void.class);
+		private static final MethodHandle NOOP_METHOD;
+		private static final MethodHandle MARK_METHOD;
+		static {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			try {
+				NOOP_METHOD = lookup.findStatic(UsedIndexMarkerCallSite.class, "noop", VOID_METHOD_TYPE);
+				MARK_METHOD = lookup.findVirtual(UsedIndexMarkerCallSite.class, "mark", VOID_METHOD_TYPE);
+			} catch (NoSuchMethodException | IllegalAccessException e) {
+				throw new ExceptionInInitializerError(e);
+			}
+		}
+
+		private final int index;
+		private final MethodHandle markHandle;
+
+		public UsedIndexMarkerCallSite(int index) {
+			super(VOID_METHOD_TYPE);
+			this.index = index;
+			this.markHandle = MARK_METHOD.bindTo(this);
+			setTarget(markHandle);
+		}
+
+		void mark() {
+			//read the switch point before setting the index, so a concurrent reset is not missed
+			SwitchPoint switchpoint = markerSwitchPoint;
+			if (index < 0) {
+				setUsedMethodMarker(index);
+			} else {
+				setUsedIndex(index);
+			}
+			setTarget(switchpoint.guardWithTest(NOOP_METHOD, markHandle));
+		}
+
+		static void noop() {
+		}
+	}
+
 }
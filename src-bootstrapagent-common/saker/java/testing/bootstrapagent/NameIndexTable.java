@@ -0,0 +1,293 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.java.testing.bootstrapagent;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Concurrent open addressing hash table that assigns sequential indices to class names.
+ * <p>
+ * The <code>'.'</code> and <code>'/'</code> characters are considered to be the same in the names, so both binary and
+ * internal class names can be looked up without converting them. The names are stored in internal form.
+ * <p>
+ * Lookups and insertions don't lock. The table is resized by copying the entries to a new table, and marking the
+ * empty slots of the old one as moved, so concurrent inserters continue in the new table. Locks are only taken
+ * when the table or the index pages are grown.
+ */
+final class NameIndexTable {
+	private static final int INITIAL_CAPACITY = 1024 * 8;
+
+	private static final int ENTRY_PAGE_SHIFT = 12;
+	private static final int ENTRY_PAGE_SIZE = 1 << ENTRY_PAGE_SHIFT;
+	private static final int ENTRY_PAGE_MASK = ENTRY_PAGE_SIZE - 1;
+
+	private static final Entry MOVED = new Entry(null, 0);
+
+	private static final AtomicReferenceFieldUpdater<NameIndexTable, Table> ARFU_table = AtomicReferenceFieldUpdater
+			.newUpdater(NameIndexTable.class, Table.class, "table");
+
+	private volatile Table table = new Table(INITIAL_CAPACITY);
+	private final AtomicInteger indexCounter = new AtomicInteger();
+	/**
+	 * The entries by their indices, in fixed size pages.
+	 */
+	private volatile Entry[][] entryPages = new Entry[0][];
+
+	private final UsedIndexSet usedIndices;
+
+	/**
+	 * Creates a new table.
+	 * 
+	 * @param usedIndices
+	 *            The set that is ensured to have the capacity for the indices before they are returned.
+	 */
+	public NameIndexTable(UsedIndexSet usedIndices) {
+		this.usedIndices = usedIndices;
+	}
+
+	/**
+	 * Gets the index of the name, assigning a new one if not yet present.
+	 * 
+	 * @param name
+	 *            The name.
+	 * @return The index.
+	 */
+	public int getIndex(String name) {
+		int hash = hash(name);
+		Table t = table;
+		Entry newentry = null;
+		while (true) {
+			AtomicReferenceArray<Entry> slots = t.slots;
+			int mask = t.mask;
+			int i = hash & mask;
+			int probes = 0;
+			while (true) {
+				Entry e = slots.get(i);
+				if (e == null) {
+					if (newentry == null) {
+						newentry = new Entry(name.replace('.', '/'), hash);
+					}
+					if (slots.compareAndSet(i, null, newentry)) {
+						int idx = assignIndex(newentry);
+						if (t.count.incrementAndGet() > (mask >>> 1)) {
+							resize(t);
+						}
+						return idx;
+					}
+					//the slot was taken concurrently, check it again
+					continue;
+				}
+				if (e == MOVED) {
+					//the next table is set before the slots are marked
+					t = t.next;
+					break;
+				}
+				if (e.hash == hash && isSameName(e.name, name)) {
+					return awaitIndex(e);
+				}
+				if (++probes > mask) {
+					//the table is full, and hasn't been resized yet
+					resize(t);
+					t = t.next;
+					break;
+				}
+				i = (i + 1) & mask;
+			}
+		}
+	}
+
+	/**
+	 * Gets the internal name for an index that was returned by {@link #getIndex(String)}.
+	 */
+	public String getName(int index) {
+		return getEntry(index).name;
+	}
+
+	/**
+	 * Gets the binary (<code>'.'</code> separated) name for an index that was returned by {@link #getIndex(String)}.
+	 */
+	public String getBinaryName(int index) {
+		Entry e = getEntry(index);
+		String result = e.binaryName;
+		if (result == null) {
+			result = e.name.replace('/', '.');
+			e.binaryName = result;
+		}
+		return result;
+	}
+
+	private Entry getEntry(int index) {
+		return entryPages[index >>> ENTRY_PAGE_SHIFT][index & ENTRY_PAGE_MASK];
+	}
+
+	private int assignIndex(Entry entry) {
+		int idx = indexCounter.getAndIncrement();
+		int pageidx = idx >>> ENTRY_PAGE_SHIFT;
+		Entry[][] pages = entryPages;
+		if (pageidx >= pages.length) {
+			pages = growEntryPages(pageidx);
+		}
+		pages[pageidx][idx & ENTRY_PAGE_MASK] = entry;
+		usedIndices.ensureCapacity(idx + 1);
+		//publish the index after the entry is available by it
+		entry.index = idx;
+		return idx;
+	}
+
+	private synchronized Entry[][] growEntryPages(int pageidx) {
+		Entry[][] pages = entryPages;
+		if (pageidx < pages.length) {
+			return pages;
+		}
+		//only the page references are copied
+		Entry[][] npages = Arrays.copyOf(pages, pageidx + 1);
+		for (int i = pages.length; i < npages.length; i++) {
+			npages[i] = new Entry[ENTRY_PAGE_SIZE];
+		}
+		entryPages = npages;
+		return npages;
+	}
+
+	private void resize(Table t) {
+		synchronized (t) {
+			if (t.next != null) {
+				return;
+			}
+			AtomicReferenceArray<Entry> slots = t.slots;
+			Table n = new Table(slots.length() << 1);
+			t.next = n;
+			for (int i = 0; i < slots.length(); i++) {
+				Entry e = slots.get(i);
+				while (e == null) {
+					if (slots.compareAndSet(i, null, MOVED)) {
+						break;
+					}
+					e = slots.get(i);
+				}
+				if (e != null) {
+					transfer(n, e);
+				}
+			}
+			t.transferred = true;
+			advanceTable();
+		}
+	}
+
+	/**
+	 * Sets the current table to the first one that hasn't been transferred completely.
+	 * <p>
+	 * A table can only be the starting point of lookups if all entries of the previous tables are present in it.
+	 */
+	private void advanceTable() {
+		while (true) {
+			Table current = table;
+			if (!current.transferred) {
+				return;
+			}
+			ARFU_table.compareAndSet(this, current, current.next);
+		}
+	}
+
+	private static void transfer(Table t, Entry entry) {
+		while (true) {
+			AtomicReferenceArray<Entry> slots = t.slots;
+			int mask = t.mask;
+			int i = entry.hash & mask;
+			while (true) {
+				Entry e = slots.get(i);
+				if (e == null) {
+					if (slots.compareAndSet(i, null, entry)) {
+						t.count.incrementAndGet();
+						return;
+					}
+					continue;
+				}
+				if (e == MOVED) {
+					t = t.next;
+					break;
+				}
+				if (e == entry) {
+					return;
+				}
+				i = (i + 1) & mask;
+			}
+		}
+	}
+
+	private static int awaitIndex(Entry e) {
+		int idx;
+		while ((idx = e.index) < 0) {
+			//the inserting thread is assigning the index
+			Thread.yield();
+		}
+		return idx;
+	}
+
+	private static int hash(String name) {
+		int h = 0;
+		int len = name.length();
+		for (int i = 0; i < len; i++) {
+			char c = name.charAt(i);
+			h = 31 * h + (c == '.' ? '/' : c);
+		}
+		return h ^ (h >>> 16);
+	}
+
+	private static boolean isSameName(String internalname, String name) {
+		int len = internalname.length();
+		if (len != name.length()) {
+			return false;
+		}
+		for (int i = 0; i < len; i++) {
+			char c = name.charAt(i);
+			if (internalname.charAt(i) != (c == '.' ? '/' : c)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static final class Entry {
+		final String name;
+		final int hash;
+		volatile int index = -1;
+		String binaryName;
+
+		Entry(String name, int hash) {
+			this.name = name;
+			this.hash = hash;
+		}
+	}
+
+	private static final class Table {
+		final AtomicReferenceArray<Entry> slots;
+		final int mask;
+		final AtomicInteger count = new AtomicInteger();
+		volatile Table next;
+		/**
+		 * Set to <code>true</code> when all entries are present in the next table.
+		 */
+		volatile boolean transferred;
+
+		Table(int capacity) {
+			this.slots = new AtomicReferenceArray<>(capacity);
+			this.mask = capacity - 1;
+		}
+	}
+}
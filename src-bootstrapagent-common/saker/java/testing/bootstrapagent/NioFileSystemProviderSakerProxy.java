@@ -179,6 +179,10 @@ public class NioFileSystemProviderSakerProxy {
 //		FileAccessInfo.addWritten(path, USED_PATHS);
 //	}
 
+	private static void addStatImpl(Path path) {
+		FileAccessInfo.addStat(path.toString(), TestFileRequestor.USED_PATHS);
+	}
+
 	private static void addReadWrittenImpl(Path path) {
 		FileAccessInfo.addReadWritten(path.toString(), TestFileRequestor.USED_PATHS);
 	}
@@ -199,6 +203,12 @@ public class NioFileSystemProviderSakerProxy {
 //		}
 //	}
 
+	private static void addStat(FileSystemProvider fsp, Path path) {
+		if ("file".equals(fsp.getScheme())) {
+			addStatImpl(path);
+		}
+	}
+
 	private static void addReadWritten(FileSystemProvider fsp, Path path) {
 		if ("file".equals(fsp.getScheme())) {
 			addReadWrittenImpl(path);
@@ -280,13 +290,13 @@ public class NioFileSystemProviderSakerProxy {
 		if (!"file".equals(fsp.getScheme())) {
 			return fsp.newDirectoryStream(dir, filter);
 		}
-		addReadImpl(dir);
+		//the children of the directory are synchronized by the list request
+		addDirectoryListedImpl(dir);
 		DirectoryStream<Path> stream;
 		try {
 			stream = fsp.newDirectoryStream(dir, filter);
 		} catch (IOException e) {
 			//TODO we should signal differently that a listing has failed and successful listing might change the result here and in java.io proxy
-			addDirectoryListedImpl(dir);
 			TestFileRequestor.LISTED_DIRECTORY_CONTENTS.putIfAbsent(dir.toString(), Collections.emptyNavigableSet());
 			throw e;
 		}
@@ -367,7 +377,7 @@ public class NioFileSystemProviderSakerProxy {
 	}
 
 	public static boolean isHidden(FileSystemProvider fsp, Path path) throws IOException {
-		addRead(fsp, path);
+		addStat(fsp, path);
 		return fsp.isHidden(path);
 	}
 
@@ -377,7 +387,7 @@ public class NioFileSystemProviderSakerProxy {
 	}
 
 	public static void checkAccess(FileSystemProvider fsp, Path path, AccessMode... modes) throws IOException {
-		addRead(fsp, path);
+		addStat(fsp, path);
 		fsp.checkAccess(path, modes);
 	}
 
@@ -389,6 +399,7 @@ public class NioFileSystemProviderSakerProxy {
 
 	public static <A extends BasicFileAttributes> A readAttributes(FileSystemProvider fsp, Path path, Class<A> type,
 			LinkOption... options) throws IOException {
+		//the attributes contain the size of the file, that depends on the contents
 		addRead(fsp, path);
 		return fsp.readAttributes(path, type, options);
 	}
@@ -406,7 +417,7 @@ public class NioFileSystemProviderSakerProxy {
 	}
 
 	public static boolean exists(FileSystemProvider fsp, Path path, LinkOption... options) throws Throwable {
-		addRead(fsp, path);
+		addStat(fsp, path);
 		return (boolean) exists.invoke(fsp, path, options);
 	}
 
@@ -15,17 +15,51 @@
  */
 package saker.java.testing.bootstrapagent;
 
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.function.Consumer;
 
+/**
+ * Forwards the file accesses of the test cases to the testing file provider.
+ * <p>
+ * The read requests are blocking, as the file may need to be synchronized before the test can access it. Concurrent
+ * read requests are sent in a single batch. The {@linkplain #requestStatFile(String) stat requests} are blocking
+ * as well, and are batched with the read requests. The list requests are blocking as well, as the children of the directory
+ * are only synchronized when it is listed. The write notifications don't need to be waited for, they are queued and
+ * sent in batches along with the next read or list request, or when the notifications are {@linkplain #flush()
+ * flushed} at the end of the test.
+ * <p>
+ * The files that are {@linkplain #setOptimisticReadPaths(Set) optimistically readable} are not waited for, their read
+ * requests are sent the same way as the write notifications.
+ * <p>
+ * The callers should deduplicate the requests for the same path. See {@link FileAccessInfo}.
+ */
 public class TestFileRequestor {
-	private static Consumer<String> fileReadRequestor = TestFileRequestor::ignore;
-	private static Consumer<String> fileWriteRequestor = TestFileRequestor::ignore;
-	private static Consumer<String> fileListRequestor = TestFileRequestor::ignore;
+	private static Consumer<String[]> fileReadsRequestor = TestFileRequestor::ignore;
+	private static Consumer<String[]> fileStatsRequestor = TestFileRequestor::ignore;
+	private static Consumer<String[]> fileWritesRequestor = TestFileRequestor::ignore;
+	private static Consumer<String[]> fileListsRequestor = TestFileRequestor::ignore;
 	private static Consumer<String> classLoaderResourceRequestor = TestFileRequestor::ignore;
 
+	private static final Object READ_BATCH_LOCK = new Object();
+	//guarded by READ_BATCH_LOCK
+	private static ReadBatch currentReadBatch = new ReadBatch();
+	private static boolean readBatchInProgress = false;
+
+	private static final Object FLUSH_LOCK = new Object();
+	private static final ConcurrentLinkedQueue<String> pendingReads = new ConcurrentLinkedQueue<>();
+	private static final ConcurrentLinkedQueue<String> pendingWrites = new ConcurrentLinkedQueue<>();
+
+	private static volatile Set<String> optimisticReadPaths = Collections.emptySet();
+
 	//TODO keep track of opened resources and make the test api close them after tests
 	public static final ConcurrentSkipListMap<String, FileAccessInfo> USED_PATHS = new ConcurrentSkipListMap<>();
 	public static final ConcurrentSkipListMap<String, NavigableSet<String>> LISTED_DIRECTORY_CONTENTS = new ConcurrentSkipListMap<>();
@@ -36,32 +70,181 @@ public class TestFileRequestor {
 	private static void ignore(String s) {
 	}
 
-	//XXX maybe implement a caching mechanism to avoid calling the consumers multiple times for a single file
+	@SuppressWarnings("unused")
+	private static void ignore(String[] s) {
+	}
 
 	private TestFileRequestor() {
 		throw new UnsupportedOperationException();
 	}
 
-	public static void init(Consumer<String> filereadrequestor, Consumer<String> filewriterequestor,
-			Consumer<String> filelistrequestor, Consumer<String> classloaderresourcerequestor) {
-		TestFileRequestor.fileReadRequestor = filereadrequestor;
-		TestFileRequestor.fileWriteRequestor = filewriterequestor;
-		TestFileRequestor.fileListRequestor = filelistrequestor;
+	public static void init(Consumer<String[]> filereadsrequestor, Consumer<String[]> filestatsrequestor,
+			Consumer<String[]> filewritesrequestor, Consumer<String[]> filelistsrequestor,
+			Consumer<String> classloaderresourcerequestor) {
+		TestFileRequestor.fileReadsRequestor = filereadsrequestor;
+		TestFileRequestor.fileStatsRequestor = filestatsrequestor;
+		TestFileRequestor.fileWritesRequestor = filewritesrequestor;
+		TestFileRequestor.fileListsRequestor = filelistsrequestor;
 		TestFileRequestor.classLoaderResourceRequestor = classloaderresourcerequestor;
 
 		clearFileRecordingCollections();
 	}
 
+	/**
+	 * Requests the file to be read, and waits for the request to complete.
+	 * <p>
+	 * If other threads are requesting reads at the same time, the requests are sent in a single batch.
+	 * 
+	 * @param path
+	 *            The path.
+	 */
 	public static void requestReadFile(String path) {
-		fileReadRequestor.accept(path);
+		requestBlocking(path, false);
+	}
+
+	/**
+	 * Requests the attributes of the file to be queried, and waits for the request to complete.
+	 * <p>
+	 * The test case only depends on the existence of the file, not on its contents.
+	 * <p>
+	 * If other threads are requesting reads at the same time, the requests are sent in a single batch.
+	 * 
+	 * @param path
+	 *            The path.
+	 */
+	public static void requestStatFile(String path) {
+		requestBlocking(path, true);
+	}
+
+	private static void requestBlocking(String path, boolean stat) {
+		ReadBatch batch;
+		boolean interrupted = false;
+		synchronized (READ_BATCH_LOCK) {
+			batch = currentReadBatch;
+			(stat ? batch.statPaths : batch.paths).add(path);
+			while (readBatchInProgress && !batch.done) {
+				try {
+					READ_BATCH_LOCK.wait();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (!batch.done) {
+				//send the batch in this thread, start collecting a new one
+				readBatchInProgress = true;
+				currentReadBatch = new ReadBatch();
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		if (batch.done) {
+			batch.rethrowFailure();
+			return;
+		}
+		try {
+			//send the pending notifications first, so they are processed in order
+			flush();
+			if (!batch.paths.isEmpty()) {
+				fileReadsRequestor.accept(batch.paths.toArray(new String[batch.paths.size()]));
+			}
+			if (!batch.statPaths.isEmpty()) {
+				fileStatsRequestor.accept(batch.statPaths.toArray(new String[batch.statPaths.size()]));
+			}
+		} catch (RuntimeException | Error e) {
+			batch.failure = e;
+			throw e;
+		} finally {
+			synchronized (READ_BATCH_LOCK) {
+				batch.done = true;
+				readBatchInProgress = false;
+				READ_BATCH_LOCK.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Sets the paths of the files that can be read without waiting for the read request.
+	 * <p>
+	 * Should be called after {@link #init(Consumer, Consumer, Consumer, Consumer, Consumer)}.
+	 * 
+	 * @param paths
+	 *            The absolute normalized paths.
+	 */
+	public static void setOptimisticReadPaths(Set<String> paths) {
+		optimisticReadPaths = paths == null ? Collections.emptySet() : paths;
+	}
+
+	/**
+	 * Checks if the file at the given path can be read without waiting for the read request.
+	 * <p>
+	 * Relative paths are resolved against the working directory of the process, the same way as the file accesses do.
+	 * 
+	 * @param path
+	 *            The path as passed to the file system.
+	 * @return <code>true</code> if the path is optimistically readable.
+	 */
+	public static boolean isOptimisticReadPath(String path) {
+		Set<String> paths = optimisticReadPaths;
+		if (paths.isEmpty()) {
+			return false;
+		}
+		try {
+			Path p = Paths.get(path);
+			if (!p.isAbsolute()) {
+				//resolved against the user.dir of the process
+				p = p.toAbsolutePath();
+			}
+			return paths.contains(p.normalize().toString());
+		} catch (RuntimeException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Requests the file to be read without waiting for the request to complete.
+	 * 
+	 * @param path
+	 *            The path.
+	 * @see #isOptimisticReadPath(String)
+	 */
+	public static void requestReadFileOptimistic(String path) {
+		pendingReads.add(path);
 	}
 
 	public static void requestWriteFile(String path) {
-		fileWriteRequestor.accept(path);
+		pendingWrites.add(path);
 	}
 
+	/**
+	 * Requests the directory to be listed, and waits for the request to complete.
+	 * <p>
+	 * Should be called after the read request of the directory.
+	 * 
+	 * @param path
+	 *            The path.
+	 */
 	public static void requestListFile(String path) {
-		fileListRequestor.accept(path);
+		//send the pending notifications first, so they are processed in order
+		flush();
+		fileListsRequestor.accept(new String[] { path });
+	}
+
+	/**
+	 * Sends the pending optimistic read requests, and the write notifications.
+	 */
+	public static void flush() {
+		synchronized (FLUSH_LOCK) {
+			//the reads are sent first, as a write is always preceded by a read
+			String[] reads = drain(pendingReads);
+			if (reads != null) {
+				fileReadsRequestor.accept(reads);
+			}
+			String[] writes = drain(pendingWrites);
+			if (writes != null) {
+				fileWritesRequestor.accept(writes);
+			}
+		}
 	}
 
 	public static void requestClassLoaderResource(String name) {
@@ -108,10 +291,12 @@ public class TestFileRequestor {
 	}
 
 	public static void clear() {
-		fileReadRequestor = TestFileRequestor::ignore;
-		fileWriteRequestor = TestFileRequestor::ignore;
-		fileListRequestor = TestFileRequestor::ignore;
+		fileReadsRequestor = TestFileRequestor::ignore;
+		fileStatsRequestor = TestFileRequestor::ignore;
+		fileWritesRequestor = TestFileRequestor::ignore;
+		fileListsRequestor = TestFileRequestor::ignore;
 		classLoaderResourceRequestor = TestFileRequestor::ignore;
+		optimisticReadPaths = Collections.emptySet();
 
 		clearFileRecordingCollections();
 	}
@@ -121,6 +306,41 @@ public class TestFileRequestor {
 		LISTED_DIRECTORY_CONTENTS.clear();
 
 		requestedClassLoaderResources.clear();
+		pendingReads.clear();
+		pendingWrites.clear();
+	}
+
+	private static String[] drain(ConcurrentLinkedQueue<String> queue) {
+		List<String> result = null;
+		for (String path; (path = queue.poll()) != null;) {
+			if (result == null) {
+				result = new ArrayList<>();
+			}
+			result.add(path);
+		}
+		if (result == null) {
+			return null;
+		}
+		return result.toArray(new String[result.size()]);
+	}
+
+	private static final class ReadBatch {
+		//guarded by READ_BATCH_LOCK until the batch is being sent
+		final List<String> paths = new ArrayList<>();
+		final List<String> statPaths = new ArrayList<>();
+		boolean done;
+		Throwable failure;
+
+		void rethrowFailure() {
+			Throwable exc = failure;
+			if (exc == null) {
+				return;
+			}
+			if (exc instanceof Error) {
+				throw (Error) exc;
+			}
+			throw (RuntimeException) exc;
+		}
 	}
 
 }
@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2020 Bence Sipka
+ *
+ * This program is free software: you can redistribute it and/or modify 
+ * it under the terms of the GNU General Public License as published by 
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package saker.java.testing.bootstrapagent;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+
+/**
+ * Concurrent bit set for the used class and method indices.
+ * <p>
+ * The bits are stored in fixed size pages, so growing the set doesn't copy the already set bits, and the setters
+ * don't need to retry when the set grows concurrently.
+ * <p>
+ * Every word that becomes non-zero is appended to a log, so iterating and clearing the set is proportional to the
+ * number of used indices instead of the capacity of the set.
+ * <p>
+ * The set is expected to be cleared and iterated when no indices are set concurrently. Indices that are set during
+ * these operations may or may not be seen, but the set stays consistent.
+ */
+final class UsedIndexSet {
+	private static final int PAGE_SHIFT = 10;
+	private static final int PAGE_WORDS = 1 << PAGE_SHIFT;
+	private static final int PAGE_MASK = PAGE_WORDS - 1;
+
+	private static final AtomicLongArray[] EMPTY_WORD_PAGES = {};
+	private static final AtomicIntegerArray[] EMPTY_LOG_PAGES = {};
+
+	private volatile AtomicLongArray[] wordPages = EMPTY_WORD_PAGES;
+	/**
+	 * The indices of the words that became non-zero, plus one. Zero entries are not yet written by their setters.
+	 * <p>
+	 * The log has the same capacity as the number of words.
+	 */
+	private volatile AtomicIntegerArray[] logPages = EMPTY_LOG_PAGES;
+	private final AtomicInteger logSize = new AtomicInteger();
+	/**
+	 * Set to <code>true</code> if a word couldn't be logged. (Can only happen if words are set concurrently to
+	 * clearing.) In this case all words are scanned until the next clear.
+	 */
+	private volatile boolean logOverflow;
+
+	public UsedIndexSet(int initialcapacity) {
+		ensureCapacity(initialcapacity);
+	}
+
+	/**
+	 * Ensures that the indices less than the argument can be set.
+	 * <p>
+	 * Must be called before the index is published to the setters.
+	 * 
+	 * @param capacity
+	 *            The number of indices.
+	 */
+	public void ensureCapacity(int capacity) {
+		int wordcount = (int) ((capacity + 63L) >>> 6);
+		int pagecount = (wordcount + PAGE_MASK) >>> PAGE_SHIFT;
+		if (wordPages.length >= pagecount) {
+			return;
+		}
+		synchronized (this) {
+			AtomicLongArray[] words = wordPages;
+			int len = words.length;
+			if (len >= pagecount) {
+				return;
+			}
+			//only the page references are copied
+			AtomicLongArray[] nwords = Arrays.copyOf(words, pagecount);
+			AtomicIntegerArray[] nlog = Arrays.copyOf(logPages, pagecount);
+			for (int i = len; i < pagecount; i++) {
+				nwords[i] = new AtomicLongArray(PAGE_WORDS);
+				nlog[i] = new AtomicIntegerArray(PAGE_WORDS);
+			}
+			//publish the log first, so it can hold the words of the new pages when they are set
+			logPages = nlog;
+			wordPages = nwords;
+		}
+	}
+
+	public void set(int index) {
+		AtomicLongArray page = wordPages[index >>> (6 + PAGE_SHIFT)];
+		int wordidx = (index >>> 6) & PAGE_MASK;
+		long bit = 1L << index;
+		long word = page.get(wordidx);
+		if ((word & bit) != 0) {
+			//already set, don't write the shared memory
+			return;
+		}
+		while (!page.compareAndSet(wordidx, word, word | bit)) {
+			word = page.get(wordidx);
+			if ((word & bit) != 0) {
+				return;
+			}
+		}
+		if (word == 0) {
+			//only the thread that makes the word non-zero logs it
+			appendLog(index >>> 6);
+		}
+	}
+
+	/**
+	 * Calls the argument for each set index.
+	 * <p>
+	 * The indices are not ordered. An index may be reported multiple times if it was set concurrently to clearing.
+	 * 
+	 * @param consumer
+	 *            The consumer to call.
+	 */
+	public void forEach(IntConsumer consumer) {
+		if (logOverflow) {
+			AtomicLongArray[] words = wordPages;
+			for (int p = 0; p < words.length; p++) {
+				AtomicLongArray page = words[p];
+				for (int i = 0; i < PAGE_WORDS; i++) {
+					forEachBit((p << PAGE_SHIFT) | i, page.get(i), consumer);
+				}
+			}
+			return;
+		}
+		AtomicIntegerArray[] log = logPages;
+		int size = Math.min(logSize.get(), log.length << PAGE_SHIFT);
+		for (int i = 0; i < size; i++) {
+			int wordindex = getLogEntry(log, i);
+			//read the page references after the log entry, as it may be on a newly added page
+			AtomicLongArray page = wordPages[wordindex >>> PAGE_SHIFT];
+			forEachBit(wordindex, page.get(wordindex & PAGE_MASK), consumer);
+		}
+	}
+
+	public void clear() {
+		int start = 0;
+		while (!logOverflow) {
+			AtomicIntegerArray[] log = logPages;
+			int size = Math.min(logSize.get(), log.length << PAGE_SHIFT);
+			for (int i = start; i < size; i++) {
+				int wordindex = getLogEntry(log, i);
+				log[i >>> PAGE_SHIFT].set(i & PAGE_MASK, 0);
+				wordPages[wordindex >>> PAGE_SHIFT].set(wordindex & PAGE_MASK, 0);
+			}
+			//words that became non-zero while clearing are cleared in the next round
+			if (logSize.compareAndSet(size, 0)) {
+				return;
+			}
+			start = size;
+		}
+		clearAll();
+	}
+
+	private synchronized void clearAll() {
+		AtomicLongArray[] words = wordPages;
+		AtomicIntegerArray[] log = logPages;
+		for (int p = 0; p < words.length; p++) {
+			AtomicLongArray page = words[p];
+			AtomicIntegerArray logpage = log[p];
+			for (int i = 0; i < PAGE_WORDS; i++) {
+				page.set(i, 0);
+				logpage.set(i, 0);
+			}
+		}
+		logSize.set(0);
+		logOverflow = false;
+	}
+
+	private void appendLog(int wordindex) {
+		int pos = logSize.getAndIncrement();
+		AtomicIntegerArray[] log = logPages;
+		int pageidx = pos >>> PAGE_SHIFT;
+		if (pageidx >= log.length) {
+			logOverflow = true;
+			return;
+		}
+		log[pageidx].set(pos & PAGE_MASK, wordindex + 1);
+	}
+
+	private static int getLogEntry(AtomicIntegerArray[] log, int pos) {
+		AtomicIntegerArray page = log[pos >>> PAGE_SHIFT];
+		int i = pos & PAGE_MASK;
+		int entry;
+		while ((entry = page.get(i)) == 0) {
+			//the setter incremented the log size, but haven't written the entry yet
+			Thread.yield();
+		}
+		return entry - 1;
+	}
+
+	private static void forEachBit(int wordindex, long word, IntConsumer consumer) {
+		while (word != 0) {
+			consumer.accept((wordindex << 6) | Long.numberOfTrailingZeros(word));
+			word &= word - 1;
+		}
+	}
+}
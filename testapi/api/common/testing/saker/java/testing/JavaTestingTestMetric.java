@@ -15,6 +15,8 @@
  */
 package testing.saker.java.testing;
 
+import java.nio.file.Path;
+import java.util.Map;
 import java.util.Set;
 
 import saker.build.file.path.SakerPath;
@@ -38,4 +40,10 @@ public interface JavaTestingTestMetric {
 
 	public default void javaTestDependentClasses(String classname, Set<String> directories) {
 	}
+
+	public default void javaTestOptimisticReads(String classname, Map<SakerPath, Path> localpaths) {
+	}
+
+	public default void javaTestOptimisticReadRerun(String classname) {
+	}
 }